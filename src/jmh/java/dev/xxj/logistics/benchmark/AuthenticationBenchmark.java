@@ -0,0 +1,62 @@
+package dev.xxj.logistics.benchmark;
+
+import dev.xxj.logistics.config.CachingAuthenticationProvider;
+import dev.xxj.logistics.config.CredentialCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what checking the credentials of one HTTP basic request costs, with the default
+ * {@link DaoAuthenticationProvider} that runs BCrypt every time and with the {@link CachingAuthenticationProvider}
+ * after the first successful check. Running on one thread, the average time per operation is the CPU time
+ * spent per request.
+ *
+ * @author Frank-Xiao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+    private AuthenticationProvider bcrypt;
+    private AuthenticationProvider cached;
+
+    @Setup
+    public void setUp() {
+        PasswordEncoder encoder = new BCryptPasswordEncoder();
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+                User.withUsername("user").password(encoder.encode("password")).roles("USER").build());
+        DaoAuthenticationProvider dao = new DaoAuthenticationProvider(encoder);
+        dao.setUserDetailsService(users);
+        bcrypt = dao;
+        cached = new CachingAuthenticationProvider(users, encoder,
+                new CredentialCacheProperties(null, null, null), new SimpleMeterRegistry());
+        cached.authenticate(credentials());
+    }
+
+    @Benchmark
+    public Authentication bcrypt() {
+        return bcrypt.authenticate(credentials());
+    }
+
+    @Benchmark
+    public Authentication cached() {
+        return cached.authenticate(credentials());
+    }
+
+    private static Authentication credentials() {
+        return UsernamePasswordAuthenticationToken.unauthenticated("user", "password");
+    }
+}
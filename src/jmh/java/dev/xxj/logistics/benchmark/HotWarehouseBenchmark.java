@@ -0,0 +1,117 @@
+package dev.xxj.logistics.benchmark;
+
+import dev.xxj.logistics.Application;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.TimeOrderedUuidGenerator;
+import dev.xxj.logistics.service.GoodService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code locking}, {@code sharded} and {@code coalescing} write modes under skewed load, where a share
+ * {@code hotShare} of all stores and retrieves goes to one hot warehouse and the rest is spread over the
+ * others.
+ * <p>
+ * In locking mode every operation on the hot warehouse waits for the row lock of its counter, while in sharded
+ * mode one shard checks them in memory and commits them in batches, and in coalescing mode the operations that
+ * arrive together take that lock once per batch. Run it with e.g.
+ * {@code -Djmh.args="HotWarehouseBenchmark -p hotShare=0.5"}.
+ *
+ * @author Frank-Xiao
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class HotWarehouseBenchmark {
+
+    /**
+     * Store or retrieve one item, each with the same probability so the amounts only drift randomly.
+     */
+    @Benchmark
+    public void storeOrRetrieve(Dataset data) {
+        var dto = new GoodStorageDto(data.pickWarehouse(), data.goodId, 1L);
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            data.goodService.storeGood(dto);
+        } else {
+            data.goodService.retrieveGood(dto);
+        }
+    }
+
+    /**
+     * The application in the given write mode on an embedded H2 database, with one good stored in every
+     * warehouse.
+     */
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        private static final long INITIAL_AMOUNT = 1_000_000_000L;
+
+        @Param({"locking", "sharded", "coalescing"})
+        String writeMode;
+        @Param("0.9")
+        double hotShare;
+        @Param("64")
+        int warehouses;
+
+        GoodService goodService;
+        UUID goodId;
+        private UUID[] warehouseIds;
+        private ConfigurableApplicationContext context;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(Application.class)
+                    .profiles("h2")
+                    .properties("spring.main.web-application-type=none",
+                            "spring.main.banner-mode=off",
+                            "logging.level.root=warn",
+                            "spring.jpa.show-sql=false")
+                    /* arguments, unlike the properties above, override application.properties */
+                    .run("--logistics.inventory.write-mode=" + writeMode);
+            goodService = context.getBean(GoodService.class);
+            seed(context.getBean(JdbcTemplate.class));
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+
+        private void seed(JdbcTemplate jdbc) {
+            goodId = TimeOrderedUuidGenerator.next();
+            jdbc.update("insert into good (id, name) values (?, ?)", goodId, "hot");
+            warehouseIds = new UUID[warehouses];
+            List<Object[]> warehouseRows = new ArrayList<>();
+            List<Object[]> occupancyRows = new ArrayList<>();
+            List<Object[]> storageRows = new ArrayList<>();
+            for (int i = 0; i < warehouses; i++) {
+                warehouseIds[i] = TimeOrderedUuidGenerator.next();
+                warehouseRows.add(new Object[]{warehouseIds[i], "warehouse-" + i, Long.MAX_VALUE / 2});
+                occupancyRows.add(new Object[]{warehouseIds[i], INITIAL_AMOUNT});
+                storageRows.add(new Object[]{TimeOrderedUuidGenerator.next(), warehouseIds[i], goodId, INITIAL_AMOUNT});
+            }
+            jdbc.batchUpdate("insert into warehouse (id, name, max_amount) values (?, ?, ?)", warehouseRows);
+            jdbc.batchUpdate("insert into warehouse_occupancy (warehouse_id, amount) values (?, ?)", occupancyRows);
+            jdbc.batchUpdate("insert into good_storage (id, warehouse_id, good_id, amount) values (?, ?, ?, ?)",
+                    storageRows);
+        }
+
+        /**
+         * @return the hot warehouse with probability {@code hotShare}, otherwise a random other one
+         */
+        UUID pickWarehouse() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return random.nextDouble() < hotShare ? warehouseIds[0] : warehouseIds[1 + random.nextInt(warehouses - 1)];
+        }
+    }
+}
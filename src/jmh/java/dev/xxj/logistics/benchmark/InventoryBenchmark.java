@@ -0,0 +1,73 @@
+package dev.xxj.logistics.benchmark;
+
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.WarehouseSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the inventory hot paths of {@link dev.xxj.logistics.service.GoodService} and
+ * {@link dev.xxj.logistics.service.WarehouseService}, called through their Spring proxies on an
+ * {@link InventoryDataset}.
+ * <p>
+ * Each benchmark reports its throughput and, in sample mode, its latency percentiles. The {@code jmh}
+ * Maven profile adds the allocation rate with the {@code gc} profiler and writes the results to
+ * {@code target/jmh-result.json}, which can be compared between commits.
+ *
+ * @author Frank-Xiao
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class InventoryBenchmark {
+
+    @Benchmark
+    public GoodStorageDto storeGood(InventoryDataset data) {
+        int storage = data.randomStorage();
+        return data.goodService.storeGood(
+                new GoodStorageDto(data.warehouseOf(storage), data.goodOf(storage), 1L));
+    }
+
+    @Benchmark
+    public void retrieveGood(InventoryDataset data) {
+        int storage = data.randomStorage();
+        data.goodService.retrieveGood(new GoodStorageDto(data.warehouseOf(storage), data.goodOf(storage), 1L));
+    }
+
+    /**
+     * Move one item between two warehouses storing the same good, in a random direction so that the
+     * amounts only drift randomly.
+     */
+    @Benchmark
+    public boolean moveGood(InventoryDataset data) {
+        int storage = data.randomMovableStorage();
+        UUID one = data.warehouseOf(storage);
+        UUID other = data.warehouseOf(storage + data.goods);
+        boolean forward = ThreadLocalRandom.current().nextBoolean();
+        return data.goodService.moveGood(
+                new MoveDTO(forward ? one : other, forward ? other : one, data.goodOf(storage), 1L));
+    }
+
+    @Benchmark
+    public Long getTotalAmount(InventoryDataset data) {
+        return data.goodService.getTotalAmount(data.randomGood());
+    }
+
+    @Benchmark
+    public List<WarehouseSummary> getLocations(InventoryDataset data) {
+        return data.goodService.getLocations(data.randomGood());
+    }
+
+    @Benchmark
+    public Long getExistAmount(InventoryDataset data) {
+        return data.warehouseService.getExistAmount(data.randomWarehouse());
+    }
+}
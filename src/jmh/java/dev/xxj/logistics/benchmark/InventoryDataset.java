@@ -0,0 +1,136 @@
+package dev.xxj.logistics.benchmark;
+
+import dev.xxj.logistics.Application;
+import dev.xxj.logistics.model.TimeOrderedUuidGenerator;
+import dev.xxj.logistics.service.GoodService;
+import dev.xxj.logistics.service.WarehouseService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The application started on an embedded H2 database seeded with a configurable dataset.
+ * <p>
+ * Storage {@code i} holds good {@code i % goods} in warehouse {@code i % warehouses}, so every good is spread over
+ * {@code storages / goods} warehouses and can be moved between them, which needs at least two storages per
+ * good, and every warehouse holds {@code storages / warehouses} goods. The pairs stay distinct as long as
+ * {@code storages} does not exceed the least common multiple of {@code goods} and {@code warehouses}. Override
+ * the sizes with e.g. {@code -Djmh.args="-p warehouses=1000 -p goods=999 -p storages=10000"}, which stores
+ * ten goods in every warehouse.
+ * <p>
+ * Every storage starts with {@value #INITIAL_AMOUNT} items in a warehouse with ample capacity, so storing,
+ * retrieving and moving single items never fails during a run.
+ *
+ * @author Frank-Xiao
+ */
+@State(Scope.Benchmark)
+public class InventoryDataset {
+    static final long INITIAL_AMOUNT = 1_000_000_000L;
+
+    @Param("1000")
+    int warehouses;
+    @Param("100")
+    int goods;
+    @Param("1000")
+    int storages;
+
+    GoodService goodService;
+    WarehouseService warehouseService;
+    private ConfigurableApplicationContext context;
+    private UUID[] goodIds;
+    private UUID[] warehouseIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        if (2 * goods > storages || storages > lcm(goods, warehouses) || goods % warehouses == 0) {
+            throw new IllegalArgumentException("2 * goods <= storages <= lcm(goods, warehouses) is required, "
+                    + "and goods must not be a multiple of warehouses");
+        }
+        context = new SpringApplicationBuilder(Application.class)
+                .profiles("h2")
+                .properties("spring.main.web-application-type=none",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn")
+                .run();
+        goodService = context.getBean(GoodService.class);
+        warehouseService = context.getBean(WarehouseService.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        goodIds = new UUID[goods];
+        List<Object[]> goodRows = new ArrayList<>();
+        for (int i = 0; i < goods; i++) {
+            goodIds[i] = TimeOrderedUuidGenerator.next();
+            goodRows.add(new Object[]{goodIds[i], "good-" + i});
+        }
+        jdbc.batchUpdate("insert into good (id, name) values (?, ?)", goodRows);
+
+        warehouseIds = new UUID[warehouses];
+        long[] occupancies = new long[warehouses];
+        List<Object[]> warehouseRows = new ArrayList<>();
+        for (int i = 0; i < warehouses; i++) {
+            warehouseIds[i] = TimeOrderedUuidGenerator.next();
+            warehouseRows.add(new Object[]{warehouseIds[i], "warehouse-" + i, Long.MAX_VALUE / 2});
+        }
+        List<Object[]> storageRows = new ArrayList<>();
+        for (int i = 0; i < storages; i++) {
+            storageRows.add(new Object[]{TimeOrderedUuidGenerator.next(), warehouseOf(i), goodOf(i), INITIAL_AMOUNT});
+            occupancies[i % warehouses] += INITIAL_AMOUNT;
+        }
+        List<Object[]> occupancyRows = new ArrayList<>();
+        for (int i = 0; i < warehouses; i++) {
+            occupancyRows.add(new Object[]{warehouseIds[i], occupancies[i]});
+        }
+        jdbc.batchUpdate("insert into warehouse (id, name, max_amount) values (?, ?, ?)", warehouseRows);
+        jdbc.batchUpdate("insert into warehouse_occupancy (warehouse_id, amount) values (?, ?)", occupancyRows);
+        jdbc.batchUpdate("insert into good_storage (id, warehouse_id, good_id, amount) values (?, ?, ?, ?)",
+                storageRows);
+    }
+
+    /**
+     * @return the index of a random storage
+     */
+    int randomStorage() {
+        return ThreadLocalRandom.current().nextInt(storages);
+    }
+
+    UUID goodOf(int storage) {
+        return goodIds[storage % goods];
+    }
+
+    UUID warehouseOf(int storage) {
+        return warehouseIds[storage % warehouses];
+    }
+
+    /**
+     * @return the index of a random storage that has another storage of the same good at {@code index + goods}
+     */
+    int randomMovableStorage() {
+        return ThreadLocalRandom.current().nextInt(storages - goods);
+    }
+
+    UUID randomGood() {
+        return goodIds[ThreadLocalRandom.current().nextInt(goods)];
+    }
+
+    UUID randomWarehouse() {
+        return warehouseIds[ThreadLocalRandom.current().nextInt(warehouses)];
+    }
+
+    private static long lcm(long a, long b) {
+        return a / BigInteger.valueOf(a).gcd(BigInteger.valueOf(b)).longValue() * b;
+    }
+}
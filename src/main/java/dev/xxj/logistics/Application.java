@@ -3,10 +3,11 @@ package dev.xxj.logistics;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Application is the starting point of this Spring Boot application.
- * It is annotated with {@link SpringBootApplication} and {@link EnableCaching}.
+ * It is annotated with {@link SpringBootApplication}, {@link EnableCaching} and {@link EnableScheduling}.
  * The main method is used to run the application.
  * <p>
  * The application is a logistics system that manages goods and warehouses.
@@ -16,7 +17,7 @@ import org.springframework.cache.annotation.EnableCaching;
  * The user can interact with the system through a RESTful API.
  * The system is built with Spring Security, Spring Data JPA, and Azure Database for MySQL,
  * integrated with Swagger for API documentation,
- * and use Spring's default cache mechanism to improve performance.
+ * and use bounded Caffeine caches to improve performance.
  * <p>
  *
  * @author Frank-Xiao
@@ -24,6 +25,7 @@ import org.springframework.cache.annotation.EnableCaching;
  */
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
 public class Application {
 
     /**
@@ -0,0 +1,16 @@
+package dev.xxj.logistics.cache;
+
+import java.io.Serializable;
+
+/**
+ * CacheInvalidation is broadcast through the {@link SharedCacheTier} whenever a node writes a cache entry,
+ * so that the other nodes drop their local copy.
+ *
+ * @param origin    the id of the node that made the write, which ignores its own broadcast
+ * @param cacheName the name of the cache
+ * @param key       the key of the entry, or null if the whole cache was cleared
+ * @author Frank-Xiao
+ * @see TwoLevelCacheManager
+ */
+public record CacheInvalidation(String origin, String cacheName, Object key) implements Serializable {
+}
@@ -0,0 +1,108 @@
+package dev.xxj.logistics.cache;
+
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * EntityCacheInvalidator keeps the second-level cache of Hibernate on every node in step with the writes of the
+ * other nodes sharing a {@link SharedCacheTier}.
+ * <p>
+ * The entity regions and the query cache are local to each node, and Hibernate only drops what its own node
+ * wrote. Once a transaction that inserted, updated or deleted a cached entity commits, the change is broadcast as
+ * a {@link CacheInvalidation} named after the entity, with its id as the key, or without a key for an insert.
+ * Every other node then drops its copy of the entity and all its cached query results, which may list the
+ * entity or miss it. Like the invalidations of {@link TwoLevelCacheManager}, they arrive shortly after the
+ * commit, so checks that must not see an older entity in between, like the capacity checks, read the database.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.config.EntityCacheConfig
+ */
+public class EntityCacheInvalidator implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    private final SessionFactoryImplementor sessionFactory;
+    private final SharedCacheTier shared;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Register the invalidator with the event listeners of a session factory and subscribe it to a shared tier.
+     *
+     * @param sessionFactory the session factory whose second-level cache is kept in step
+     * @param shared         the shared tier through which the nodes broadcast their writes
+     */
+    public EntityCacheInvalidator(SessionFactoryImplementor sessionFactory, SharedCacheTier shared) {
+        this.sessionFactory = sessionFactory;
+        this.shared = shared;
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        shared.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(event.getPersister(), null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        /* nothing was written */
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        /* nothing was written */
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        /* nothing was written */
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.canWriteToCache();
+    }
+
+    private void publish(EntityPersister persister, Object id) {
+        shared.publish(new CacheInvalidation(nodeId, persister.getEntityName(), id));
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.origin())) {
+            return;
+        }
+        EntityPersister persister = sessionFactory.getMappingMetamodel()
+                .findEntityDescriptor(invalidation.cacheName());
+        if (Objects.isNull(persister) || !persister.canWriteToCache()) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        if (Objects.nonNull(invalidation.key())) {
+            cache.evictEntityData(persister.getEntityName(), invalidation.key());
+        }
+        cache.evictQueryRegions();
+    }
+}
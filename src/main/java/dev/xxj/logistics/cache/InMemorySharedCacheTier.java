@@ -0,0 +1,62 @@
+package dev.xxj.logistics.cache;
+
+import org.springframework.util.SerializationUtils;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * InMemorySharedCacheTier is an embedded stand-in for a real shared tier, for local runs and tests.
+ * <p>
+ * Several {@link TwoLevelCacheManager}s in one JVM that share an instance behave like nodes sharing a
+ * Redis server: invalidations are delivered to every subscriber, and values are copied through Java
+ * serialization on the way in and out, so a node never shares object instances with another one and a
+ * value that could not be sent over the network fails here too. Entries never expire.
+ *
+ * @author Frank-Xiao
+ * @see SharedCacheTier
+ */
+public class InMemorySharedCacheTier implements SharedCacheTier {
+    private final Map<String, Map<Object, Object>> caches = new ConcurrentHashMap<>();
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object get(String cacheName, Object key) {
+        Object value = caches.getOrDefault(cacheName, Map.of()).get(key);
+        return Objects.isNull(value) ? null : SerializationUtils.clone((Serializable) value);
+    }
+
+    @Override
+    public void put(String cacheName, Object key, Object value) {
+        caches.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>())
+                .put(key, SerializationUtils.clone((Serializable) value));
+    }
+
+    @Override
+    public void evict(String cacheName, Object key) {
+        Map<Object, Object> cache = caches.get(cacheName);
+        if (Objects.nonNull(cache)) {
+            cache.remove(key);
+        }
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        caches.remove(cacheName);
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,103 @@
+package dev.xxj.logistics.cache;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * RedisSharedCacheTier keeps the shared cache entries in Redis and broadcasts invalidations through
+ * Redis pub/sub.
+ * <p>
+ * An entry is stored under {@code logistics:cache:<cache name>:<key>} with the given time to live, so the
+ * shared tier stays bounded even for keys that are never evicted. Values and invalidations are encoded
+ * with Java serialization.
+ *
+ * @author Frank-Xiao
+ * @see SharedCacheTier
+ */
+public class RedisSharedCacheTier implements SharedCacheTier {
+    private static final String PREFIX = "logistics:cache:";
+    private static final ChannelTopic TOPIC = new ChannelTopic(PREFIX + "invalidation");
+
+    private final RedisTemplate<String, Object> template;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+    private final Duration timeToLive;
+
+    /**
+     * Create the tier.
+     *
+     * @param connectionFactory the connection factory of the Redis server
+     * @param listenerContainer the started container that delivers the pub/sub messages
+     * @param timeToLive        how long an entry lives in Redis after it was written
+     */
+    public RedisSharedCacheTier(RedisConnectionFactory connectionFactory,
+                                RedisMessageListenerContainer listenerContainer,
+                                Duration timeToLive) {
+        this.template = new RedisTemplate<>();
+        this.template.setConnectionFactory(connectionFactory);
+        this.template.setKeySerializer(StringRedisSerializer.UTF_8);
+        this.template.setValueSerializer(serializer);
+        this.template.afterPropertiesSet();
+        this.listenerContainer = listenerContainer;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public Object get(String cacheName, Object key) {
+        return template.opsForValue().get(redisKey(cacheName, key));
+    }
+
+    @Override
+    public void put(String cacheName, Object key, Object value) {
+        template.opsForValue().set(redisKey(cacheName, key), value, timeToLive);
+    }
+
+    @Override
+    public void evict(String cacheName, Object key) {
+        template.delete(redisKey(cacheName, key));
+    }
+
+    /**
+     * Remove all entries of one cache, scanning for its keys instead of blocking Redis with {@code KEYS}.
+     *
+     * @param cacheName the name of the cache
+     */
+    @Override
+    public void clear(String cacheName) {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(PREFIX + cacheName + ":*").count(1000).build();
+        try (Cursor<String> cursor = template.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        if (!keys.isEmpty()) {
+            template.delete(keys);
+        }
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        template.convertAndSend(TOPIC.getTopic(), invalidation);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept((CacheInvalidation) serializer.deserialize(message.getBody())),
+                TOPIC);
+    }
+
+    private static String redisKey(String cacheName, Object key) {
+        return PREFIX + cacheName + ":" + key;
+    }
+}
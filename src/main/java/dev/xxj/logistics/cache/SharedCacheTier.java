@@ -0,0 +1,65 @@
+package dev.xxj.logistics.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * SharedCacheTier is the second cache level that all nodes of a deployment share, together with the
+ * channel through which the nodes tell each other about writes.
+ * <p>
+ * Values and keys cross process boundaries, so they must be {@link java.io.Serializable}.
+ * Values are stored as they are given, including Spring's {@link org.springframework.cache.support.NullValue}.
+ *
+ * @author Frank-Xiao
+ * @see TwoLevelCacheManager
+ * @see InMemorySharedCacheTier
+ * @see RedisSharedCacheTier
+ */
+public interface SharedCacheTier {
+
+    /**
+     * Read an entry.
+     *
+     * @param cacheName the name of the cache
+     * @param key       the key of the entry
+     * @return the stored value, or null if there is no entry
+     */
+    Object get(String cacheName, Object key);
+
+    /**
+     * Write an entry.
+     *
+     * @param cacheName the name of the cache
+     * @param key       the key of the entry
+     * @param value     the value to store, not null
+     */
+    void put(String cacheName, Object key, Object value);
+
+    /**
+     * Remove an entry if it exists.
+     *
+     * @param cacheName the name of the cache
+     * @param key       the key of the entry
+     */
+    void evict(String cacheName, Object key);
+
+    /**
+     * Remove all entries of one cache.
+     *
+     * @param cacheName the name of the cache
+     */
+    void clear(String cacheName);
+
+    /**
+     * Broadcast an invalidation to every subscriber, including the ones of the publishing node.
+     *
+     * @param invalidation the invalidation
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * Receive every invalidation published from now on.
+     *
+     * @param listener the listener, called on a thread of the tier
+     */
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
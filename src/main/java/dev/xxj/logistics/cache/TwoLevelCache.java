@@ -0,0 +1,102 @@
+package dev.xxj.logistics.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * TwoLevelCache is a Spring cache made of a local Caffeine cache in front of a {@link SharedCacheTier}.
+ * <p>
+ * A read is served by the local level if possible, then by the shared level, whose value is copied into
+ * the local level. A write goes to the shared level first, then to the local level, and is then broadcast
+ * so that the other nodes drop their local copy and read the new value from the shared level next time.
+ *
+ * @author Frank-Xiao
+ * @see TwoLevelCacheManager
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    private final String name;
+    private final Cache<Object, Object> local;
+    private final SharedCacheTier shared;
+    private final String nodeId;
+
+    TwoLevelCache(String name, Cache<Object, Object> local, SharedCacheTier shared, String nodeId) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the local level, e.g. to bind its statistics to Micrometer.
+     *
+     * @return the local Caffeine cache
+     */
+    @Override
+    public Cache<Object, Object> getNativeCache() {
+        return local;
+    }
+
+    /**
+     * Look up an entry without the loader of the local cache, so a local miss falls through to the shared
+     * level instead of the database.
+     */
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (Objects.isNull(value)) {
+            value = shared.get(name, key);
+            if (Objects.nonNull(value)) {
+                local.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) fromStoreValue(local.get(key, k -> {
+            Object value = shared.get(name, k);
+            if (Objects.isNull(value)) {
+                try {
+                    value = toStoreValue(valueLoader.call());
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(k, valueLoader, e);
+                }
+                shared.put(name, k, value);
+            }
+            return value;
+        }));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        shared.put(name, key, storeValue);
+        local.put(key, storeValue);
+        shared.publish(new CacheInvalidation(nodeId, name, key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        shared.evict(name, key);
+        local.invalidate(key);
+        shared.publish(new CacheInvalidation(nodeId, name, key));
+    }
+
+    @Override
+    public void clear() {
+        shared.clear(name);
+        local.invalidateAll();
+        shared.publish(new CacheInvalidation(nodeId, name, null));
+    }
+}
@@ -0,0 +1,62 @@
+package dev.xxj.logistics.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TwoLevelCacheManager puts a {@link SharedCacheTier} behind every cache of a {@link CaffeineCacheManager}.
+ * <p>
+ * Each instance is one node with a random id. It listens to the invalidations of the shared tier and drops
+ * the local copy of every entry written by another node, so the local caches of the nodes behind a load
+ * balancer do not drift apart. The bounds, expiry and statistics of the local level stay those of the
+ * Caffeine caches.
+ *
+ * @author Frank-Xiao
+ * @see TwoLevelCache
+ */
+public class TwoLevelCacheManager implements CacheManager {
+    private final CaffeineCacheManager local;
+    private final SharedCacheTier shared;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CaffeineCacheManager local, SharedCacheTier shared) {
+        this.local = local;
+        this.shared = shared;
+        shared.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> {
+            CaffeineCache localCache = (CaffeineCache) local.getCache(cacheName);
+            return Objects.isNull(localCache) ? null :
+                    new TwoLevelCache(cacheName, localCache.getNativeCache(), shared, nodeId);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return local.getCacheNames();
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        TwoLevelCache cache = caches.get(invalidation.cacheName());
+        if (nodeId.equals(invalidation.origin()) || Objects.isNull(cache)) {
+            return;
+        }
+        if (Objects.isNull(invalidation.key())) {
+            cache.getNativeCache().invalidateAll();
+        } else {
+            cache.getNativeCache().invalidate(invalidation.key());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.xxj.logistics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * BulkheadProperties configures the {@link DatabaseBulkheadFilter}, bound from {@code logistics.bulkhead.*}.
+ *
+ * @param enabled whether the bulkhead is installed when requests run on virtual threads
+ * @param permits the number of requests handled at once, by default the maximum size of the Hikari pool
+ * @param maxWait how long a request waits for a permit before it is rejected with 503
+ * @author Frank-Xiao
+ * @see VirtualThreadConfig
+ */
+@ConfigurationProperties("logistics.bulkhead")
+public record BulkheadProperties(Boolean enabled, Integer permits, Duration maxWait) {
+
+    public BulkheadProperties {
+        enabled = Objects.requireNonNullElse(enabled, true);
+        maxWait = Objects.requireNonNullElse(maxWait, Duration.ofSeconds(5));
+    }
+}
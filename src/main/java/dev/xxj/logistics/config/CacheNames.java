@@ -0,0 +1,41 @@
+package dev.xxj.logistics.config;
+
+/**
+ * CacheNames lists the caches of the application.
+ * <p>
+ * Each cache holds one kind of key and value, so a write can evict exactly the entries it affects:
+ * <ul>
+ *     <li>single entities are keyed by their id and replaced or evicted by id,</li>
+ *     <li>name lookups are keyed by the name and evicted for the old and the new name of a changed good,</li>
+ *     <li>list and page results depend on every entity of their kind, so any write of that kind evicts them all,
+ *     together with the {@link dev.xxj.logistics.model.CollectionVersion} of that kind kept with them.</li>
+ * </ul>
+ *
+ * @author Frank-Xiao
+ * @see CachingConfig
+ */
+public final class CacheNames {
+    /**
+     * Single {@link dev.xxj.logistics.model.Good} by id.
+     */
+    public static final String GOODS = "goods";
+    /**
+     * Lists of goods by name.
+     */
+    public static final String GOODS_BY_NAME = "goodsByName";
+    /**
+     * All goods, pages of goods by cursor, sort and size, and the version of all goods.
+     */
+    public static final String GOOD_LISTS = "goodLists";
+    /**
+     * Single {@link dev.xxj.logistics.model.Warehouse} by id.
+     */
+    public static final String WAREHOUSE = "warehouse";
+    /**
+     * All warehouses, pages of warehouses by cursor, sort and size, and the version of all warehouses.
+     */
+    public static final String WAREHOUSE_LISTS = "warehouseLists";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,100 @@
+package dev.xxj.logistics.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.xxj.logistics.model.CursorPage;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * CacheProperties holds the bounds and expiry of each cache, bound from {@code logistics.cache.*}.
+ * <p>
+ * Every cache listed under {@code logistics.cache.specs.<name>} is created at startup with its own
+ * {@link Spec}; any other cache requested at runtime is created with {@code logistics.cache.defaults}.
+ * For example:
+ * <pre>
+ * logistics.cache.defaults.maximum-size=1000
+ * logistics.cache.specs.goods.maximum-weight=100000
+ * logistics.cache.specs.goods.expire-after-access=PT30M
+ * logistics.cache.specs.goods.refresh-after-write=PT1M
+ * </pre>
+ * These specs bound the local level. With {@code logistics.cache.shared-tier} set to {@code redis} or
+ * {@code embedded}, a shared second level sits behind it whose entries live for {@code shared-time-to-live}.
+ *
+ * @param defaults         the spec of caches that are not listed in {@code specs}
+ * @param specs            the spec of each named cache
+ * @param sharedTimeToLive how long an entry lives in the shared level after it was written
+ * @author Frank-Xiao
+ * @see CachingConfig
+ */
+@ConfigurationProperties("logistics.cache")
+public record CacheProperties(Spec defaults, Map<String, Spec> specs, Duration sharedTimeToLive) {
+
+    public CacheProperties {
+        defaults = Objects.requireNonNullElseGet(defaults, () -> new Spec(1000L, null, Duration.ofMinutes(10), null, null));
+        specs = Objects.requireNonNullElseGet(specs, Map::of);
+        sharedTimeToLive = Objects.requireNonNullElse(sharedTimeToLive, Duration.ofMinutes(30));
+    }
+
+    /**
+     * The bounds and expiry of one cache. Every property is optional.
+     * <p>
+     * The weight of an entry is the number of entities it holds, so a cached list or page of 500 goods weighs 500
+     * while a single good weighs 1. A cache is bounded either by {@code maximumSize} entries or by
+     * {@code maximumWeight} entities, not both.
+     *
+     * @param maximumSize       the maximum number of entries
+     * @param maximumWeight     the maximum number of cached entities over all entries
+     * @param expireAfterWrite  how long an entry lives after it was written
+     * @param expireAfterAccess how long an entry lives after it was last read or written
+     * @param refreshAfterWrite how long after it was written an entry is reloaded in the background on its next
+     *                          read, while the old value keeps being served; needs a loader for the cache
+     */
+    public record Spec(Long maximumSize,
+                       Long maximumWeight,
+                       Duration expireAfterWrite,
+                       Duration expireAfterAccess,
+                       Duration refreshAfterWrite) {
+
+        /**
+         * Create a Caffeine builder with this spec that records statistics.
+         *
+         * @return the builder
+         */
+        public Caffeine<Object, Object> toBuilder() {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+            if (Objects.nonNull(maximumSize)) {
+                builder.maximumSize(maximumSize);
+            }
+            if (Objects.nonNull(maximumWeight)) {
+                builder.maximumWeight(maximumWeight)
+                        .weigher((key, value) -> weigh(value));
+            }
+            if (Objects.nonNull(expireAfterWrite)) {
+                builder.expireAfterWrite(expireAfterWrite);
+            }
+            if (Objects.nonNull(expireAfterAccess)) {
+                builder.expireAfterAccess(expireAfterAccess);
+            }
+            if (Objects.nonNull(refreshAfterWrite)) {
+                builder.refreshAfterWrite(refreshAfterWrite);
+            }
+            return builder;
+        }
+
+        /**
+         * The number of entities a cached value holds, at least 1.
+         */
+        static int weigh(Object value) {
+            int entities = switch (value) {
+                case Collection<?> collection -> collection.size();
+                case CursorPage<?> page -> page.items().size();
+                default -> 1;
+            };
+            return Math.max(1, entities);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package dev.xxj.logistics.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * AuthenticationProvider that remembers successful password checks for a short time.
+ * <p>
+ * Checking a password against its BCrypt hash is deliberately slow, which clients sending HTTP basic credentials
+ * with every request pay every time. After a successful check this provider caches an HMAC-SHA256 of the user
+ * name, the password and the stored password hash, keyed with a random key that never leaves this instance, so
+ * neither the password nor something it could be recovered from without the key is kept. A later request with
+ * the same credentials is verified by recomputing the HMAC, which takes microseconds.
+ * <p>
+ * The user is still loaded from the {@link UserDetailsService} on every request. A changed password changes the
+ * stored hash and therefore the HMAC, so the cached check stops matching at once; changed roles and disabled or
+ * locked accounts take effect at once as well, since the authentication is built from the freshly loaded user.
+ * Wrong passwords are never cached and always go through the password encoder.
+ * <p>
+ * The verifications are timed as {@code logistics.auth.verification}, tagged with {@code cache=hit} or
+ * {@code cache=miss}, and the cache is bound to the {@code cache.*} metrics as {@code credentials}.
+ *
+ * @author Frank-Xiao
+ * @see CredentialCacheProperties
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+    private static final String ALGORITHM = "HmacSHA256";
+    private final DaoAuthenticationProvider delegate;
+    private final UserDetailsService userDetailsService;
+    private final UserDetailsChecker checker = new AccountStatusUserDetailsChecker();
+    private final Cache<String, byte[]> verified;
+    private final SecretKey key;
+    private final Timer hits;
+    private final Timer misses;
+
+    /**
+     * @param userDetailsService the source of the users
+     * @param passwordEncoder    the encoder of the stored passwords
+     * @param properties         the bounds of the cache
+     * @param registry           the registry of the metrics
+     */
+    public CachingAuthenticationProvider(UserDetailsService userDetailsService,
+                                         PasswordEncoder passwordEncoder,
+                                         CredentialCacheProperties properties,
+                                         MeterRegistry registry) {
+        this.delegate = new DaoAuthenticationProvider(passwordEncoder);
+        this.delegate.setUserDetailsService(userDetailsService);
+        this.userDetailsService = userDetailsService;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build();
+        try {
+            this.key = KeyGenerator.getInstance(ALGORITHM).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        /* the same tag keys as the caches bound by Spring Boot, which Prometheus requires for one metric name */
+        CaffeineCacheMetrics.monitor(registry, verified, "credentials",
+                "cache.manager", "authenticationProvider", "name", "credentials");
+        this.hits = Timer.builder("logistics.auth.verification").tag("cache", "hit").register(registry);
+        this.misses = Timer.builder("logistics.auth.verification").tag("cache", "miss").register(registry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (!(authentication.getCredentials() instanceof String password)) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        byte[] expected = verified.getIfPresent(username);
+        if (Objects.nonNull(expected)) {
+            Timer.Sample sample = Timer.start();
+            UserDetails user = load(username);
+            if (MessageDigest.isEqual(expected, mac(username, password, user.getPassword()))) {
+                checker.check(user);
+                if (!user.isCredentialsNonExpired()) {
+                    throw new CredentialsExpiredException("User credentials have expired");
+                }
+                var result = UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+                result.setDetails(authentication.getDetails());
+                sample.stop(hits);
+                return result;
+            }
+            verified.invalidate(username);
+        }
+        Timer.Sample sample = Timer.start();
+        Authentication result = delegate.authenticate(authentication);
+        if (result.getPrincipal() instanceof UserDetails user && Objects.nonNull(user.getPassword())) {
+            verified.put(username, mac(username, password, user.getPassword()));
+        }
+        sample.stop(misses);
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private UserDetails load(String username) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            verified.invalidate(username);
+            throw new BadCredentialsException("Bad credentials");
+        }
+    }
+
+    private byte[] mac(String username, String password, String storedPassword) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            for (String part : new String[]{username, password, storedPassword}) {
+                byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                mac.update((byte) (bytes.length >>> 24));
+                mac.update((byte) (bytes.length >>> 16));
+                mac.update((byte) (bytes.length >>> 8));
+                mac.update((byte) bytes.length);
+                mac.update(bytes);
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package dev.xxj.logistics.config;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import dev.xxj.logistics.cache.*;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * CachingConfig creates the {@link CacheManager} behind the {@code @Cacheable} services.
+ * <p>
+ * Every cache is a bounded Caffeine cache configured by {@link CacheProperties}, which replaces the
+ * unbounded {@code ConcurrentHashMap} caches Spring uses when no provider is configured. All caches record
+ * hit, miss, load and eviction statistics. The caches that exist at startup are bound to Micrometer by
+ * Spring Boot Actuator and show up as the {@code cache.*} metrics, e.g. {@code /actuator/metrics/cache.gets}.
+ * <p>
+ * A cache with {@code refresh-after-write} needs a loader that can recompute a value from its key alone,
+ * so that a hot entry is reloaded in the background before it expires instead of making a reader wait.
+ * The loaders mirror the keys and return values of the services, since a loading cache also uses its
+ * loader to fill a miss. The caches and their keys are listed in {@link CacheNames}.
+ * <p>
+ * With a {@link SharedCacheTier} configured by {@code logistics.cache.shared-tier}, the Caffeine caches
+ * become the local level of {@link TwoLevelCache}s, for deployments with several nodes.
+ *
+ * @author Frank-Xiao
+ * @see CacheProperties
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CachingConfig {
+
+    /**
+     * Creates the Caffeine {@link CacheManager} with a loader for each cache in {@link CacheNames}.
+     * <p>
+     * The manager is transaction aware: puts and evictions made inside a transaction are applied after it
+     * commits, so a cache never holds a value that was rolled back, and an eviction is not applied before
+     * the changed row is visible to the readers that will fill the cache again.
+     * <p>
+     * Pages are not reloaded by their loader since their key is a cursor; they are dropped when due for
+     * refresh instead. The loaders read from the primary even if read replicas are configured: an entry loaded
+     * from a lagging replica right after an eviction would hide the evicting write from every client.
+     *
+     * @param properties          the bound {@link CacheProperties}
+     * @param goodRepository      the autowired {@link GoodRepository} bean
+     * @param warehouseRepository the autowired {@link WarehouseRepository} bean
+     * @param sharedCacheTier     the shared tier, if one is configured, which makes every cache two-level
+     * @return the cache manager
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties,
+                                     GoodRepository goodRepository,
+                                     WarehouseRepository warehouseRepository,
+                                     ObjectProvider<SharedCacheTier> sharedCacheTier) {
+        CaffeineCacheManager local = cacheManager(properties, Map.of(
+                CacheNames.GOODS, onPrimary(key -> goodRepository.findById((UUID) key).orElse(null)),
+                CacheNames.GOODS_BY_NAME, onPrimary(key -> goodRepository.findByName((String) key)),
+                CacheNames.GOOD_LISTS, onPrimary(key -> SimpleKey.EMPTY.equals(key) ? goodRepository.findAll() : null),
+                CacheNames.WAREHOUSE, onPrimary(key -> warehouseRepository.findById((UUID) key).orElse(null)),
+                CacheNames.WAREHOUSE_LISTS,
+                onPrimary(key -> SimpleKey.EMPTY.equals(key) ? warehouseRepository.findAll() : null)));
+        SharedCacheTier shared = sharedCacheTier.getIfAvailable();
+        return new TransactionAwareCacheManagerProxy(Objects.isNull(shared) ? local :
+                new TwoLevelCacheManager(local, shared));
+    }
+
+    /**
+     * Creates the embedded stand-in of the shared cache tier if {@code logistics.cache.shared-tier} is
+     * {@code embedded}, which makes the caches two-level within this single node.
+     *
+     * @return the in-memory shared tier
+     */
+    @Bean
+    @ConditionalOnProperty(name = "logistics.cache.shared-tier", havingValue = "embedded")
+    public SharedCacheTier embeddedSharedCacheTier() {
+        return new InMemorySharedCacheTier();
+    }
+
+    /**
+     * Creates the container delivering the cache invalidations if {@code logistics.cache.shared-tier} is
+     * {@code redis}.
+     *
+     * @param connectionFactory the Redis connection factory configured by {@code spring.data.redis.*}
+     * @return the listener container
+     */
+    @Bean
+    @ConditionalOnProperty(name = "logistics.cache.shared-tier", havingValue = "redis")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * Creates the Redis shared cache tier if {@code logistics.cache.shared-tier} is {@code redis}, so that
+     * all nodes connected to the same Redis server share the second level and invalidate each other.
+     *
+     * @param connectionFactory the Redis connection factory configured by {@code spring.data.redis.*}
+     * @param listenerContainer the container delivering the cache invalidations
+     * @param properties        the bound {@link CacheProperties}
+     * @return the Redis shared tier
+     */
+    @Bean
+    @ConditionalOnProperty(name = "logistics.cache.shared-tier", havingValue = "redis")
+    public SharedCacheTier redisSharedCacheTier(RedisConnectionFactory connectionFactory,
+                                                RedisMessageListenerContainer listenerContainer,
+                                                CacheProperties properties) {
+        return new RedisSharedCacheTier(connectionFactory, listenerContainer, properties.sharedTimeToLive());
+    }
+
+    /**
+     * Binds the statistics of the local level of each {@link TwoLevelCache} to Micrometer, like Spring Boot
+     * does for plain Caffeine caches.
+     *
+     * @return the meter binder provider
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getNativeCache(), cache.getName(), tags);
+    }
+
+    /**
+     * Create a Caffeine {@link CacheManager} with the given specs and loaders.
+     * <p>
+     * A loader returning null for a key drops the entry instead of refreshing it.
+     *
+     * @param properties the specs of the caches
+     * @param loaders    the loader of each cache that has one, by cache name
+     * @return the cache manager
+     * @throws IllegalStateException if a cache refreshes after write but has no loader
+     */
+    static CaffeineCacheManager cacheManager(CacheProperties properties, Map<String, CacheLoader<Object, Object>> loaders) {
+        if (Objects.nonNull(properties.defaults().refreshAfterWrite())) {
+            throw new IllegalStateException("The default cache spec cannot refresh after write");
+        }
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setCaffeine(properties.defaults().toBuilder());
+        properties.specs().forEach((name, spec) -> {
+            CacheLoader<Object, Object> loader = loaders.get(name);
+            if (Objects.nonNull(spec.refreshAfterWrite()) && Objects.isNull(loader)) {
+                throw new IllegalStateException("Cache " + name + " refreshes after write but has no loader");
+            }
+            manager.registerCustomCache(name, Objects.isNull(loader) ? spec.toBuilder().build() :
+                    spec.toBuilder().build(loader));
+        });
+        return manager;
+    }
+
+    /**
+     * Run a loader on the primary database, see {@link ReplicaRoutingDataSource#onPrimary}.
+     */
+    private static CacheLoader<Object, Object> onPrimary(Function<Object, Object> load) {
+        return key -> ReplicaRoutingDataSource.onPrimary(() -> load.apply(key));
+    }
+}
@@ -0,0 +1,26 @@
+package dev.xxj.logistics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * CredentialCacheProperties bounds the cache of verified credentials of {@link CachingAuthenticationProvider},
+ * bound from {@code logistics.auth.credential-cache.*}.
+ *
+ * @param enabled          whether successful password checks are cached at all
+ * @param maximumSize      the maximum number of cached users
+ * @param expireAfterWrite how long a successful check is remembered
+ * @author Frank-Xiao
+ * @see SecurityConfig
+ */
+@ConfigurationProperties("logistics.auth.credential-cache")
+public record CredentialCacheProperties(Boolean enabled, Long maximumSize, Duration expireAfterWrite) {
+
+    public CredentialCacheProperties {
+        enabled = Objects.requireNonNullElse(enabled, true);
+        maximumSize = Objects.requireNonNullElse(maximumSize, 10_000L);
+        expireAfterWrite = Objects.requireNonNullElse(expireAfterWrite, Duration.ofMinutes(5));
+    }
+}
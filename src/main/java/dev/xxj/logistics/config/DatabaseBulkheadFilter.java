@@ -0,0 +1,127 @@
+package dev.xxj.logistics.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filter that limits how many requests are handled at once.
+ * <p>
+ * On platform threads the size of Tomcat's thread pool bounds the number of requests waiting for a database
+ * connection. On virtual threads every accepted connection gets its own thread, so thousands of requests
+ * could queue up inside the Hikari pool and fail together once its connection timeout expires. This filter
+ * makes them wait for a permit in a fair {@link Semaphore} instead, sized to the pool, and rejects a request
+ * with {@code 503 Service Unavailable} and a {@code Retry-After} header if no permit frees up in time.
+ * <p>
+ * A request that goes asynchronous, e.g. to stream an export or a bulk result, keeps its permit until its
+ * asynchronous processing completes, fails or times out, since it still uses the database after the request
+ * thread returned.
+ *
+ * @author Frank-Xiao
+ * @see VirtualThreadConfig
+ */
+public class DatabaseBulkheadFilter extends OncePerRequestFilter {
+    private final Semaphore permits;
+    private final Duration maxWait;
+
+    /**
+     * @param permits the number of requests handled at once
+     * @param maxWait how long a request waits for a permit
+     */
+    public DatabaseBulkheadFilter(int permits, Duration maxWait) {
+        this.permits = new Semaphore(permits, true);
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Get the number of free permits, e.g. to monitor the filter.
+     *
+     * @return the number of requests that can start at once without waiting
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Handle the request while holding a permit, or reject it if no permit is free in time.
+     *
+     * @param request     The request to process
+     * @param response    The response associated with the request
+     * @param filterChain Provides access to the next filter in the chain
+     * @throws ServletException If an exception has occurred that interferes with the filter's normal operation
+     * @throws IOException      If an I/O error occurs during the processing of the request
+     */
+    @SuppressWarnings("NullableProblems")
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, maxWait.toSeconds())));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        var permit = new Permit();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * The permit of one request, released once.
+     */
+    private final class Permit implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            /* the listeners are dropped when the request goes asynchronous again */
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
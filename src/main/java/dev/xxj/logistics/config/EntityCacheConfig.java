@@ -0,0 +1,139 @@
+package dev.xxj.logistics.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import dev.xxj.logistics.cache.EntityCacheInvalidator;
+import dev.xxj.logistics.cache.SharedCacheTier;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * EntityCacheConfig turns on the second-level and the query cache of Hibernate, held in Caffeine caches behind
+ * the JCache API.
+ * <p>
+ * The {@link dev.xxj.logistics.model.Good} and {@link dev.xxj.logistics.model.Warehouse} entities are read far
+ * more often than they change, e.g. to check them on every store into a warehouse, so they are cached in the
+ * {@value #GOOD_REGION} and {@value #WAREHOUSE_REGION} regions with the read-write strategy: a changed entity is
+ * locked in the cache until its transaction completes and then replaced, so no session reads a stale entity from
+ * the cache. The finders of the repositories marked as cacheable keep their results, the ids
+ * of the found entities, in {@value #QUERY_RESULTS_REGION}, and Hibernate drops them when a table they read is
+ * written, using the last write of each table kept in {@value #TIMESTAMPS_REGION}.
+ * <p>
+ * The regions are local to each node. With a {@link SharedCacheTier}, the {@link EntityCacheInvalidator} tells
+ * the other nodes about every committed change of a cached entity, so that they drop their copy and their query
+ * results. The {@link EntityCacheJpaDialect} keeps reads that may be served by a lagging replica from filling the
+ * regions, and makes the loaders of the shared cache tier read the primary instead of the regions.
+ * <p>
+ * Each region is created with the bounds of {@link EntityCacheProperties}, and Hibernate refuses to start if it
+ * needs a region that is not configured, so no region grows without a bound. Hit and miss counts of each region
+ * are published as {@code hibernate.second.level.cache.*} metrics if {@code hibernate.generate_statistics} is on.
+ *
+ * @author Frank-Xiao
+ * @see EntityCacheProperties
+ */
+@Configuration
+@EnableConfigurationProperties(EntityCacheProperties.class)
+public class EntityCacheConfig {
+    public static final String GOOD_REGION = "goodEntities";
+    public static final String WAREHOUSE_REGION = "warehouseEntities";
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    public static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /**
+     * Creates the JCache cache manager holding the regions, closed with the application context.
+     *
+     * @param properties the bound {@link EntityCacheProperties}
+     * @return the cache manager, with one cache per configured region
+     * @throws IllegalStateException if a region has no maximum size
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        /* every application context gets its own manager, the provider would share one per URI */
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("logistics-entity-cache-" + UUID.randomUUID()),
+                        EntityCacheConfig.class.getClassLoader());
+        properties.regions().forEach((name, region) -> {
+            if (Objects.isNull(region.maximumSize())) {
+                throw new IllegalStateException("Entity cache region " + name + " has no maximum size");
+            }
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(region.maximumSize()));
+            if (Objects.nonNull(region.expireAfterWrite())) {
+                configuration.setExpireAfterWrite(OptionalLong.of(region.expireAfterWrite().toNanos()));
+            }
+            configuration.setStatisticsEnabled(true);
+            manager.createCache(name, configuration);
+        });
+        return manager;
+    }
+
+    /**
+     * Points Hibernate at the regions of {@link #entityCacheManager(EntityCacheProperties)}.
+     *
+     * @param entityCacheManager the autowired JCache cache manager
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Creates the {@link EntityCacheInvalidator} if {@code logistics.cache.shared-tier} is configured.
+     *
+     * @param entityManagerFactory the autowired entity manager factory, whose second-level cache is kept in step
+     * @param sharedCacheTier      the shared tier the nodes broadcast their writes through
+     * @return the invalidator, registered with the session factory
+     */
+    @Bean
+    @ConditionalOnExpression("'${logistics.cache.shared-tier:none}' != 'none'")
+    public EntityCacheInvalidator entityCacheInvalidator(EntityManagerFactory entityManagerFactory,
+                                                         SharedCacheTier sharedCacheTier) {
+        return new EntityCacheInvalidator(entityManagerFactory.unwrap(SessionFactoryImplementor.class),
+                sharedCacheTier);
+    }
+
+    /**
+     * Makes the JPA transaction manager use the {@link EntityCacheJpaDialect}. The dialect is replaced once the
+     * manager is initialized, since it takes the one of the entity manager factory on initialization.
+     *
+     * @param routing the {@link ReplicaRoutingDataSource}, if read replicas are configured
+     * @return the post processor of the transaction manager
+     */
+    @Bean
+    public static BeanPostProcessor entityCacheDialectPostProcessor(ObjectProvider<ReplicaRoutingDataSource> routing) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaTransactionManager transactionManager) {
+                    boolean replicas = Objects.nonNull(routing.getIfAvailable());
+                    transactionManager.setJpaDialect(new EntityCacheJpaDialect(replicas));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package dev.xxj.logistics.config;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * EntityCacheJpaDialect sets the cache mode of the session of each read-only transaction from where its reads go.
+ * <p>
+ * Reads run by {@link ReplicaRoutingDataSource#onPrimary} fill the caches of the services, and through them the
+ * shared cache tier, so they must see every committed write: they skip the second-level cache and refresh it
+ * with what they load from the primary. When read replicas are configured, other read-only transactions may be
+ * served by a replica that lags behind; they still read the second-level cache, but do not add what they load,
+ * which would hide a newer write from every session of the node. The previous mode is restored when the
+ * transaction ends, for sessions that outlive it.
+ *
+ * @author Frank-Xiao
+ * @see EntityCacheConfig
+ */
+class EntityCacheJpaDialect extends HibernateJpaDialect {
+    private final boolean replicas;
+
+    /**
+     * @param replicas whether read-only transactions may be routed to read replicas
+     */
+    EntityCacheJpaDialect(boolean replicas) {
+        this.replicas = replicas;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        boolean onPrimary = ReplicaRoutingDataSource.isOnPrimary();
+        if (!onPrimary && !replicas) {
+            return transactionData;
+        }
+        /* the JPA properties, since Hibernate derives the mode of each find from them */
+        Map<String, Object> properties = entityManager.getProperties();
+        var restore = new CacheModeData(transactionData, entityManager,
+                properties.getOrDefault(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.USE),
+                properties.getOrDefault(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.USE));
+        entityManager.setProperty(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE,
+                onPrimary ? CacheRetrieveMode.BYPASS : CacheRetrieveMode.USE);
+        entityManager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE,
+                onPrimary ? CacheStoreMode.REFRESH : CacheStoreMode.BYPASS);
+        return restore;
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof CacheModeData data) {
+            data.entityManager().setProperty(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, data.retrieveMode());
+            data.entityManager().setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, data.storeMode());
+            super.cleanupTransaction(data.transactionData());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    /**
+     * The data of {@link HibernateJpaDialect} for a transaction, and the cache modes its entity manager had before.
+     */
+    private record CacheModeData(Object transactionData, EntityManager entityManager, Object retrieveMode,
+                                 Object storeMode) {
+    }
+}
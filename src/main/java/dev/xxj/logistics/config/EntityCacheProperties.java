@@ -0,0 +1,37 @@
+package dev.xxj.logistics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * EntityCacheProperties holds the bounds of the Hibernate second-level cache regions, bound from
+ * {@code logistics.entity-cache.*}. For example:
+ * <pre>
+ * logistics.entity-cache.regions.goodEntities.maximum-size=50000
+ * logistics.entity-cache.regions.goodEntities.expire-after-write=PT30M
+ * </pre>
+ * Every region Hibernate uses must be listed, see {@link EntityCacheConfig}.
+ *
+ * @param regions the bounds of each region, by region name
+ * @author Frank-Xiao
+ * @see EntityCacheConfig
+ */
+@ConfigurationProperties("logistics.entity-cache")
+public record EntityCacheProperties(Map<String, Region> regions) {
+
+    public EntityCacheProperties {
+        regions = Objects.requireNonNullElseGet(regions, Map::of);
+    }
+
+    /**
+     * The bounds of one region.
+     *
+     * @param maximumSize      the maximum number of entries, required
+     * @param expireAfterWrite how long an entry lives after it was written, null to keep it until it is evicted
+     */
+    public record Region(Long maximumSize, Duration expireAfterWrite) {
+    }
+}
@@ -0,0 +1,62 @@
+package dev.xxj.logistics.config;
+
+import dev.xxj.logistics.metrics.QueryCountFilter;
+import dev.xxj.logistics.metrics.QueryCounter;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * MetricsConfig adds the application metrics to the ones Spring Boot Actuator collects.
+ * <p>
+ * Every public method of the services annotated with {@link io.micrometer.core.annotation.Timed} is timed
+ * as {@code logistics.service}, the inventory operations are recorded by
+ * {@link dev.xxj.logistics.metrics.InventoryMetrics} and the warehouse levels by
+ * {@link dev.xxj.logistics.job.OccupancyMetricsJob}. All metrics, including the {@code cache.*} metrics of the
+ * caches, are scraped by Prometheus from {@code /actuator/prometheus}.
+ *
+ * @author Frank-Xiao
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Creates the aspect timing the methods annotated with {@link io.micrometer.core.annotation.Timed}.
+     *
+     * @param registry the autowired {@link MeterRegistry} bean
+     * @return the aspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    /**
+     * Installs the {@link QueryCounter} as the statement inspector of Hibernate.
+     *
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    /**
+     * Registers the {@link QueryCountFilter} around the other filters, so that the statements of the security
+     * and session filters are counted too.
+     *
+     * @param registry the autowired {@link MeterRegistry} bean
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(MeterRegistry registry) {
+        var registration = new FilterRegistrationBean<>(new QueryCountFilter(registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
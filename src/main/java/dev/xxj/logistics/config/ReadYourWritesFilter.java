@@ -0,0 +1,46 @@
+package dev.xxj.logistics.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Objects;
+
+/**
+ * Filter to bind the logged-in user of the request as the client of {@link ReplicaRoutingDataSource}.
+ * <p>
+ * It runs after the security filters, so the user is known, and unbinds the client when the request is done.
+ * Requests of anonymous users have no client and are never pinned to the primary.
+ *
+ * @author Frank-Xiao
+ * @see ReplicaConfig
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    /**
+     * Bind the current logged-in user while the rest of the chain processes the request.
+     *
+     * @param request     The request to process
+     * @param response    The response associated with the request
+     * @param filterChain Provides access to the next filter in the chain for this filter
+     *                    to pass the request and response to for further processing
+     * @throws ServletException If an exception has occurred that interferes with the filter's normal operation
+     * @throws IOException      If an I/O error occurs during the processing of the request
+     */
+    @SuppressWarnings("NullableProblems")
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Principal userPrincipal = request.getUserPrincipal();
+        ReplicaRoutingDataSource.bindClient(Objects.isNull(userPrincipal) ? null : userPrincipal.getName());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unbindClient();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dev.xxj.logistics.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ReplicaConfig sends the read-only transactions to the read replicas configured by
+ * {@code logistics.datasource.replicas[*]}, and everything else to the database of {@code spring.datasource.*}.
+ * <p>
+ * Without a replica the configuration backs off and Spring Boot creates the data source as usual. With replicas,
+ * the primary and one Hikari pool per replica, all configured by {@code spring.datasource.hikari.*}, are put
+ * behind a {@link ReplicaRoutingDataSource}, and the application uses it through a
+ * {@link LazyConnectionDataSourceProxy}. Only the transactions marked with
+ * {@code @Transactional(readOnly = true)}, including the finders of the Spring Data repositories, go to a
+ * replica.
+ *
+ * @author Frank-Xiao
+ * @see ReplicaProperties
+ * @see dev.xxj.logistics.job.ReplicaLagJob
+ */
+@Configuration
+@ConditionalOnProperty("logistics.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaConfig {
+    private static final String HIKARI = "spring.datasource.hikari";
+
+    /**
+     * Creates the data source routing between the primary and the replicas, which closes their pools on
+     * shutdown.
+     *
+     * @param dataSourceProperties the bound {@code spring.datasource.*} properties of the primary
+     * @param properties           the bound {@link ReplicaProperties}
+     * @param environment          the environment to bind the Hikari settings from
+     * @param registry             the autowired {@link MeterRegistry} bean, which records the pools
+     * @return the routing data source
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             ReplicaProperties properties,
+                                                             Environment environment,
+                                                             MeterRegistry registry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind(HIKARI, Bindable.ofInstance(primary));
+        primary.setPoolName(Objects.requireNonNullElse(primary.getPoolName(), "primary"));
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (ReplicaProperties.Replica replica : properties.replicas()) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.url())
+                    .username(replica.username())
+                    .password(replica.password())
+                    .build();
+            binder.bind(HIKARI, Bindable.ofInstance(pool));
+            pool.setPoolName("replica-" + replicas.size());
+            pool.setMaximumPoolSize(replica.maximumPoolSize());
+            pool.setReadOnly(true);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(pool);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, properties.maxLag(), properties.stickiness());
+    }
+
+    /**
+     * Creates the data source of the application, which takes a connection from the routing data source only
+     * when the first statement runs, after the transaction has been marked read-only or not.
+     *
+     * @param routing the autowired {@link ReplicaRoutingDataSource} bean
+     * @return the data source used by JPA, Flyway and the sessions
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Registers the {@link ReadYourWritesFilter} right after the security filters, so that it knows the user.
+     *
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        var registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
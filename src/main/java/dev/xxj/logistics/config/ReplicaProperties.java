@@ -0,0 +1,42 @@
+package dev.xxj.logistics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ReplicaProperties configures the read replicas of {@link ReplicaConfig}, bound from
+ * {@code logistics.datasource.*}.
+ *
+ * @param replicas   the read replicas of the database configured by {@code spring.datasource.*}
+ * @param maxLag     how far a replica may fall behind the primary and still serve reads
+ * @param stickiness how long the reads of a client go to the primary after its own last write
+ * @author Frank-Xiao
+ * @see ReplicaRoutingDataSource
+ */
+@ConfigurationProperties("logistics.datasource")
+public record ReplicaProperties(List<Replica> replicas, Duration maxLag, Duration stickiness) {
+
+    public ReplicaProperties {
+        replicas = Objects.requireNonNullElse(replicas, List.of());
+        maxLag = Objects.requireNonNullElse(maxLag, Duration.ofSeconds(5));
+        stickiness = Objects.requireNonNullElse(stickiness, Duration.ofSeconds(10));
+    }
+
+    /**
+     * The connection to one read replica.
+     *
+     * @param url             the JDBC url of the replica
+     * @param username        the user to connect as
+     * @param password        the password of the user
+     * @param maximumPoolSize the maximum size of the Hikari pool of the replica
+     */
+    public record Replica(String url, String username, String password, Integer maximumPoolSize) {
+
+        public Replica {
+            maximumPoolSize = Objects.requireNonNullElse(maximumPoolSize, 10);
+        }
+    }
+}
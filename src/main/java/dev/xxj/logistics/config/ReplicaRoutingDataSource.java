@@ -0,0 +1,201 @@
+package dev.xxj.logistics.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * ReplicaRoutingDataSource sends the connections of read-only transactions to a read replica and all other
+ * connections to the primary.
+ * <p>
+ * A replica only serves reads while its lag, last measured by {@link dev.xxj.logistics.job.ReplicaLagJob},
+ * is at most {@code maxLag}; the replicas that qualify take turns. The reads of a client go to the primary for
+ * {@code stickiness} after a read-write transaction of that client committed, so it always sees its own writes.
+ * The client of the current thread is bound by {@link ReadYourWritesFilter}; threads without a client, e.g.
+ * jobs, are never pinned. Reads run by {@link #onPrimary(Supplier)} go to the primary too.
+ * <p>
+ * The lookup happens when a connection is first used, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager asks for a
+ * connection before the transaction is marked read-only.
+ *
+ * @author Frank-Xiao
+ * @see ReplicaConfig
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    /**
+     * The lookup key of the primary, the replicas are looked up by their index.
+     */
+    public static final String PRIMARY = "primary";
+    /**
+     * The lag of a replica that has not been measured or cannot be reached.
+     */
+    public static final long UNKNOWN_LAG = Long.MAX_VALUE;
+    private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicLongArray lagMillis;
+    private final long maxLagMillis;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger turn = new AtomicInteger();
+
+    /**
+     * @param primary    the primary database
+     * @param replicas   the read replicas, closed with this data source if they are {@link Closeable}
+     * @param maxLag     how far a replica may fall behind and still serve reads
+     * @param stickiness how long the reads of a client go to the primary after its own last write
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag,
+                                    Duration stickiness) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            lagMillis.set(i, UNKNOWN_LAG);
+        }
+        this.maxLagMillis = maxLag.toMillis();
+        this.recentWriters = Caffeine.newBuilder().expireAfterWrite(stickiness).build();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Bind the client of the current thread, whose writes pin its reads to the primary.
+     *
+     * @param client the name of the client, null for none
+     */
+    public static void bindClient(String client) {
+        CLIENT.set(client);
+    }
+
+    public static void unbindClient() {
+        CLIENT.remove();
+    }
+
+    /**
+     * Run a read on the primary even if it is read-only, e.g. to load a shared cache entry that must not be
+     * older than the writes of any client. Does nothing without replicas.
+     *
+     * @param read the read, which must start its own transaction
+     * @return the result of the read
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean outer = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (Objects.isNull(outer)) {
+                PRIMARY_ONLY.remove();
+            }
+        }
+    }
+
+    /**
+     * @return whether the current thread runs a read through {@link #onPrimary(Supplier)}
+     */
+    public static boolean isOnPrimary() {
+        return Objects.nonNull(PRIMARY_ONLY.get());
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @param replica the index of the replica
+     * @return the last measured lag of the replica in milliseconds, {@link #UNKNOWN_LAG} if unknown
+     */
+    public long getLagMillis(int replica) {
+        return lagMillis.get(replica);
+    }
+
+    /**
+     * @param replica the index of the replica
+     * @param lag     the measured lag in milliseconds, {@link #UNKNOWN_LAG} if it cannot be measured
+     */
+    public void setLagMillis(int replica, long lag) {
+        long old = lagMillis.getAndSet(replica, lag);
+        if ((old <= maxLagMillis) != (lag <= maxLagMillis)) {
+            log.warn("Replica {} {} reads, its lag is {} ms", replica,
+                    lag <= maxLagMillis ? "serves" : "no longer serves", lag == UNKNOWN_LAG ? "unknown" : lag);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String client = CLIENT.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWrite(client);
+            return PRIMARY;
+        }
+        if (Objects.nonNull(PRIMARY_ONLY.get())
+                || Objects.nonNull(client) && Objects.nonNull(recentWriters.getIfPresent(client))) {
+            return PRIMARY;
+        }
+        int count = replicas.size();
+        int first = Math.floorMod(turn.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            int replica = (first + i) % count;
+            if (lagMillis.get(replica) <= maxLagMillis) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        List<DataSource> all = new ArrayList<>(replicas);
+        all.add(primary);
+        for (DataSource dataSource : all) {
+            if (dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Pin the client to the primary once the current read-write transaction commits. Connections used without
+     * a transaction only read in this application and do not pin.
+     */
+    private void rememberWrite(String client) {
+        if (Objects.isNull(client) || !TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        });
+    }
+}
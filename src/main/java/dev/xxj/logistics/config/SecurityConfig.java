@@ -1,20 +1,32 @@
 package dev.xxj.logistics.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.annotation.web.configurers.AuthorizeHttpRequestsConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 
 import javax.sql.DataSource;
+import java.util.Objects;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
@@ -23,11 +35,17 @@ import static org.springframework.security.config.Customizer.withDefaults;
  * a {@link UserDetailsService} bean that provides user details for authentication, a
  * {@link PasswordEncoder} bean that encodes passwords, and a {@link SecurityFilterChain} bean
  * that configures endpoint security for the application.
+ * <p>
+ * Browsers log in with a form and keep a JDBC session. API clients can exchange their credentials for a
+ * signed access token instead, which authenticates their requests without touching the session tables.
+ * Clients that keep sending HTTP basic credentials have their password checked with BCrypt only once in a
+ * while, see {@link CachingAuthenticationProvider}.
  *
  * @author Frank-Xiao
  */
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(CredentialCacheProperties.class)
 public class SecurityConfig {
 
     /**
@@ -81,12 +99,68 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Creates the {@link AuthenticationProvider} that checks the passwords of form login and http basic
+     * authentication against the {@link UserDetailsService} bean.
+     * <p>
+     * Unless {@code logistics.auth.credential-cache.enabled} is false, successful checks are remembered by a
+     * {@link CachingAuthenticationProvider}, so that repeated requests with the same credentials skip BCrypt.
+     *
+     * @param userDetailsService the autowired {@link UserDetailsService} bean
+     * @param encoder            the autowired {@link PasswordEncoder} bean
+     * @param properties         the bounds of the cache of verified credentials
+     * @param registry           the autowired {@link MeterRegistry} bean that receives the cache metrics
+     * @return the {@link AuthenticationProvider} used by the authentication manager
+     */
+    @Bean
+    AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService, PasswordEncoder encoder,
+                                                  CredentialCacheProperties properties, MeterRegistry registry) {
+        if (!properties.enabled()) {
+            DaoAuthenticationProvider provider = new DaoAuthenticationProvider(encoder);
+            provider.setUserDetailsService(userDetailsService);
+            return provider;
+        }
+        return new CachingAuthenticationProvider(userDetailsService, encoder, properties, registry);
+    }
+
+    /**
+     * Creates the {@link SecurityFilterChain} of API clients that send an access token.
+     * <p>
+     * It handles every request with an {@code Authorization: Bearer} header, before the chain of
+     * {@link #securityFilterChain(HttpSecurity)}. The token is verified with the key of {@link TokenConfig} and
+     * the authentication lives only as long as the request, so these requests neither read nor write the
+     * session tables. The same authorization rules apply, except that a token cannot be exchanged for a new one.
+     *
+     * @param http       the autowired {@link HttpSecurity} bean to be configured
+     * @param jwtDecoder the autowired {@link JwtDecoder} bean that verifies the tokens
+     * @return a configured {@link SecurityFilterChain} bean for requests with an access token
+     * @throws Exception if an error occurs while configuring the {@link HttpSecurity} bean
+     */
+    @Bean
+    @Order(1)
+    SecurityFilterChain tokenFilterChain(HttpSecurity http, JwtDecoder jwtDecoder) throws Exception {
+        http.securityMatcher(request -> Objects.requireNonNullElse(request.getHeader(HttpHeaders.AUTHORIZATION), "")
+                        .startsWith("Bearer "))
+                .authorizeHttpRequests(authorizeRequests -> authorizeRequests(
+                        authorizeRequests.requestMatchers("/auth/**").denyAll()))
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context
+                        .securityContextRepository(new RequestAttributeSecurityContextRepository()))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                .oauth2ResourceServer(resourceServer -> resourceServer.jwt(jwt -> jwt
+                        .decoder(jwtDecoder)
+                        .jwtAuthenticationConverter(TokenConfig.authenticationConverter())));
+        return http.build();
+    }
+
     /**
      * Creates a {@link SecurityFilterChain} bean that configures endpoint security for the application.
      * <p>
      * This bean configures the following security settings:
      * <ul>
-     *     <li>Important request types like POST, PUT, DELETE, PATCH require the role "ADMIN"</li>
+     *     <li>Important request types like POST, PUT, DELETE, PATCH require the role "ADMIN",
+     *     except for requesting an access token at {@code POST /auth/token}</li>
      *     <li>All requests requires authentication</li>
      *     <li>CSRF protection is disabled</li>
      *     <li>Form login and http basic authentication is enabled with default settings</li>
@@ -98,17 +172,21 @@ public class SecurityConfig {
      */
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http.authorizeHttpRequests(authorizeRequests ->
-                        authorizeRequests
-                                .requestMatchers(HttpMethod.POST).hasRole("ADMIN")
-                                .requestMatchers(HttpMethod.PUT).hasRole("ADMIN")
-                                .requestMatchers(HttpMethod.DELETE).hasRole("ADMIN")
-                                .requestMatchers(HttpMethod.PATCH).hasRole("ADMIN")
-                                .anyRequest().authenticated()
-                )
+        http.authorizeHttpRequests(SecurityConfig::authorizeRequests)
                 .csrf(AbstractHttpConfigurer::disable)
                 .formLogin(withDefaults())
                 .httpBasic(withDefaults());
         return http.build();
     }
+
+    private static void authorizeRequests(
+            AuthorizeHttpRequestsConfigurer<HttpSecurity>.AuthorizationManagerRequestMatcherRegistry authorizeRequests) {
+        authorizeRequests
+                .requestMatchers(HttpMethod.POST, "/auth/token").authenticated()
+                .requestMatchers(HttpMethod.POST).hasRole("ADMIN")
+                .requestMatchers(HttpMethod.PUT).hasRole("ADMIN")
+                .requestMatchers(HttpMethod.DELETE).hasRole("ADMIN")
+                .requestMatchers(HttpMethod.PATCH).hasRole("ADMIN")
+                .anyRequest().authenticated();
+    }
 }
@@ -0,0 +1,91 @@
+package dev.xxj.logistics.config;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * TokenConfig creates the beans that sign and verify the access tokens of API clients.
+ * <p>
+ * A token is a JWT signed with HMAC-SHA256 that carries the name and the authorities of its user. Verifying it
+ * needs only the shared key, so requests with a token are authenticated without reading or writing the session
+ * tables, see {@link SecurityConfig}.
+ *
+ * @author Frank-Xiao
+ * @see TokenProperties
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(TokenProperties.class)
+public class TokenConfig {
+    /**
+     * The claim holding the authorities of the user, e.g. {@code ROLE_ADMIN}.
+     */
+    public static final String AUTHORITIES_CLAIM = "authorities";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+
+    /**
+     * Creates the key shared by the token encoder and decoder.
+     *
+     * @param properties the bound {@link TokenProperties}
+     * @return the configured key, or a random one if none is configured
+     * @throws IllegalStateException if the configured key is shorter than 32 bytes
+     */
+    @Bean
+    SecretKey tokenKey(TokenProperties properties) {
+        if (Objects.isNull(properties.secret()) || properties.secret().isBlank()) {
+            log.warn("logistics.auth.token.secret is not set, tokens are signed with a random key of this node");
+            byte[] key = new byte[MIN_KEY_BYTES];
+            new SecureRandom().nextBytes(key);
+            return new SecretKeySpec(key, ALGORITHM);
+        }
+        byte[] key = Base64.getDecoder().decode(properties.secret());
+        if (key.length < MIN_KEY_BYTES) {
+            throw new IllegalStateException("logistics.auth.token.secret must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        return new SecretKeySpec(key, ALGORITHM);
+    }
+
+    @Bean
+    JwtEncoder jwtEncoder(SecretKey tokenKey) {
+        return new NimbusJwtEncoder(new ImmutableSecret<>(tokenKey));
+    }
+
+    @Bean
+    JwtDecoder jwtDecoder(SecretKey tokenKey) {
+        return NimbusJwtDecoder.withSecretKey(tokenKey).macAlgorithm(MacAlgorithm.HS256).build();
+    }
+
+    /**
+     * Creates the converter that turns a verified token into an authentication with the authorities of its claim.
+     *
+     * @return the converter
+     */
+    static Converter<Jwt, AbstractAuthenticationToken> authenticationConverter() {
+        var authorities = new JwtGrantedAuthoritiesConverter();
+        authorities.setAuthoritiesClaimName(AUTHORITIES_CLAIM);
+        authorities.setAuthorityPrefix("");
+        var converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(authorities);
+        return converter;
+    }
+}
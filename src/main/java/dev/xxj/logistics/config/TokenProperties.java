@@ -0,0 +1,29 @@
+package dev.xxj.logistics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * TokenProperties configures the signed access tokens of API clients, bound from {@code logistics.auth.token.*}.
+ * <p>
+ * All nodes must share the same secret to accept each other's tokens, e.g.
+ * <pre>
+ * logistics.auth.token.secret=${LOGISTICS_TOKEN_SECRET}
+ * logistics.auth.token.time-to-live=PT1H
+ * </pre>
+ *
+ * @param secret     the Base64 encoded HMAC-SHA256 key of at least 32 bytes; if blank, a random key is generated
+ *                   at startup, so tokens only work on the node that issued them until it restarts
+ * @param timeToLive how long a token is valid after it was issued
+ * @author Frank-Xiao
+ * @see TokenConfig
+ */
+@ConfigurationProperties("logistics.auth.token")
+public record TokenProperties(String secret, Duration timeToLive) {
+
+    public TokenProperties {
+        timeToLive = Objects.requireNonNullElse(timeToLive, Duration.ofHours(1));
+    }
+}
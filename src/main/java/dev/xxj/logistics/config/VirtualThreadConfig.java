@@ -0,0 +1,51 @@
+package dev.xxj.logistics.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.Objects;
+
+/**
+ * VirtualThreadConfig guards the database when requests run on virtual threads.
+ * <p>
+ * Virtual threads are switched on with {@code spring.threads.virtual.enabled=true}, which makes Spring Boot
+ * run Tomcat's request handling, the {@code @Async} task executor and the scheduler on virtual threads.
+ * Blocking on JDBC then no longer ties up a scarce platform thread, but nothing bounds the number of requests
+ * competing for connections any more, so this configuration installs a {@link DatabaseBulkheadFilter} in
+ * front of all other filters, including the JDBC session filter. Set {@code logistics.bulkhead.enabled=false}
+ * to go without it.
+ *
+ * @author Frank-Xiao
+ * @see BulkheadProperties
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class VirtualThreadConfig {
+
+    /**
+     * Registers the bulkhead in front of the other filters of every request.
+     *
+     * @param properties the bound {@link BulkheadProperties}
+     * @param poolSize   the maximum size of the Hikari pool, the default number of permits
+     * @return the filter registration, disabled if {@code logistics.bulkhead.enabled} is false
+     */
+    @Bean
+    public FilterRegistrationBean<DatabaseBulkheadFilter> databaseBulkheadFilter(
+            BulkheadProperties properties,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        var filter = new DatabaseBulkheadFilter(Objects.requireNonNullElse(properties.permits(), poolSize),
+                properties.maxWait());
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registration.setEnabled(properties.enabled());
+        return registration;
+    }
+
+}
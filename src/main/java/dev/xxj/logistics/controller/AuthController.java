@@ -0,0 +1,34 @@
+package dev.xxj.logistics.controller;
+
+import dev.xxj.logistics.model.AccessToken;
+import dev.xxj.logistics.service.TokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * AuthController class handles the requests of API clients for access tokens.
+ * <p>
+ * A client authenticates once, e.g. with HTTP basic authentication, and sends the returned token as
+ * {@code Authorization: Bearer <token>} with its following requests, which then do not use a session.
+ *
+ * @author Frank-Xiao
+ */
+@RestController
+@RequestMapping("/auth")
+public class AuthController {
+    private final TokenService tokenService;
+
+    @Autowired
+    public AuthController(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @PostMapping("/token")
+    public ResponseEntity<AccessToken> issueToken(Authentication authentication) {
+        return ResponseEntity.ok(tokenService.issue(authentication));
+    }
+}
@@ -0,0 +1,43 @@
+package dev.xxj.logistics.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * ConditionalGet answers the polled GET requests of the catalogue conditionally.
+ * <p>
+ * A client that sends the ETag or the Last-Modified time of its copy as If-None-Match or If-Modified-Since gets
+ * {@code 304 Not Modified} while the resource is unchanged, and the body is neither loaded nor serialized. The
+ * responses may be stored by the client as long as it revalidates them on every use, instead of the
+ * {@code no-store} Spring Security sends by default.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.model.CollectionVersion
+ */
+final class ConditionalGet {
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Answer a GET request with the body, or with 304 if the client's copy is current.
+     *
+     * @param request      the request, whose conditional headers are checked
+     * @param etag         the current ETag of the resource
+     * @param lastModified the current Last-Modified time of the resource in milliseconds, or -1 for none
+     * @param body         loads the body, only called if it is sent
+     * @param <T>          the type of the body
+     * @return 200 with the body, or 304 without it, both with the ETag and Last-Modified headers
+     */
+    static <T> ResponseEntity<T> respond(WebRequest request, String etag, long lastModified, Supplier<T> body) {
+        if (request.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(body.get());
+    }
+}
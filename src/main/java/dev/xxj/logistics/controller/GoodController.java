@@ -1,31 +1,49 @@
 package dev.xxj.logistics.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.xxj.logistics.model.*;
+import dev.xxj.logistics.service.BulkInventoryService;
+import dev.xxj.logistics.service.GoodSearchService;
 import dev.xxj.logistics.service.GoodService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * GoodController  class is a controller class that handles all the requests related to goods.
  * <p>
  * It provides the following functionalities:
- * 1. Get all goods
+ * 1. Get all goods, or one page of them with keyset pagination, answering polls conditionally
  * 2. Update a good
  * 3. Add a good
  * 4. Delete a good
  * 5. Get a good by id
- * 6. Get a good by name
+ * 6. Get a good by name, or search goods by a part of their name
  * 7. Get locations of a good
  * 8. Get total amount of a good
  * 9. Move a good
  * 10. Store a good
  * 11. Retrieve a good
  * 12. Get good storages
+ * 13. Store, retrieve and move goods in bulk, from a JSON array or an NDJSON stream
  *
  * @author Frank-Xiao
  */
@@ -33,21 +51,46 @@ import java.util.UUID;
 @RequestMapping("/good")
 public class GoodController {
     private final GoodService goodService;
+    private final BulkInventoryService bulkService;
+    private final GoodSearchService searchService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public GoodController(GoodService goodService) {
+    public GoodController(GoodService goodService,
+                          BulkInventoryService bulkService,
+                          GoodSearchService searchService,
+                          ObjectMapper objectMapper) {
         this.goodService = goodService;
+        this.bulkService = bulkService;
+        this.searchService = searchService;
+        this.objectMapper = objectMapper;
     }
 
 
     @GetMapping
-    public ResponseEntity<List<Good>> getAllGoods() {
-        return ResponseEntity.ok(goodService.getAllGoods());
+    public ResponseEntity<List<Good>> getAllGoods(WebRequest request) {
+        CollectionVersion version = goodService.getGoodsVersion();
+        return ConditionalGet.respond(request, version.tag(), version.lastModifiedMillis(), goodService::getAllGoods);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<GoodSummary>> getGoodPage(@RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) String sort,
+                                                               @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(goodService.getGoodPage(cursor, sort, size));
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PutMapping
     public ResponseEntity<Good> updateGood(@RequestBody Good good) {
-        return ResponseEntity.accepted().body(goodService.updateGood(good));
+        try {
+            return ResponseEntity.accepted().body(goodService.updateGood(good));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     @PostMapping
@@ -62,8 +105,14 @@ public class GoodController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Good> getGoodById(@PathVariable UUID id) {
-        return ResponseEntity.ok(goodService.getGoodById(id));
+    public ResponseEntity<Good> getGoodById(@PathVariable UUID id, WebRequest request) {
+        /* read before the good, so a good changed in between is not sent as modified at the old time */
+        CollectionVersion goods = goodService.getGoodsVersion();
+        Good good = goodService.getGoodById(id);
+        if (Objects.isNull(good) || Objects.isNull(good.getVersion())) {
+            return ResponseEntity.ok(good);
+        }
+        return ConditionalGet.respond(request, good.getVersion().toString(), goods.lastModifiedMillis(), () -> good);
     }
 
     @GetMapping("/name/{name}")
@@ -71,8 +120,19 @@ public class GoodController {
         return ResponseEntity.ok(goodService.getGoodByName(name));
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<GoodMatch>> searchGoods(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "0") int page,
+                                                       @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(searchService.search(q, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/locations/{id}")
-    public ResponseEntity<List<Warehouse>> getLocations(@PathVariable UUID id) {
+    public ResponseEntity<List<WarehouseSummary>> getLocations(@PathVariable UUID id) {
         return ResponseEntity.ok(goodService.getLocations(id));
     }
 
@@ -89,13 +149,13 @@ public class GoodController {
 
     @PostMapping("/store")
     public ResponseEntity<String> storeGood(@RequestBody GoodStorageDto dto) {
-        GoodStorage goodStorage;
+        GoodStorageDto stored;
         try {
-            goodStorage = goodService.storeGood(dto);
+            stored = goodService.storeGood(dto);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
-        return ResponseEntity.ok("Success stored to " + goodStorage);
+        return ResponseEntity.ok("Success stored " + stored);
     }
 
     @PostMapping("/retrieve")
@@ -112,4 +172,59 @@ public class GoodController {
     public ResponseEntity<List<GoodStorage>> getGoodStorages(@PathVariable UUID goodId) {
         return ResponseEntity.ok(goodService.getGoodStorages(goodId));
     }
+
+    @PostMapping(value = "/bulk/store", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult>> storeGoods(@RequestBody List<GoodStorageDto> dtos) {
+        return ResponseEntity.ok(bulkService.storeAll(dtos));
+    }
+
+    @PostMapping(value = "/bulk/store", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> storeGoods(InputStream body) {
+        return ResponseEntity.ok(ndjson(body, GoodStorageDto.class, bulkService::storeAll));
+    }
+
+    @PostMapping(value = "/bulk/retrieve", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult>> retrieveGoods(@RequestBody List<GoodStorageDto> dtos) {
+        return ResponseEntity.ok(bulkService.retrieveAll(dtos));
+    }
+
+    @PostMapping(value = "/bulk/retrieve", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> retrieveGoods(InputStream body) {
+        return ResponseEntity.ok(ndjson(body, GoodStorageDto.class, bulkService::retrieveAll));
+    }
+
+    @PostMapping(value = "/bulk/move", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult>> moveGoods(@RequestBody List<MoveDTO> dtos) {
+        return ResponseEntity.ok(bulkService.moveAll(dtos));
+    }
+
+    @PostMapping(value = "/bulk/move", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> moveGoods(InputStream body) {
+        return ResponseEntity.ok(ndjson(body, MoveDTO.class, bulkService::moveAll));
+    }
+
+    /**
+     * Read the items of an NDJSON request one by one and write one NDJSON result line per item,
+     * so neither the request nor the response is ever held in memory as a whole.
+     */
+    private <T> StreamingResponseBody ndjson(InputStream body, Class<T> type,
+                                             BiConsumer<Iterator<T>, Consumer<BulkItemResult>> operation) {
+        return out -> {
+            try (MappingIterator<T> items = objectMapper.readerFor(type).readValues(body)) {
+                operation.accept(items, result -> writeLine(out, result));
+            }
+        };
+    }
+
+    private void writeLine(OutputStream out, BulkItemResult result) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package dev.xxj.logistics.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.model.ImportFormat;
+import dev.xxj.logistics.model.InventoryBalance;
+import dev.xxj.logistics.model.ImportStatus;
+import dev.xxj.logistics.model.InventoryRow;
+import dev.xxj.logistics.service.ImportService;
+import dev.xxj.logistics.service.InventoryService;
+import dev.xxj.logistics.service.LedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * InventoryController class handles the requests that concern the inventory as a whole.
+ * <p>
+ * It provides the following functionalities:
+ * 1. Export every storage with its good and warehouse, as NDJSON or CSV
+ * 2. Import goods, warehouses and stock levels from a CSV or NDJSON upload in the background
+ * 3. Get the progress and the rejected rows of an import
+ * 4. Rebuild the inventory as it was at a point in time from the ledger
+ *
+ * @author Frank-Xiao
+ */
+@RestController
+@RequestMapping("/inventory")
+public class InventoryController {
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final InventoryService inventoryService;
+    private final ImportService importService;
+    private final LedgerService ledgerService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public InventoryController(InventoryService inventoryService,
+                               ImportService importService,
+                               LedgerService ledgerService,
+                               ObjectMapper objectMapper) {
+        this.inventoryService = inventoryService;
+        this.importService = importService;
+        this.ledgerService = ledgerService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Export the whole inventory, one line per storage.
+     * <p>
+     * The rows are written while they are read from the database, so the response starts right away and the
+     * memory used does not depend on the size of the inventory.
+     *
+     * @param format {@code ndjson} for one JSON object per line, or {@code csv} for comma separated values
+     *               with a header line
+     * @return the streamed export, or 400 if the format is unknown
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        return switch (format) {
+            case "ndjson" -> ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(this::writeNdjson);
+            case "csv" -> ResponseEntity.ok()
+                    .contentType(TEXT_CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"inventory.csv\"")
+                    .body(this::writeCsv);
+            default -> ResponseEntity.badRequest().build();
+        };
+    }
+
+    /**
+     * Upload goods, warehouses and stock levels to import.
+     * <p>
+     * Every row names a good, a warehouse or both, see {@link dev.xxj.logistics.model.ImportRow}. The upload is
+     * saved and imported in the background, so this returns as soon as the body is received.
+     *
+     * @param contentType {@code text/csv} with a header line, or {@code application/x-ndjson}
+     * @param body        the rows
+     * @return 202 with the status of the queued job and its location, or 400 if the upload cannot be saved
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportStatus> importInventory(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                        InputStream body) {
+        ImportFormat format = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType)) ?
+                ImportFormat.CSV : ImportFormat.NDJSON;
+        try {
+            ImportStatus status = importService.submit(body, format);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/inventory/import/" + status.id()))
+                    .body(status);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Get the progress of an import.
+     *
+     * @param id the id of the import
+     * @return the status, or 404 if there is no such import
+     */
+    @GetMapping("/import/{id}")
+    public ResponseEntity<ImportStatus> getImportStatus(@PathVariable UUID id) {
+        return ResponseEntity.of(importService.getStatus(id));
+    }
+
+    /**
+     * Get the rejected rows of an import, as CSV with the row number and the reason of every rejected row.
+     *
+     * @param id the id of the import
+     * @return the rows rejected so far, or 404 if there is no such import
+     */
+    @GetMapping("/import/{id}/errors")
+    public ResponseEntity<Resource> getImportErrors(@PathVariable UUID id) {
+        return importService.getErrors(id)
+                .<ResponseEntity<Resource>>map(errors -> ResponseEntity.ok()
+                        .contentType(TEXT_CSV)
+                        .body(new FileSystemResource(errors)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the amount of every good in every warehouse at a point in time.
+     *
+     * @param at an ISO-8601 instant, e.g. {@code 2024-05-01T00:00:00Z}, now if omitted
+     * @return the positive balances at that time, sorted by warehouse id and good id
+     */
+    @GetMapping("/balances")
+    public ResponseEntity<List<InventoryBalance>> getBalances(@RequestParam(required = false) Instant at) {
+        return ResponseEntity.ok(ledgerService.getBalancesAt(Objects.isNull(at) ? Instant.now() : at));
+    }
+
+    private void writeNdjson(OutputStream body) throws IOException {
+        var out = new BufferedOutputStream(body, BUFFER_SIZE);
+        /* send the headers before the query runs */
+        body.flush();
+        inventoryService.export(row -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    private void writeCsv(OutputStream body) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), BUFFER_SIZE);
+        out.write("good_id,good_name,warehouse_id,warehouse_name,amount\n");
+        out.flush();
+        inventoryService.export(row -> {
+            try {
+                out.write(csvLine(row));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    private static String csvLine(InventoryRow row) {
+        return row.goodId() + "," + csvField(row.goodName()) + "," +
+                row.warehouseId() + "," + csvField(row.warehouseName()) + "," + row.amount() + "\n";
+    }
+
+    /**
+     * Quote a field if it contains a separator, a quote or a line break, doubling the quotes inside.
+     */
+    private static String csvField(String value) {
+        if (Objects.isNull(value)) {
+            return "";
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
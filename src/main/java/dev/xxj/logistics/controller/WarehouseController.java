@@ -1,11 +1,17 @@
 package dev.xxj.logistics.controller;
 
+import dev.xxj.logistics.model.CollectionVersion;
+import dev.xxj.logistics.model.CursorPage;
 import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseSummary;
 import dev.xxj.logistics.service.WarehouseService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Objects;
@@ -16,7 +22,7 @@ import java.util.UUID;
  * <p>
  * It provides the following functionalities:
  * 1. Add a warehouse
- * 2. Get all warehouses
+ * 2. Get all warehouses, or one page of them with keyset pagination, answering polls conditionally
  * 3. Get a warehouse by id
  * 4. Delete a warehouse
  * 5. Update a warehouse
@@ -44,14 +50,35 @@ public class WarehouseController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Warehouse>> getAllWarehouses() {
-        return ResponseEntity.ok(service.getAllWarehouses());
+    public ResponseEntity<List<Warehouse>> getAllWarehouses(WebRequest request) {
+        CollectionVersion version = service.getWarehousesVersion();
+        return ConditionalGet.respond(request, version.tag(), version.lastModifiedMillis(), service::getAllWarehouses);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<WarehouseSummary>> getWarehousePage(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) String sort,
+                                                                         @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(service.getWarehousePage(cursor, sort, size));
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Warehouse> getWarehouseById(@PathVariable UUID id) {
+    public ResponseEntity<Warehouse> getWarehouseById(@PathVariable UUID id, WebRequest request) {
+        /* read before the warehouse, so a warehouse changed in between is not sent as modified at the old time */
+        CollectionVersion warehouses = service.getWarehousesVersion();
         Warehouse warehouse = service.getWarehouseById(id);
-        return Objects.isNull(warehouse) ? ResponseEntity.notFound().build() : ResponseEntity.ok(warehouse);
+        if (Objects.isNull(warehouse)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (Objects.isNull(warehouse.getVersion())) {
+            return ResponseEntity.ok(warehouse);
+        }
+        return ConditionalGet.respond(request, warehouse.getVersion().toString(), warehouses.lastModifiedMillis(),
+                () -> warehouse);
     }
 
     @DeleteMapping("/{id}")
@@ -62,7 +89,12 @@ public class WarehouseController {
 
     @PutMapping
     public ResponseEntity<Warehouse> updateWarehouse(@RequestBody Warehouse warehouse) {
-        var updated = service.updateWarehouse(warehouse);
+        Warehouse updated;
+        try {
+            updated = service.updateWarehouse(warehouse);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         return Objects.nonNull(updated) ? ResponseEntity.ok(updated) : ResponseEntity.badRequest().build();
     }
 
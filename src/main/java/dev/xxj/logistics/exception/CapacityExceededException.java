@@ -0,0 +1,13 @@
+package dev.xxj.logistics.exception;
+
+/**
+ * CapacityExceededException is thrown when storing goods would exceed the maximum amount of a warehouse.
+ *
+ * @author Frank-Xiao
+ * @see InventoryException
+ */
+public class CapacityExceededException extends InventoryException {
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package dev.xxj.logistics.exception;
+
+/**
+ * InsufficientStockException is thrown when a warehouse does not store enough goods of one kind
+ * to retrieve or move the requested amount.
+ *
+ * @author Frank-Xiao
+ * @see InventoryException
+ */
+public class InsufficientStockException extends InventoryException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package dev.xxj.logistics.exception;
+
+/**
+ * InventoryException is thrown when a store, retrieve or move operation is rejected.
+ * <p>
+ * It extends {@link IllegalArgumentException} because the request itself is invalid for the current
+ * inventory, so callers that already handle {@link IllegalArgumentException} keep working. Throwing it
+ * out of a transactional method rolls back every change made by the operation.
+ *
+ * @author Frank-Xiao
+ */
+public class InventoryException extends IllegalArgumentException {
+    public InventoryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,53 @@
+package dev.xxj.logistics.job;
+
+import dev.xxj.logistics.service.LedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * LedgerSnapshotJob snapshots the inventory ledger with the delay configured by
+ * {@code logistics.ledger.snapshot-interval}, so rebuilding a past state only replays the movements since the
+ * snapshot before it.
+ * <p>
+ * A movement gets its time before its transaction commits, so a snapshot is taken as of
+ * {@code logistics.ledger.settle-time} ago. A transaction that appends movements is rolled back if it does not
+ * commit within {@code logistics.ledger.commit-timeout} of its first one, so every transaction that appended
+ * earlier movements has committed by then, as long as the clocks of the nodes differ by less than the rest of
+ * the settle time. Before each snapshot, the previous one is checked against the stored balances, which logs
+ * any movement that was still lost.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.model.InventorySnapshot
+ */
+@Component
+public class LedgerSnapshotJob {
+    private final LedgerService ledgerService;
+    private final Duration settleTime;
+
+    /**
+     * @throws IllegalStateException if the settle time is not longer than the commit timeout
+     */
+    @Autowired
+    public LedgerSnapshotJob(LedgerService ledgerService,
+                             @Value("${logistics.ledger.settle-time:PT1M}") Duration settleTime,
+                             @Value("${logistics.ledger.commit-timeout:PT20S}") Duration commitTimeout) {
+        if (settleTime.compareTo(commitTimeout) <= 0) {
+            throw new IllegalStateException("logistics.ledger.settle-time " + settleTime
+                    + " must be longer than logistics.ledger.commit-timeout " + commitTimeout);
+        }
+        this.ledgerService = ledgerService;
+        this.settleTime = settleTime;
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.ledger.snapshot-interval:PT1H}",
+            initialDelayString = "${logistics.ledger.snapshot-interval:PT1H}")
+    public void snapshot() {
+        ledgerService.checkLatestSnapshot();
+        ledgerService.snapshot(Instant.now().minus(settleTime));
+    }
+}
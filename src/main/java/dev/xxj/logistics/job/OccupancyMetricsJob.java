@@ -0,0 +1,70 @@
+package dev.xxj.logistics.job;
+
+import dev.xxj.logistics.model.WarehouseLevel;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * OccupancyMetricsJob publishes the occupied and the maximum amount of every warehouse as the
+ * {@value #OCCUPANCY} and {@value #CAPACITY} gauges, tagged with the id and the name of the {@code warehouse}.
+ * <p>
+ * Reading every counter on each scrape would put the load of the scrapers on the database, so the gauges are
+ * refreshed with one query when the application is ready and then with the delay configured by
+ * {@code logistics.metrics.occupancy-refresh}. Deleted warehouses disappear from the gauges on the next refresh.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.model.WarehouseOccupancy
+ */
+@Component
+public class OccupancyMetricsJob {
+    public static final String OCCUPANCY = "logistics.warehouse.occupancy";
+    public static final String CAPACITY = "logistics.warehouse.capacity";
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final MultiGauge occupancy;
+    private final MultiGauge capacity;
+
+    @Autowired
+    public OccupancyMetricsJob(WarehouseOccupancyRepository occupancyRepo, MeterRegistry registry) {
+        this.occupancyRepo = occupancyRepo;
+        this.occupancy = MultiGauge.builder(OCCUPANCY)
+                .description("Amount of goods stored in the warehouse")
+                .register(registry);
+        this.capacity = MultiGauge.builder(CAPACITY)
+                .description("Maximum amount of goods the warehouse can store")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Read the levels of all warehouses and replace the gauges with them.
+     */
+    @Scheduled(fixedDelayString = "${logistics.metrics.occupancy-refresh:PT30S}",
+            initialDelayString = "${logistics.metrics.occupancy-refresh:PT30S}")
+    public void refresh() {
+        List<WarehouseLevel> levels = occupancyRepo.findAllLevels();
+        occupancy.register(rows(levels, WarehouseLevel::amount), true);
+        capacity.register(rows(levels, WarehouseLevel::maxAmount), true);
+    }
+
+    private static List<MultiGauge.Row<?>> rows(List<WarehouseLevel> levels, Function<WarehouseLevel, Long> value) {
+        return levels.stream()
+                .<MultiGauge.Row<?>>map(level -> MultiGauge.Row.of(
+                        Tags.of("warehouse", level.warehouseId().toString(), "name", String.valueOf(level.name())),
+                        value.apply(level)))
+                .toList();
+    }
+}
@@ -0,0 +1,107 @@
+package dev.xxj.logistics.job;
+
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseAmount;
+import dev.xxj.logistics.model.WarehouseOccupancy;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * OccupancyReconcileJob checks the running {@link WarehouseOccupancy} counters against the real sum of
+ * the {@link dev.xxj.logistics.model.GoodStorage} amounts.
+ * <p>
+ * It runs once when the application is ready, which also creates the counters of warehouses that do not
+ * have one yet, and then periodically with the delay configured by {@code logistics.occupancy.reconcile-delay}.
+ * A warehouse whose counter differs from the sum is re-checked while its counter row is locked, so that
+ * concurrent stores and retrieves cannot be mistaken for drift. Confirmed drift is logged and, unless
+ * {@code logistics.occupancy.repair} is false, the counter is overwritten with the real sum.
+ *
+ * @author Frank-Xiao
+ * @see WarehouseOccupancy
+ */
+@Component
+@Slf4j
+public class OccupancyReconcileJob {
+    private final WarehouseRepository warehouseRepository;
+    private final GoodStorageRepository storageRepo;
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean repair;
+
+    @Autowired
+    public OccupancyReconcileJob(WarehouseRepository warehouseRepository,
+                                 GoodStorageRepository storageRepo,
+                                 WarehouseOccupancyRepository occupancyRepo,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${logistics.occupancy.repair:true}") boolean repair) {
+        this.warehouseRepository = warehouseRepository;
+        this.storageRepo = storageRepo;
+        this.occupancyRepo = occupancyRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.repair = repair;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Compare every counter with the summed storages and fix the drifted ones.
+     *
+     * @return the number of counters that were missing or drifted
+     */
+    @Scheduled(fixedDelayString = "${logistics.occupancy.reconcile-delay:PT10M}",
+            initialDelayString = "${logistics.occupancy.reconcile-delay:PT10M}")
+    public int reconcile() {
+        Map<UUID, Long> sums = storageRepo.sumAmountGroupByWarehouse().stream()
+                .collect(Collectors.toMap(WarehouseAmount::warehouseId, WarehouseAmount::amount));
+        Map<UUID, Long> counters = occupancyRepo.findAll().stream()
+                .collect(Collectors.toMap(WarehouseOccupancy::getWarehouseId, WarehouseOccupancy::getAmount));
+        int drifted = 0;
+        for (UUID id : warehouseRepository.findAll().stream().map(Warehouse::getId).toList()) {
+            long sum = sums.getOrDefault(id, 0L);
+            if (!Objects.equals(counters.get(id), sum) && Boolean.TRUE.equals(transactionTemplate.execute(
+                    status -> reconcile(id)))) {
+                drifted++;
+            }
+        }
+        log.info("Reconciled warehouse occupancy, {} counter(s) missing or drifted", drifted);
+        return drifted;
+    }
+
+    private boolean reconcile(UUID warehouseId) {
+        var occupancy = occupancyRepo.findForUpdate(warehouseId);
+        long sum = storageRepo.sumAmountByWarehouseId(warehouseId);
+        if (occupancy.isEmpty()) {
+            log.info("Creating occupancy counter of warehouse {} with amount {}", warehouseId, sum);
+            occupancyRepo.save(WarehouseOccupancy.builder().warehouseId(warehouseId).amount(sum).build());
+            return true;
+        }
+        var counter = occupancy.get();
+        if (counter.getAmount() == sum) {
+            return false;
+        }
+        log.warn("Occupancy counter of warehouse {} is {} but the stored amount is {}",
+                warehouseId, counter.getAmount(), sum);
+        if (repair) {
+            counter.setAmount(sum);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package dev.xxj.logistics.job;
+
+import dev.xxj.logistics.config.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * ReplicaLagJob measures how far every read replica of {@link ReplicaRoutingDataSource} is behind the primary.
+ * <p>
+ * With the delay configured by {@code logistics.datasource.lag-check-interval}, it writes the current time into
+ * the {@code replication_heartbeat} row of the primary and reads the row back from every replica: the lag is
+ * how long ago the heartbeat seen by the replica was written. Both times are taken by this instance, so the
+ * clocks of the database servers do not matter. A replica that cannot be read gets an unknown lag and serves no
+ * reads until it can be read again. The lags are published as the {@value #LAG} gauge, tagged with the index of
+ * the {@code replica}.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.config.ReplicaConfig
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty("logistics.datasource.replicas[0].url")
+public class ReplicaLagJob {
+    public static final String LAG = "logistics.datasource.replica.lag";
+    private final ReplicaRoutingDataSource routing;
+    private final JdbcTemplate primary;
+    private final List<JdbcTemplate> replicas;
+
+    @Autowired
+    public ReplicaLagJob(ReplicaRoutingDataSource routing, MeterRegistry registry) {
+        this.routing = routing;
+        this.primary = new JdbcTemplate(routing.getPrimary());
+        this.replicas = routing.getReplicas().stream().map(JdbcTemplate::new).toList();
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = i;
+            Gauge.builder(LAG, () -> {
+                        long lag = routing.getLagMillis(replica);
+                        return lag == ReplicaRoutingDataSource.UNKNOWN_LAG ? Double.NaN : lag / 1000.0;
+                    })
+                    .description("Seconds the replica is behind the primary, NaN if unknown")
+                    .baseUnit("seconds")
+                    .tag("replica", String.valueOf(replica))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Write a heartbeat to the primary and measure the lag of every replica.
+     */
+    @Scheduled(fixedDelayString = "${logistics.datasource.lag-check-interval:PT1S}")
+    public void check() {
+        try {
+            primary.update("update replication_heartbeat set beat = ? where id = 1", System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            log.warn("Failed to write the replication heartbeat", e);
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag;
+            try {
+                Long beat = replicas.get(i).queryForObject("select beat from replication_heartbeat where id = 1",
+                        Long.class);
+                lag = Math.max(0, System.currentTimeMillis() - beat);
+            } catch (DataAccessException e) {
+                log.debug("Failed to read the replication heartbeat of replica {}", i, e);
+                lag = ReplicaRoutingDataSource.UNKNOWN_LAG;
+            }
+            routing.setLagMillis(i, lag);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package dev.xxj.logistics.metrics;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.exception.InventoryException;
+import dev.xxj.logistics.model.BulkItemResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * InventoryMetrics records the store, retrieve and move operations in Micrometer.
+ * <ul>
+ *     <li>{@value #OPERATIONS} times every operation, tagged with the {@code operation} and its {@code outcome}:
+ *     {@code success}, {@code insufficient_stock}, {@code capacity_exceeded}, {@code rejected} for other
+ *     {@link InventoryException}s or {@code error}.</li>
+ *     <li>{@value #ACTIVE} tracks the operations in progress, whose count and longest duration show how many
+ *     requests queue up on the same warehouses.</li>
+ *     <li>{@value #LOCK_WAIT} times the statement that takes the row lock of a warehouse counter, which is
+ *     mostly time spent waiting for other operations on that warehouse.</li>
+ *     <li>{@value #AMOUNT} counts the amount of goods successfully stored, retrieved or moved.</li>
+ *     <li>{@value #BULK_CHUNKS} times every chunk of a bulk operation and {@value #BULK_ITEMS} counts its
+ *     items by outcome.</li>
+ *     <li>{@value #SHARD_BATCHES} counts the commands of every batch committed by a shard in
+ *     {@code sharded} write mode, tagged {@code committed} or {@code fallback} if the batch was replayed one
+ *     command at a time, and {@value #SHARD_QUEUED} shows the commands waiting for each shard.</li>
+ *     <li>{@value #COALESCED_BATCHES} counts the commands of every batch committed in {@code coalescing} write
+ *     mode, tagged like {@value #SHARD_BATCHES}.</li>
+ * </ul>
+ *
+ * @author Frank-Xiao
+ */
+@Component
+public class InventoryMetrics {
+    public static final String OPERATIONS = "logistics.inventory.operations";
+    public static final String ACTIVE = "logistics.inventory.active";
+    public static final String LOCK_WAIT = "logistics.inventory.lock.wait";
+    public static final String AMOUNT = "logistics.inventory.amount";
+    public static final String BULK_CHUNKS = "logistics.inventory.bulk.chunks";
+    public static final String BULK_ITEMS = "logistics.inventory.bulk.items";
+    public static final String SHARD_BATCHES = "logistics.inventory.shard.batches";
+    public static final String SHARD_QUEUED = "logistics.inventory.shard.queued";
+    public static final String COALESCED_BATCHES = "logistics.inventory.coalesced.batches";
+    private final MeterRegistry registry;
+
+    @Autowired
+    public InventoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Run one inventory operation and record its duration, outcome and amount.
+     *
+     * @param operation the name of the operation, e.g. {@code store}
+     * @param amount    the amount of goods the operation changes
+     * @param action    the operation
+     * @return the result of the operation
+     */
+    public <T> T record(String operation, Long amount, Supplier<T> action) {
+        LongTaskTimer.Sample active = LongTaskTimer.builder(ACTIVE)
+                .tag("operation", operation)
+                .register(registry)
+                .start();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = "success";
+            if (amount != null) {
+                Counter.builder(AMOUNT).tag("operation", operation).register(registry).increment(amount);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(OPERATIONS)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(registry));
+            active.stop();
+        }
+    }
+
+    /**
+     * Run one inventory operation without result and record its duration, outcome and amount.
+     *
+     * @param operation the name of the operation, e.g. {@code retrieve}
+     * @param amount    the amount of goods the operation changes
+     * @param action    the operation
+     */
+    public void record(String operation, Long amount, Runnable action) {
+        record(operation, amount, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run the statement that locks the counter of a warehouse and record how long it took.
+     *
+     * @param operation the name of the operation taking the lock
+     * @param statement the locking statement
+     * @return the result of the statement
+     */
+    public <T> T recordLockWait(String operation, Supplier<T> statement) {
+        return Timer.builder(LOCK_WAIT).tag("operation", operation).register(registry).record(statement);
+    }
+
+    /**
+     * Run one chunk of a bulk operation and record its duration and the outcome of every item.
+     *
+     * @param operation the name of the bulk operation, e.g. {@code bulk_store}
+     * @param chunk     the chunk
+     * @return the results of the items of the chunk
+     */
+    public List<BulkItemResult> recordChunk(String operation, Supplier<List<BulkItemResult>> chunk) {
+        List<BulkItemResult> results = Timer.builder(BULK_CHUNKS).tag("operation", operation).register(registry)
+                .record(chunk);
+        if (results != null) {
+            long succeeded = results.stream().filter(BulkItemResult::success).count();
+            Counter.builder(BULK_ITEMS).tag("operation", operation).tag("outcome", "success").register(registry)
+                    .increment(succeeded);
+            Counter.builder(BULK_ITEMS).tag("operation", operation).tag("outcome", "rejected").register(registry)
+                    .increment(results.size() - succeeded);
+        }
+        return results;
+    }
+
+    /**
+     * Record the size of a batch committed by a shard.
+     *
+     * @param size      the number of commands in the batch
+     * @param committed true if the batch was committed at once, false if it was replayed one command at a time
+     */
+    public void recordShardBatch(int size, boolean committed) {
+        DistributionSummary.builder(SHARD_BATCHES)
+                .tag("outcome", committed ? "committed" : "fallback")
+                .register(registry)
+                .record(size);
+    }
+
+    /**
+     * Record the size of a batch of coalesced stores and retrieves.
+     *
+     * @param size      the number of commands in the batch
+     * @param committed true if the batch was committed at once, false if it was replayed one command at a time
+     */
+    public void recordCoalescedBatch(int size, boolean committed) {
+        DistributionSummary.builder(COALESCED_BATCHES)
+                .tag("outcome", committed ? "committed" : "fallback")
+                .register(registry)
+                .record(size);
+    }
+
+    /**
+     * Publish the number of commands waiting in the queue of a shard.
+     *
+     * @param shard the index of the shard
+     * @param queue the queue of the shard
+     */
+    public void registerShardQueue(int shard, Collection<?> queue) {
+        Gauge.builder(SHARD_QUEUED, queue, Collection::size)
+                .tag("shard", String.valueOf(shard))
+                .register(registry);
+    }
+
+    private static String outcome(RuntimeException e) {
+        return switch (e) {
+            case InsufficientStockException ignored -> "insufficient_stock";
+            case CapacityExceededException ignored -> "capacity_exceeded";
+            case InventoryException ignored -> "rejected";
+            default -> "error";
+        };
+    }
+}
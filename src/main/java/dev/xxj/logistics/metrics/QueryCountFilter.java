@@ -0,0 +1,48 @@
+package dev.xxj.logistics.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * QueryCountFilter records how many SQL statements each request made Hibernate execute, as the
+ * {@value #QUERIES} distribution summary tagged with the HTTP {@code method} and the {@code uri} pattern of
+ * the handler, like {@code http.server.requests}.
+ *
+ * @author Frank-Xiao
+ * @see QueryCounter
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+    public static final String QUERIES = "logistics.http.db.queries";
+    private final MeterRegistry registry;
+
+    public QueryCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int queries = QueryCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder(QUERIES)
+                    .baseUnit("queries")
+                    .tag("method", request.getMethod())
+                    .tag("uri", Objects.isNull(pattern) ? "UNKNOWN" : pattern.toString())
+                    .register(registry)
+                    .record(queries);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.xxj.logistics.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * QueryCounter counts the SQL statements Hibernate prepares on the current thread.
+ * <p>
+ * It is installed as the {@link StatementInspector} of the session factory and sees every statement without
+ * changing it. {@link QueryCountFilter} starts a count for each request and reads it at the end, so statements
+ * outside a request, e.g. of scheduled jobs, are not counted.
+ *
+ * @author Frank-Xiao
+ * @see QueryCountFilter
+ */
+public class QueryCounter implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Start counting the statements of the current thread from zero.
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Stop counting the statements of the current thread.
+     *
+     * @return the number of statements since {@link #start()}
+     */
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
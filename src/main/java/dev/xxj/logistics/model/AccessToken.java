@@ -0,0 +1,13 @@
+package dev.xxj.logistics.model;
+
+import java.time.Instant;
+
+/**
+ * AccessToken is a signed token issued to an API client, to be sent as {@code Authorization: Bearer <token>}.
+ *
+ * @param token     the signed token
+ * @param expiresAt when the token stops being accepted
+ * @author Frank-Xiao
+ */
+public record AccessToken(String token, Instant expiresAt) {
+}
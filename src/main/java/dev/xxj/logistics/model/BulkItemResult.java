@@ -0,0 +1,26 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+
+/**
+ * Result of one item of a bulk store, retrieve or move request.
+ * <p>
+ * The index is the zero-based position of the item in the request, so the client can match every result
+ * to the item it sent, no matter whether the request was a JSON array or an NDJSON stream.
+ *
+ * @author Frank-Xiao
+ * @see GoodStorageDto
+ * @see MoveDTO
+ */
+public record BulkItemResult(long index,
+                             boolean success,
+                             String message) implements Serializable {
+
+    public static BulkItemResult ok(long index) {
+        return new BulkItemResult(index, true, "Success");
+    }
+
+    public static BulkItemResult failed(long index, String message) {
+        return new BulkItemResult(index, false, message);
+    }
+}
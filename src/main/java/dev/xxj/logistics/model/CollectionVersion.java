@@ -0,0 +1,42 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * The version of a whole collection of entities, e.g. of all goods, used to answer conditional requests.
+ * <p>
+ * A version is created when the collection is first read after a change and is cached until the next change
+ * drops it, so it never needs the database. Each version has a new random tag, so two versions never share a
+ * tag, even when they were created by different nodes.
+ *
+ * @param tag          the random tag, sent as the ETag
+ * @param lastModified when the version was created, which is no earlier than the last change
+ * @author Frank-Xiao
+ */
+public record CollectionVersion(String tag, Instant lastModified) implements Serializable {
+
+    /**
+     * Create the version following the current one.
+     *
+     * @return a version with a new tag, modified now
+     */
+    public static CollectionVersion next() {
+        return new CollectionVersion(UUID.randomUUID().toString(), Instant.now());
+    }
+
+    /**
+     * Get the time to send as Last-Modified, in milliseconds since the epoch.
+     * <p>
+     * HTTP dates have a resolution of one second, so during the second this version was created, a change made
+     * right after it would carry the same date and a client could not tell them apart. No date is sent then.
+     *
+     * @return the time truncated to seconds, or -1 during the second the version was created
+     */
+    public long lastModifiedMillis() {
+        Instant second = lastModified.truncatedTo(ChronoUnit.SECONDS);
+        return Instant.now().isBefore(second.plusSeconds(1)) ? -1 : second.toEpochMilli();
+    }
+}
@@ -0,0 +1,40 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset paginated listing.
+ * <p>
+ * {@code nextCursor} is an opaque token created by {@link PageCursor#encode()}. Passing it back returns the
+ * page that follows this one; it is null on the last page.
+ *
+ * @param <T> the type of the items
+ * @author Frank-Xiao
+ * @see PageCursor
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) implements Serializable {
+    /**
+     * The largest number of items a page may contain.
+     */
+    public static final int MAX_SIZE = 1000;
+
+    /**
+     * Create a page from rows fetched with a limit of {@code size + 1}.
+     * The extra row only tells whether another page follows and is not part of the page.
+     *
+     * @param rows       the fetched rows, at most {@code size + 1}
+     * @param size       the page size
+     * @param nextCursor creates the cursor of the next page from the last item of this page
+     * @param <T>        the type of the items
+     * @return the page
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, PageCursor> nextCursor) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, size));
+        return new CursorPage<>(items, nextCursor.apply(items.getLast()).encode());
+    }
+}
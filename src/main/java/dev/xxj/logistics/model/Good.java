@@ -1,15 +1,24 @@
 package dev.xxj.logistics.model;
 
+import dev.xxj.logistics.config.EntityCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
+import java.io.Serializable;
 import java.util.Objects;
 import java.util.UUID;
 
 /**
  * Class Good represents a good entity.
  * This is the model class for all goods.
+ * <p>
+ * Goods are kept in the second-level cache, see {@link EntityCacheConfig}. The version is increased by every
+ * update, which fails if the good was changed since the version it carries was read.
  *
  * @author Frank-Xiao
  */
@@ -17,12 +26,15 @@ import java.util.UUID;
 @Setter
 @Entity
 @Table(name = "good")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.GOOD_REGION)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Good {
+public class Good implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.UUID)
     @Column(name = "id", nullable = false)
     private UUID id;
 
@@ -30,6 +42,10 @@ public class Good {
     @NotBlank
     private String name;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * Default toString method for Good.
      * It returns the id and name of the good.
@@ -0,0 +1,17 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * One result of a good name search.
+ *
+ * @param id       the id of the good
+ * @param name     the name of the good
+ * @param match    how the name matched the query: {@code exact}, {@code prefix}, {@code substring} or {@code fuzzy}
+ * @param distance the number of typos between the query and the name, 0 unless the match is {@code fuzzy}
+ * @author Frank-Xiao
+ * @see Good
+ */
+public record GoodMatch(UUID id, String name, String match, int distance) implements Serializable {
+}
@@ -3,6 +3,8 @@ package dev.xxj.logistics.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.UUID;
 
@@ -12,27 +14,41 @@ import java.util.UUID;
  * Each {@link Good} is stored in a {@link Warehouse} with a certain amount.
  * The amount should be positive or zero. Basically, this class serves as a connection
  * between {@link Good} and {@link Warehouse}.
+ * <p>
+ * A warehouse stores many goods and a good is stored in many warehouses, at most one row per pair. Both
+ * associations are lazy: the queries of {@link dev.xxj.logistics.repo.GoodStorageRepository} that need the
+ * warehouse or the good fetch them with the storages, the others never load them.
+ * <p>
+ * The version is increased by every change of the amount, including the bulk updates of the repository.
+ * <p>
+ * The schema, including the unique (warehouse, good) pair and the covering indexes declared here, is
+ * created by the Flyway migrations under {@code db/migration}.
  *
  * @author Frank-Xiao
  */
 @Getter
 @Setter
 @Entity
-@Table(name = "good_storage")
+@Table(name = "good_storage",
+        uniqueConstraints = @UniqueConstraint(name = "uk_good_storage_warehouse_good",
+                columnNames = {"warehouse_id", "good_id"}),
+        indexes = {@Index(name = "ix_good_storage_good_warehouse_amount", columnList = "good_id, warehouse_id, amount"),
+                @Index(name = "ix_good_storage_warehouse_amount", columnList = "warehouse_id, amount")})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class GoodStorage {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.UUID)
     @Column(name = "id", nullable = false)
     private UUID id;
 
-    @OneToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "warehouse_id", nullable = false)
     private Warehouse warehouse;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "good_id", nullable = false)
     private Good good;
 
@@ -40,6 +56,10 @@ public class GoodStorage {
     @PositiveOrZero
     private Long amount;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * Default toString method for GoodStorage.
      * It returns the id, warehouse id, good id and amount of the good storage.
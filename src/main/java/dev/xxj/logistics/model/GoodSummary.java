@@ -0,0 +1,13 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Lightweight projection of a {@link Good}, used by paged listings.
+ *
+ * @author Frank-Xiao
+ * @see Good
+ */
+public record GoodSummary(UUID id, String name) implements Serializable {
+}
@@ -0,0 +1,18 @@
+package dev.xxj.logistics.model;
+
+/**
+ * The formats of an inventory import upload.
+ *
+ * @author Frank-Xiao
+ * @see ImportRow
+ */
+public enum ImportFormat {
+    /**
+     * Comma separated values with a header line naming the columns of {@link ImportRow}.
+     */
+    CSV,
+    /**
+     * One JSON object with the fields of {@link ImportRow} per line.
+     */
+    NDJSON
+}
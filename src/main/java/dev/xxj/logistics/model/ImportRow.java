@@ -0,0 +1,30 @@
+package dev.xxj.logistics.model;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+
+/**
+ * One row of an inventory import, read from a CSV line or an NDJSON object.
+ * <p>
+ * Goods and warehouses are identified by their name, their natural key. A row with only a good registers the
+ * good, a row with only a warehouse and its maximum amount registers the warehouse, and a row with both and an
+ * amount sets the stock level of the good in the warehouse, registering whichever of them is missing. All
+ * fields are kept as read, so that an invalid value is reported for its row instead of failing the whole file.
+ *
+ * @param good      the name of the good
+ * @param warehouse the name of the warehouse
+ * @param location  the location of the warehouse, only used when it is registered
+ * @param maxAmount the maximum amount of the warehouse, only used when it is registered
+ * @param amount    the stock level of the good in the warehouse
+ * @author Frank-Xiao
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportRow(String good,
+                        String warehouse,
+                        String location,
+                        @JsonProperty("max_amount") @JsonAlias("maxAmount") String maxAmount,
+                        String amount) implements Serializable {
+}
@@ -0,0 +1,28 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of an inventory import job.
+ *
+ * @param id          the id of the job
+ * @param state       {@code QUEUED}, {@code RUNNING}, {@code COMPLETED} or {@code FAILED}
+ * @param rows        the number of rows processed so far
+ * @param imported    the number of rows imported so far
+ * @param failed      the number of rejected rows so far, listed in the error file of the job
+ * @param submittedAt when the upload was received
+ * @param finishedAt  when the job completed or failed, null before
+ * @param message     why the job failed, null otherwise
+ * @author Frank-Xiao
+ */
+public record ImportStatus(UUID id,
+                           String state,
+                           long rows,
+                           long imported,
+                           long failed,
+                           Instant submittedAt,
+                           Instant finishedAt,
+                           String message) implements Serializable {
+}
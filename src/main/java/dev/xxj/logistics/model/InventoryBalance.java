@@ -0,0 +1,14 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * The amount of one good in one warehouse at some point in time, rebuilt from the inventory ledger.
+ *
+ * @author Frank-Xiao
+ * @see InventoryMovement
+ * @see InventorySnapshotBalance
+ */
+public record InventoryBalance(UUID warehouseId, UUID goodId, Long amount) implements Serializable {
+}
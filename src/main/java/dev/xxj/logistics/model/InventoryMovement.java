@@ -0,0 +1,68 @@
+package dev.xxj.logistics.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Class InventoryMovement is one entry of the append-only inventory ledger.
+ * <p>
+ * Every store, retrieve, move, import and deletion that changes a {@link GoodStorage} amount appends the
+ * change as a signed delta, in the same transaction as the change. Movements are never updated or deleted,
+ * and they keep plain ids instead of references so that the history outlives the goods and warehouses it
+ * mentions. The balance of a pair at any time is the sum of its deltas up to that time.
+ *
+ * @author Frank-Xiao
+ * @see InventorySnapshot
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "inventory_movement",
+        indexes = {@Index(name = "ix_inventory_movement_created_at", columnList = "created_at"),
+                @Index(name = "ix_inventory_movement_warehouse_good", columnList = "warehouse_id, good_id, created_at")})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMovement {
+    @Id
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Column(name = "good_id", nullable = false)
+    private UUID goodId;
+
+    @Column(name = "delta", nullable = false)
+    private Long delta;
+
+    /**
+     * {@code store}, {@code retrieve}, {@code move}, {@code import}, {@code delete} or {@code opening} for
+     * the balances that existed when the ledger was introduced.
+     */
+    @Column(name = "operation", nullable = false, length = 16)
+    private String operation;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Override
+    public String toString() {
+        return "InventoryMovement{" +
+                "id=" + id +
+                ", warehouseId=" + warehouseId +
+                ", goodId=" + goodId +
+                ", delta=" + delta +
+                ", operation='" + operation + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
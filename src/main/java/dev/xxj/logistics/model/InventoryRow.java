@@ -0,0 +1,20 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Flat projection of one {@link GoodStorage} row joined with its {@link Good} and {@link Warehouse}, used by the
+ * inventory export.
+ * <p>
+ * It is not an entity, so streaming millions of them never fills the persistence context.
+ *
+ * @author Frank-Xiao
+ * @see GoodStorage
+ */
+public record InventoryRow(UUID goodId,
+                           String goodName,
+                           UUID warehouseId,
+                           String warehouseName,
+                           Long amount) implements Serializable {
+}
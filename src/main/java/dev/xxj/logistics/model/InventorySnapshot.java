@@ -0,0 +1,46 @@
+package dev.xxj.logistics.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Class InventorySnapshot marks the balances of every (warehouse, good) pair as of {@code takenAt}, stored as
+ * {@link InventorySnapshotBalance} rows.
+ * <p>
+ * A snapshot includes exactly the {@link InventoryMovement}s created before {@code takenAt}, so the state at a
+ * later time is the snapshot plus the movements from {@code takenAt} on.
+ *
+ * @author Frank-Xiao
+ * @see InventoryMovement
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "inventory_snapshot",
+        indexes = @Index(name = "ix_inventory_snapshot_taken_at", columnList = "taken_at"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshot {
+    @Id
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @Column(name = "taken_at", nullable = false)
+    private Instant takenAt;
+
+    @Override
+    public String toString() {
+        return "InventorySnapshot{" +
+                "id=" + id +
+                ", takenAt=" + takenAt +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package dev.xxj.logistics.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+/**
+ * Class InventorySnapshotBalance is the balance of one (warehouse, good) pair in an {@link InventorySnapshot}.
+ * Pairs with a balance of zero are left out.
+ *
+ * @author Frank-Xiao
+ * @see InventorySnapshot
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "inventory_snapshot_balance",
+        uniqueConstraints = @UniqueConstraint(name = "uk_inventory_snapshot_balance",
+                columnNames = {"snapshot_id", "warehouse_id", "good_id"}))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshotBalance {
+    @Id
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @Column(name = "snapshot_id", nullable = false)
+    private UUID snapshotId;
+
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Column(name = "good_id", nullable = false)
+    private UUID goodId;
+
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+
+    @Override
+    public String toString() {
+        return "InventorySnapshotBalance{" +
+                "snapshotId=" + snapshotId +
+                ", warehouseId=" + warehouseId +
+                ", goodId=" + goodId +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,97 @@
+package dev.xxj.logistics.model;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Position in a keyset paginated listing.
+ * <p>
+ * A cursor remembers the sort property and direction together with the sort value and id of the last item
+ * of a page. The next page is everything strictly after that item in the same order, which the database
+ * can seek to through an index instead of skipping rows like an offset does.
+ * <p>
+ * Clients only see the cursor as an opaque URL-safe token created by {@link #encode()}.
+ * <p>
+ * Only properties that are never null can be sorted by: SQL compares nothing to null, so a page ending with a null
+ * sort value would have no next page.
+ *
+ * @param sort      the sort property, the id is always used as the tiebreaker
+ * @param direction the sort direction
+ * @param value     the sort value of the last item, in its string form, null on the first page or when sorted by id
+ * @param id        the id of the last item, null on the first page
+ * @author Frank-Xiao
+ * @see CursorPage
+ */
+public record PageCursor(String sort, Sort.Direction direction, String value, UUID id) {
+    private static final String SEPARATOR = ":";
+
+    /**
+     * Create the cursor of the first page.
+     *
+     * @param sort the sort property optionally followed by {@code ,asc} or {@code ,desc}, e.g. {@code name,desc};
+     *             null sorts by id ascending
+     * @return the cursor of the first page
+     */
+    public static PageCursor first(String sort) {
+        if (Objects.isNull(sort) || sort.isBlank()) {
+            return new PageCursor("id", Sort.Direction.ASC, null, null);
+        }
+        String[] parts = sort.split(",", 2);
+        Sort.Direction direction = parts.length > 1 ? Sort.Direction.fromString(parts[1].trim()) : Sort.Direction.ASC;
+        return new PageCursor(parts[0].trim(), direction, null, null);
+    }
+
+    /**
+     * Decode a token created by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, 4);
+            return new PageCursor(parts[0], Sort.Direction.valueOf(parts[1]),
+                    "id".equals(parts[0]) ? null : parts[3], UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Create the cursor of the page following the given item.
+     *
+     * @param value the sort value of the last item of the current page, ignored when sorted by id
+     * @param id    the id of the last item of the current page
+     * @return the cursor of the next page
+     * @throws IllegalStateException if the item has no sort value
+     */
+    public PageCursor after(Object value, UUID id) {
+        if ("id".equals(sort)) {
+            return new PageCursor(sort, direction, null, id);
+        }
+        if (Objects.isNull(value)) {
+            throw new IllegalStateException("Cannot page by " + sort + " after an item without one");
+        }
+        return new PageCursor(sort, direction, String.valueOf(value), id);
+    }
+
+    public boolean isFirst() {
+        return Objects.isNull(id);
+    }
+
+    /**
+     * Encode the cursor as an opaque URL-safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        String raw = String.join(SEPARATOR, sort, direction.name(), String.valueOf(id), Objects.toString(value, ""));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
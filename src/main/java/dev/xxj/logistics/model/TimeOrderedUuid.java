@@ -0,0 +1,22 @@
+package dev.xxj.logistics.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate the annotated id with {@link TimeOrderedUuidGenerator}.
+ * <p>
+ * Use it instead of {@code @GeneratedValue(strategy = GenerationType.UUID)}, whose random ids are spread
+ * over the whole primary key index.
+ *
+ * @author Frank-Xiao
+ */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedUuid {
+}
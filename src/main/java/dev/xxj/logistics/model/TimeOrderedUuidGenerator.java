@@ -0,0 +1,55 @@
+package dev.xxj.logistics.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TimeOrderedUuidGenerator generates version 7 UUIDs as described in RFC 9562.
+ * <p>
+ * The first 48 bits are the Unix time in milliseconds, followed by a 12-bit sequence that keeps the ids
+ * of this JVM strictly increasing within the same millisecond, and 62 random bits. Hibernate stores a
+ * UUID as {@code binary(16)} in MySQL with the most significant byte first, so new rows are appended to
+ * the right edge of the clustered primary key index instead of splitting random pages of it, and the
+ * secondary indexes, which contain the primary key, stay compact as well.
+ * <p>
+ * If more than 4096 ids are requested in one millisecond, the sequence carries into the timestamp, which
+ * then runs slightly ahead of the clock until the load drops.
+ *
+ * @author Frank-Xiao
+ * @see TimeOrderedUuid
+ */
+public class TimeOrderedUuidGenerator implements BeforeExecutionGenerator {
+    private static final int SEQUENCE_BITS = 12;
+    private static final AtomicLong LAST = new AtomicLong();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Generate the next id.
+     *
+     * @return a version 7 UUID greater than every id generated before by this JVM
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long stamp = LAST.updateAndGet(last -> Math.max(last + 1, now));
+        long msb = (stamp >>> SEQUENCE_BITS) << 16 | 0x7000L | (stamp & 0xFFFL);
+        long lsb = RANDOM.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EnumSet.of(EventType.INSERT);
+    }
+}
@@ -1,9 +1,15 @@
 package dev.xxj.logistics.model;
 
+import dev.xxj.logistics.config.EntityCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
+import java.io.Serializable;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -12,6 +18,9 @@ import java.util.UUID;
  * <p>
  * Each warehouse has a name, location and a maximum amount of goods it can store.
  * The warehouse is identified by a unique id using {@link UUID}, which is generated automatically.
+ * <p>
+ * Warehouses are kept in the second-level cache, see {@link EntityCacheConfig}. The version is increased by
+ * every update, which fails if the warehouse was changed since the version it carries was read.
  *
  * @author Frank-Xiao
  */
@@ -19,12 +28,15 @@ import java.util.UUID;
 @Setter
 @Entity
 @Table(name = "warehouse")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.WAREHOUSE_REGION)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Warehouse {
+public class Warehouse implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.UUID)
     @Column(name = "id", nullable = false)
     private UUID id;
 
@@ -38,6 +50,10 @@ public class Warehouse {
     @Positive
     private Long maxAmount;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * Default toString method for Warehouse.
      * It returns the id, name, location and max amount of the warehouse.
@@ -0,0 +1,15 @@
+package dev.xxj.logistics.model;
+
+import java.util.UUID;
+
+/**
+ * Projection of the summed {@link GoodStorage} amount of one {@link Warehouse}.
+ * <p>
+ * It is produced by aggregate queries and compared against {@link WarehouseOccupancy} when reconciling
+ * the running counters.
+ *
+ * @author Frank-Xiao
+ * @see WarehouseOccupancy
+ */
+public record WarehouseAmount(UUID warehouseId, Long amount) {
+}
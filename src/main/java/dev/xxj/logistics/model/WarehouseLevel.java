@@ -0,0 +1,13 @@
+package dev.xxj.logistics.model;
+
+import java.util.UUID;
+
+/**
+ * Projection of the occupied and the maximum amount of one {@link Warehouse}, read from its
+ * {@link WarehouseOccupancy} counter.
+ *
+ * @author Frank-Xiao
+ * @see WarehouseOccupancy
+ */
+public record WarehouseLevel(UUID warehouseId, String name, Long amount, Long maxAmount) {
+}
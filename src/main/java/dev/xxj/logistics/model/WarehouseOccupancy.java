@@ -0,0 +1,59 @@
+package dev.xxj.logistics.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.*;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Class WarehouseOccupancy keeps the running total of goods stored in one {@link Warehouse}.
+ * <p>
+ * The total is maintained by every store, retrieve, move and delete operation in the same transaction
+ * as the {@link GoodStorage} change, so reading it is a single primary key lookup instead of summing every
+ * {@link GoodStorage} row of the warehouse. It lives in its own table so that the frequently updated counter
+ * does not touch the warehouse catalogue row.
+ * <p>
+ * Writers that lock several counters in one transaction lock them in {@link #LOCK_ORDER}, so that no two of them
+ * wait for each other.
+ *
+ * @author Frank-Xiao
+ * @see Warehouse
+ * @see GoodStorage
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "warehouse_occupancy")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseOccupancy {
+    /**
+     * The order of warehouse ids in which the counters are locked: the order of the database, which compares
+     * {@code binary(16)} ids as unsigned bytes, unlike {@link UUID#compareTo}, which compares signed longs.
+     */
+    public static final Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Id
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Column(name = "amount", nullable = false)
+    @PositiveOrZero
+    private Long amount;
+
+    @Override
+    public String toString() {
+        return "WarehouseOccupancy{" +
+                "warehouseId=" + warehouseId +
+                ", amount=" + amount +
+                '}';
+    }
+}
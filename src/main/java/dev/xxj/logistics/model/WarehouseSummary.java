@@ -0,0 +1,13 @@
+package dev.xxj.logistics.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Lightweight projection of a {@link Warehouse}, used by paged listings.
+ *
+ * @author Frank-Xiao
+ * @see Warehouse
+ */
+public record WarehouseSummary(UUID id, String name, String location, Long maxAmount) implements Serializable {
+}
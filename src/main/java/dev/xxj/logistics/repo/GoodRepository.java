@@ -1,8 +1,16 @@
 package dev.xxj.logistics.repo;
 
 import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,18 +19,52 @@ import java.util.UUID;
  * <p>
  * GoodRepository is an interface that extends {@link JpaRepository}, which is a Spring Data interface.
  * It provides methods for CRUD operations and paging on Good objects.
+ * Large listings should use the keyset pagination of {@link KeysetRepository}, which returns
+ * {@link GoodSummary} projections. The results of the name finders are kept in the query cache.
  *
  * @author Frank-Xiao
  * @see JpaRepository
  * @see Good
  * @see UUID
+ * @see KeysetRepository
  */
-public interface GoodRepository extends JpaRepository<Good, UUID> {
+public interface GoodRepository extends JpaRepository<Good, UUID>, KeysetRepository<GoodSummary> {
     /**
      * Find a list of goods by name.
      *
      * @param name the name of the goods to find
      * @return a list of goods with the given name
      */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Good> findByName(String name);
-}
\ No newline at end of file
+
+    /**
+     * Find which of the given ids belong to registered goods, without loading the goods.
+     *
+     * @param ids the ids to check
+     * @return the ids of the registered goods among the given ids
+     */
+    @Query("select g.id from Good g where g.id in :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Find the goods with any of the given names.
+     *
+     * @param names the names of the goods to find
+     * @return the goods with one of the names
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Good> findByNameIn(Collection<String> names);
+
+    /**
+     * Find the goods whose lower case name matches a pattern, in lower case name order.
+     * The {@code lower(name)} index of MySQL serves patterns starting with a fixed prefix.
+     *
+     * @param pattern  the LIKE pattern in lower case, with {@code \} as escape character
+     * @param pageable the page to return
+     * @return the goods of the page
+     */
+    @Query("select new dev.xxj.logistics.model.GoodSummary(g.id, g.name) from Good g " +
+            "where lower(g.name) like :pattern escape '\\' order by lower(g.name), g.id")
+    List<GoodSummary> findByNamePrefix(@Param("pattern") String pattern, Pageable pageable);
+}
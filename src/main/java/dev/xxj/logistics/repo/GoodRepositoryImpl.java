@@ -0,0 +1,29 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodSummary;
+import dev.xxj.logistics.model.PageCursor;
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyset pagination of {@link GoodRepository}, sortable by id and name.
+ *
+ * @author Frank-Xiao
+ * @see KeysetRepository
+ */
+class GoodRepositoryImpl implements KeysetRepository<GoodSummary> {
+    private final KeysetQuery<Good, GoodSummary> query;
+
+    GoodRepositoryImpl(EntityManager entityManager) {
+        this.query = new KeysetQuery<>(entityManager, Good.class, GoodSummary.class,
+                List.of("id", "name"), Set.of("id", "name"));
+    }
+
+    @Override
+    public List<GoodSummary> findKeyset(PageCursor cursor, int limit) {
+        return query.find(cursor, limit);
+    }
+}
@@ -2,12 +2,25 @@ package dev.xxj.logistics.repo;
 
 import dev.xxj.logistics.model.Good;
 import dev.xxj.logistics.model.GoodStorage;
+import dev.xxj.logistics.model.InventoryBalance;
+import dev.xxj.logistics.model.InventoryRow;
 import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseAmount;
+import dev.xxj.logistics.model.WarehouseSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * GoodStorageRepository interface to allow CRUD and paging operations on GoodStorage objects.
@@ -16,6 +29,14 @@ import java.util.UUID;
  * the service layer can call easily.
  * It not only provides methods to find GoodStorage objects by either warehouse ID or good ID, but also
  * provides methods to find GoodStorage objects by both warehouse ID and good ID.
+ * <p>
+ * The stored amount is changed with conditional bulk updates instead of loading and saving the entity,
+ * so concurrent changes to the same row can never overwrite each other. They increase the version of the row
+ * like an update of the entity does.
+ * <p>
+ * The warehouse and the good of a storage are lazy. Each finder fetches what its callers use: whole storages
+ * come with their warehouse and good from one entity graph or fetch join, and the other queries select
+ * projections or ids only, so no listing selects the warehouses or goods row by row.
  *
  * @author Frank-Xiao
  * @see JpaRepository
@@ -23,13 +44,146 @@ import java.util.UUID;
  * @see UUID
  */
 public interface GoodStorageRepository extends JpaRepository<GoodStorage, UUID> {
+    /**
+     * Find the storage of one good in one warehouse, without its warehouse and good, for its amount.
+     *
+     * @param wareId the id of the warehouse
+     * @param goodId the id of the good
+     * @return the storage, empty if the good is not stored in the warehouse
+     */
     Optional<GoodStorage> findByWarehouse_IdAndGood_Id(UUID wareId, UUID goodId);
 
+    /**
+     * Find the storages of one good together with their warehouse and good, in one query.
+     *
+     * @param id the id of the good
+     * @return the storages of the good in every warehouse
+     */
+    @EntityGraph(attributePaths = {"warehouse", "good"})
     List<GoodStorage> findByGood_Id(UUID id);
 
+    /**
+     * Find the storages of one warehouse together with their warehouse and good, in one query.
+     *
+     * @param id the id of the warehouse
+     * @return the storages of every good in the warehouse
+     */
+    @EntityGraph(attributePaths = {"warehouse", "good"})
     List<GoodStorage> findByWarehouse_Id(UUID id);
 
     long deleteByWarehouseAndGood(Warehouse warehouse, Good good);
 
+    /**
+     * Find the storages of the given goods in the given warehouses, together with their warehouse and good.
+     *
+     * @param warehouseIds the ids of the warehouses
+     * @param goodIds      the ids of the goods
+     * @return every storage whose warehouse and good are both in the given ids
+     */
+    @Query("select s from GoodStorage s join fetch s.warehouse join fetch s.good " +
+            "where s.warehouse.id in :warehouseIds and s.good.id in :goodIds")
+    List<GoodStorage> findAllByWarehouseIdsAndGoodIds(@Param("warehouseIds") Collection<UUID> warehouseIds,
+                                                      @Param("goodIds") Collection<UUID> goodIds);
+
+    /**
+     * Add an amount to the stored goods of one kind in one warehouse.
+     *
+     * @param warehouseId the id of the warehouse
+     * @param goodId      the id of the good
+     * @param amount      the amount to add
+     * @return 1 if the amount is added, 0 if the good is not stored in the warehouse yet
+     */
+    @Modifying
+    @Query("update GoodStorage s set s.amount = s.amount + :amount, s.version = s.version + 1 " +
+            "where s.warehouse.id = :warehouseId and s.good.id = :goodId")
+    int increaseAmount(@Param("warehouseId") UUID warehouseId,
+                       @Param("goodId") UUID goodId,
+                       @Param("amount") long amount);
+
+    /**
+     * Subtract an amount from the stored goods of one kind in one warehouse, if enough goods are stored.
+     *
+     * @param warehouseId the id of the warehouse
+     * @param goodId      the id of the good
+     * @param amount      the amount to subtract
+     * @return 1 if the amount is subtracted, 0 if the good is not stored or the stored amount is too small
+     */
+    @Modifying
+    @Query("update GoodStorage s set s.amount = s.amount - :amount, s.version = s.version + 1 " +
+            "where s.warehouse.id = :warehouseId and s.good.id = :goodId and s.amount >= :amount")
+    int decreaseAmount(@Param("warehouseId") UUID warehouseId,
+                       @Param("goodId") UUID goodId,
+                       @Param("amount") long amount);
+
+    /**
+     * Find the ids of all warehouses storing one good.
+     *
+     * @param goodId the id of the good
+     * @return the ids of the warehouses storing the good
+     */
+    @Query("select s.warehouse.id from GoodStorage s where s.good.id = :goodId")
+    List<UUID> findWarehouseIdsByGoodId(@Param("goodId") UUID goodId);
+
+    /**
+     * Sum the stored amount of one good over all warehouses in the database.
+     *
+     * @param goodId the id of the good
+     * @return the summed amount, 0 if the good is not stored anywhere
+     */
+    @Query("select coalesce(sum(s.amount), 0) from GoodStorage s where s.good.id = :goodId")
+    long sumAmountByGoodId(@Param("goodId") UUID goodId);
+
+    /**
+     * Find the warehouses storing one good with a single join, without loading any entity.
+     *
+     * @param goodId the id of the good
+     * @return one {@link WarehouseSummary} per warehouse storing the good
+     */
+    @Query("select new dev.xxj.logistics.model.WarehouseSummary(w.id, w.name, w.location, w.maxAmount) " +
+            "from GoodStorage s join s.warehouse w where s.good.id = :goodId")
+    List<WarehouseSummary> findLocationsByGoodId(@Param("goodId") UUID goodId);
+
+    /**
+     * Sum the stored amount of one warehouse in the database.
+     *
+     * @param warehouseId the id of the warehouse
+     * @return the summed amount, 0 if nothing is stored
+     */
+    @Query("select coalesce(sum(s.amount), 0) from GoodStorage s where s.warehouse.id = :warehouseId")
+    long sumAmountByWarehouseId(@Param("warehouseId") UUID warehouseId);
+
+    /**
+     * Sum the stored amount of every warehouse that stores at least one good.
+     *
+     * @return one {@link WarehouseAmount} per non-empty warehouse
+     */
+    @Query("select new dev.xxj.logistics.model.WarehouseAmount(s.warehouse.id, sum(s.amount)) " +
+            "from GoodStorage s group by s.warehouse.id")
+    List<WarehouseAmount> sumAmountGroupByWarehouse();
+
+    /**
+     * Read the stored amount of every (warehouse, good) pair that stores anything.
+     *
+     * @return one {@link InventoryBalance} per non-empty storage
+     */
+    @Query("select new dev.xxj.logistics.model.InventoryBalance(s.warehouse.id, s.good.id, s.amount) " +
+            "from GoodStorage s where s.amount <> 0")
+    List<InventoryBalance> findAllBalances();
 
-}
\ No newline at end of file
+    /**
+     * Stream every storage together with the id and name of its good and warehouse, ordered by good and
+     * warehouse along the good_storage index.
+     * <p>
+     * The rows are read forward only, 1000 at a time, and must be consumed inside a transaction. On MySQL the
+     * fetch size only takes effect with the {@code useCursorFetch=true} connection property, set in
+     * application.properties; without it the driver reads the whole result before returning the first row.
+     *
+     * @return the stream of {@link InventoryRow} projections, to be closed after use
+     */
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "false")})
+    @Query("select new dev.xxj.logistics.model.InventoryRow(g.id, g.name, w.id, w.name, s.amount) " +
+            "from GoodStorage s join s.good g join s.warehouse w order by s.good.id, s.warehouse.id")
+    Stream<InventoryRow> streamInventory();
+}
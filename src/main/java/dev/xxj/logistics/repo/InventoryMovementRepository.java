@@ -0,0 +1,54 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.InventoryBalance;
+import dev.xxj.logistics.model.InventoryMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * InventoryMovementRepository interface to append to and read the inventory ledger.
+ * <p>
+ * Movements are only ever inserted, so nothing here updates or deletes them.
+ *
+ * @author Frank-Xiao
+ * @see InventoryMovement
+ */
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, UUID> {
+
+    /**
+     * Sum the movements of every (warehouse, good) pair created in a time range.
+     *
+     * @param from the start of the range, inclusive
+     * @param to   the end of the range, exclusive
+     * @return the net change of every pair that moved in the range
+     */
+    @Query("select new dev.xxj.logistics.model.InventoryBalance(m.warehouseId, m.goodId, sum(m.delta)) " +
+            "from InventoryMovement m where m.createdAt >= :from and m.createdAt < :to " +
+            "group by m.warehouseId, m.goodId")
+    List<InventoryBalance> sumByPairBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Sum the movements of every (warehouse, good) pair created at or after a point in time.
+     *
+     * @param from the point in time, inclusive
+     * @return the net change of every pair that moved since then
+     */
+    @Query("select new dev.xxj.logistics.model.InventoryBalance(m.warehouseId, m.goodId, sum(m.delta)) " +
+            "from InventoryMovement m where m.createdAt >= :from group by m.warehouseId, m.goodId")
+    List<InventoryBalance> sumByPairSince(@Param("from") Instant from);
+
+    /**
+     * @return whether any movement was created in the time range, start inclusive and end exclusive
+     */
+    boolean existsByCreatedAtGreaterThanEqualAndCreatedAtLessThan(Instant from, Instant to);
+
+    /**
+     * @return the movements of one good in one warehouse in the order they were appended
+     */
+    List<InventoryMovement> findByWarehouseIdAndGoodIdOrderByCreatedAtAscIdAsc(UUID warehouseId, UUID goodId);
+}
@@ -0,0 +1,15 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.InventorySnapshotBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+/**
+ * InventorySnapshotBalanceRepository interface to store the balances of an inventory snapshot.
+ *
+ * @author Frank-Xiao
+ * @see InventorySnapshotBalance
+ */
+public interface InventorySnapshotBalanceRepository extends JpaRepository<InventorySnapshotBalance, UUID> {
+}
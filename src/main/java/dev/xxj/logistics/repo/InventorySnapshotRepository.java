@@ -0,0 +1,40 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.InventoryBalance;
+import dev.xxj.logistics.model.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * InventorySnapshotRepository interface to find the snapshots of the inventory ledger and read their balances.
+ *
+ * @author Frank-Xiao
+ * @see InventorySnapshot
+ */
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, UUID> {
+
+    /**
+     * @param at a point in time
+     * @return the latest snapshot taken at or before that time, or empty if there is none
+     */
+    Optional<InventorySnapshot> findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(Instant at);
+
+    /**
+     * @return the latest snapshot, or empty if there is none
+     */
+    Optional<InventorySnapshot> findFirstByOrderByTakenAtDesc();
+
+    /**
+     * @param snapshotId the id of a snapshot
+     * @return the balances of the snapshot
+     */
+    @Query("select new dev.xxj.logistics.model.InventoryBalance(b.warehouseId, b.goodId, b.amount) " +
+            "from InventorySnapshotBalance b where b.snapshotId = :snapshotId")
+    List<InventoryBalance> findBalances(@Param("snapshotId") UUID snapshotId);
+}
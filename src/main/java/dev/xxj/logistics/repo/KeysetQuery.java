@@ -0,0 +1,83 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.PageCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Sort;
+
+import java.util.*;
+
+/**
+ * KeysetQuery builds the keyset queries of {@link KeysetRepository} implementations with the Criteria API.
+ * <p>
+ * For a cursor sorted by {@code name} ascending, it runs the equivalent of
+ * {@code select new Summary(...) from Entity e where e.name > :name or (e.name = :name and e.id > :id)
+ * order by e.name, e.id}, limited to the page size.
+ *
+ * @param <T> the entity type
+ * @param <S> the projection type, whose constructor takes the selected attributes in order
+ * @author Frank-Xiao
+ */
+class KeysetQuery<T, S> {
+    private final EntityManager entityManager;
+    private final Class<T> entityClass;
+    private final Class<S> projectionClass;
+    private final List<String> selection;
+    private final Set<String> sortable;
+
+    KeysetQuery(EntityManager entityManager, Class<T> entityClass, Class<S> projectionClass,
+                List<String> selection, Set<String> sortable) {
+        this.entityManager = entityManager;
+        this.entityClass = entityClass;
+        this.projectionClass = projectionClass;
+        this.selection = selection;
+        this.sortable = sortable;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    List<S> find(PageCursor cursor, int limit) {
+        if (!sortable.contains(cursor.sort())) {
+            throw new IllegalArgumentException("Cannot sort by " + cursor.sort());
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<S> query = cb.createQuery(projectionClass);
+        Root<T> root = query.from(entityClass);
+        query.select(cb.construct(projectionClass, selection.stream().map(root::get).toArray(Selection[]::new)));
+
+        boolean descending = cursor.direction() == Sort.Direction.DESC;
+        Path<UUID> id = root.get("id");
+        Path<Comparable> key = root.get(cursor.sort());
+        boolean byId = "id".equals(cursor.sort());
+        if (!cursor.isFirst()) {
+            Predicate afterId = descending ? cb.lessThan(id, cursor.id()) : cb.greaterThan(id, cursor.id());
+            if (byId) {
+                query.where(afterId);
+            } else {
+                Comparable value = parse(key.getJavaType(), cursor.value());
+                query.where(cb.or(
+                        descending ? cb.lessThan(key, value) : cb.greaterThan(key, value),
+                        cb.and(cb.equal(key, value), afterId)));
+            }
+        }
+        List<Order> orders = new ArrayList<>();
+        if (!byId) {
+            orders.add(descending ? cb.desc(key) : cb.asc(key));
+        }
+        orders.add(descending ? cb.desc(id) : cb.asc(id));
+        query.orderBy(orders);
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static Comparable<?> parse(Class<?> type, String value) {
+        if (Objects.isNull(value)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(value);
+        }
+        return value;
+    }
+}
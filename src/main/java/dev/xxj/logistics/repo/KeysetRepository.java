@@ -0,0 +1,28 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.PageCursor;
+
+import java.util.List;
+
+/**
+ * KeysetRepository interface adds keyset (seek) pagination with a lightweight projection to a repository.
+ * <p>
+ * Rows are ordered by the cursor's sort property and then by id, and a page continues strictly after the
+ * position remembered in the cursor. Unlike offset paging, the cost of a page does not grow with its depth,
+ * and rows inserted or deleted meanwhile never shift the following pages.
+ *
+ * @param <S> the projection type returned for each row
+ * @author Frank-Xiao
+ * @see PageCursor
+ */
+public interface KeysetRepository<S> {
+    /**
+     * Find the rows following the cursor.
+     *
+     * @param cursor the position to continue from, see {@link PageCursor#first(String)} for the first page
+     * @param limit  the maximum number of rows to return
+     * @return at most {@code limit} rows after the cursor, in cursor order
+     * @throws IllegalArgumentException if the cursor sorts by a property that cannot be sorted by
+     */
+    List<S> findKeyset(PageCursor cursor, int limit);
+}
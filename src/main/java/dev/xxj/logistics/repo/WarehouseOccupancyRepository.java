@@ -0,0 +1,92 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.WarehouseLevel;
+import dev.xxj.logistics.model.WarehouseOccupancy;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * WarehouseOccupancyRepository interface to read and maintain the running occupancy of each warehouse.
+ * <p>
+ * The counters are changed with conditional bulk updates, so the capacity and non-negative checks
+ * are evaluated by the database together with the write. A returned update count of 0 means the
+ * condition did not hold and nothing was changed.
+ *
+ * @author Frank-Xiao
+ * @see WarehouseOccupancy
+ */
+public interface WarehouseOccupancyRepository extends JpaRepository<WarehouseOccupancy, UUID> {
+
+    /**
+     * Read the stored amount of one warehouse.
+     *
+     * @param warehouseId the id of the warehouse
+     * @return the stored amount, or empty if the warehouse has no counter yet
+     */
+    @Query("select o.amount from WarehouseOccupancy o where o.warehouseId = :warehouseId")
+    Optional<Long> findAmountByWarehouseId(@Param("warehouseId") UUID warehouseId);
+
+    /**
+     * Increase the stored amount of one warehouse if the result does not exceed its maximum amount.
+     *
+     * @param warehouseId the id of the warehouse
+     * @param amount      the amount to add
+     * @return 1 if the counter is increased, 0 if the warehouse is missing or would be over capacity
+     */
+    @Modifying
+    @Query("update WarehouseOccupancy o set o.amount = o.amount + :amount " +
+            "where o.warehouseId = :warehouseId " +
+            "and o.amount + :amount <= (select w.maxAmount from Warehouse w where w.id = :warehouseId)")
+    int increase(@Param("warehouseId") UUID warehouseId, @Param("amount") long amount);
+
+    /**
+     * Decrease the stored amount of one warehouse if the result does not go below zero.
+     *
+     * @param warehouseId the id of the warehouse
+     * @param amount      the amount to subtract
+     * @return 1 if the counter is decreased, 0 if the warehouse is missing or the counter is too small
+     */
+    @Modifying
+    @Query("update WarehouseOccupancy o set o.amount = o.amount - :amount " +
+            "where o.warehouseId = :warehouseId and o.amount >= :amount")
+    int decrease(@Param("warehouseId") UUID warehouseId, @Param("amount") long amount);
+
+    /**
+     * Load the counter of one warehouse and lock it until the end of the current transaction.
+     *
+     * @param warehouseId the id of the warehouse
+     * @return the locked counter, or empty if the warehouse has no counter yet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from WarehouseOccupancy o where o.warehouseId = :warehouseId")
+    Optional<WarehouseOccupancy> findForUpdate(@Param("warehouseId") UUID warehouseId);
+
+    /**
+     * Load the counters of several warehouses and lock them until the end of the current transaction, in the
+     * order of the database, which is {@link WarehouseOccupancy#LOCK_ORDER}.
+     *
+     * @param warehouseIds the ids of the warehouses
+     * @return the locked counters of the warehouses that have one
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from WarehouseOccupancy o where o.warehouseId in :warehouseIds order by o.warehouseId")
+    List<WarehouseOccupancy> findAllForUpdate(@Param("warehouseIds") Collection<UUID> warehouseIds);
+
+    /**
+     * Read the occupied and the maximum amount of every warehouse that has a counter.
+     *
+     * @return the {@link WarehouseLevel} projections of the warehouses
+     */
+    @Query("select new dev.xxj.logistics.model.WarehouseLevel(w.id, w.name, o.amount, w.maxAmount) " +
+            "from WarehouseOccupancy o join Warehouse w on w.id = o.warehouseId")
+    List<WarehouseLevel> findAllLevels();
+}
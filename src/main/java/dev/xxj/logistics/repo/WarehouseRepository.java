@@ -1,19 +1,61 @@
 package dev.xxj.logistics.repo;
 
 import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * WarehouseRepository interface to allow CRUD and paging operations on Warehouse objects.
  * <p>
  * WarehouseRepository extends {@link JpaRepository}, a Spring Data interface. It provides methods for CRUD operations
- * and paging on Warehouse objects.
+ * and paging on Warehouse objects. Large listings should use the keyset pagination of {@link KeysetRepository},
+ * which returns {@link WarehouseSummary} projections. The results of the name finder are kept in the query cache.
+ * <p>
+ * Capacity checks read the maximum amount with the projections below, which always query the database: a
+ * warehouse entity may come from the second-level cache, whose copy can be older than a change made by another
+ * node.
  *
  * @author Frank-Xiao
  * @see JpaRepository
  * @see Warehouse
+ * @see KeysetRepository
  */
-public interface WarehouseRepository extends JpaRepository<Warehouse, UUID> {
+public interface WarehouseRepository extends JpaRepository<Warehouse, UUID>, KeysetRepository<WarehouseSummary> {
+    /**
+     * Find the warehouses with any of the given names.
+     *
+     * @param names the names of the warehouses to find
+     * @return the warehouses with one of the names
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Warehouse> findByNameIn(Collection<String> names);
+
+    /**
+     * Read the maximum amount of one warehouse from the database.
+     *
+     * @param id the id of the warehouse
+     * @return the maximum amount, or empty if there is no such warehouse
+     */
+    @Query("select w.maxAmount from Warehouse w where w.id = :id")
+    Optional<Long> findMaxAmountById(@Param("id") UUID id);
+
+    /**
+     * Read the summaries, including the maximum amounts, of several warehouses from the database.
+     *
+     * @param ids the ids of the warehouses
+     * @return the {@link WarehouseSummary} projections of the warehouses that exist
+     */
+    @Query("select new dev.xxj.logistics.model.WarehouseSummary(w.id, w.name, w.location, w.maxAmount) " +
+            "from Warehouse w where w.id in :ids")
+    List<WarehouseSummary> findSummariesByIdIn(@Param("ids") Collection<UUID> ids);
 }
\ No newline at end of file
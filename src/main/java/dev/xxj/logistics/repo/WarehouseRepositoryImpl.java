@@ -0,0 +1,29 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.PageCursor;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseSummary;
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyset pagination of {@link WarehouseRepository}, sortable by id, name and maximum amount.
+ *
+ * @author Frank-Xiao
+ * @see KeysetRepository
+ */
+class WarehouseRepositoryImpl implements KeysetRepository<WarehouseSummary> {
+    private final KeysetQuery<Warehouse, WarehouseSummary> query;
+
+    WarehouseRepositoryImpl(EntityManager entityManager) {
+        this.query = new KeysetQuery<>(entityManager, Warehouse.class, WarehouseSummary.class,
+                List.of("id", "name", "location", "maxAmount"), Set.of("id", "name", "maxAmount"));
+    }
+
+    @Override
+    public List<WarehouseSummary> findKeyset(PageCursor cursor, int limit) {
+        return query.find(cursor, limit);
+    }
+}
@@ -0,0 +1,371 @@
+package dev.xxj.logistics.search;
+
+import dev.xxj.logistics.model.GoodMatch;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * GoodNameIndex is an in-memory index of the names of goods for case-insensitive prefix, substring and
+ * typo-tolerant search.
+ * <p>
+ * Names are compared in lower case with their whitespace collapsed. Every good gets an ordinal, and the index
+ * keeps
+ * <ul>
+ *     <li>the ordinals by name in a sorted map, so a prefix query is a range scan in name order, and</li>
+ *     <li>the ordinals by trigram of the name, with every word padded by a space on both sides, so a substring
+ *     query only checks the goods of its rarest trigram and a fuzzy query only the goods that share enough
+ *     trigrams with it.</li>
+ * </ul>
+ * Fuzzy candidates are confirmed by their edit distance to the query, counting a swap of two neighbouring
+ * letters as one typo: 1 typo is tolerated from 3 letters, 2 from 6. Trigrams shared by more than
+ * {@value #MAX_FUZZY_POSTINGS} goods say little about a name and are skipped when looking for fuzzy candidates.
+ * <p>
+ * Results are ranked exact matches first, then names starting with the query, names containing it and finally
+ * the fuzzy matches by distance, each group in name order. Later groups are only searched if the earlier ones
+ * do not fill the requested page.
+ * <p>
+ * A renamed or removed good leaves its old ordinal behind in the trigram lists, where it is skipped; the lists
+ * are rebuilt once there are as many of those as live goods. All methods are thread-safe.
+ *
+ * @author Frank-Xiao
+ * @see GoodMatch
+ */
+public class GoodNameIndex {
+    static final int MAX_FUZZY_POSTINGS = 20_000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MIN_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<UUID> ids = new ArrayList<>();
+    /* normalized names by ordinal, null once the ordinal is dead */
+    private final List<String> keys = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final NavigableMap<String, IntList> byKey = new TreeMap<>();
+    private final Map<String, IntList> byTrigram = new HashMap<>();
+    private int dead;
+
+    /**
+     * Add a good, or replace its name if it is indexed already.
+     *
+     * @param id   the id of the good
+     * @param name the name of the good
+     */
+    public void put(UUID id, String name) {
+        lock.writeLock().lock();
+        try {
+            Integer old = ordinals.get(id);
+            if (Objects.nonNull(old) && names.get(old).equals(name)) {
+                return;
+            }
+            if (Objects.nonNull(old)) {
+                kill(old);
+            }
+            add(id, name);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a good, if it is indexed.
+     *
+     * @param id the id of the good
+     */
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            Integer old = ordinals.remove(id);
+            if (Objects.nonNull(old)) {
+                kill(old);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed goods
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the goods whose name matches a query, best matches first.
+     *
+     * @param query  the query, case and repeated whitespace do not matter
+     * @param offset the number of best matches to skip
+     * @param limit  the maximum number of matches to return
+     * @return the matches after the first {@code offset}, at most {@code limit}
+     */
+    public List<GoodMatch> search(String query, int offset, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int wanted = offset + limit;
+        List<GoodMatch> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            prefixMatches(key, wanted, matches);
+            if (matches.size() < wanted) {
+                substringMatches(key, matches);
+            }
+            if (matches.size() < wanted) {
+                fuzzyMatches(key, matches);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return offset >= matches.size() ? List.of()
+                : List.copyOf(matches.subList(offset, Math.min(wanted, matches.size())));
+    }
+
+    /**
+     * @return the name in lower case without leading, trailing or repeated whitespace
+     */
+    static String normalize(String name) {
+        return Objects.isNull(name) ? "" : WHITESPACE.matcher(name.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The number of edits between two strings, where inserting, deleting or replacing a letter and swapping two
+     * neighbouring letters each count as one, or {@code max + 1} if it is more than {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        int previousMin = 0;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            /* a swap reaches back two rows, so only two rows over the limit end the search */
+            if (rowMin > max && previousMin > max) {
+                return max + 1;
+            }
+            previousMin = rowMin;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * The exact and the prefix matches, in name order, until {@code wanted} matches are found.
+     */
+    private void prefixMatches(String key, int wanted, List<GoodMatch> matches) {
+        for (var entry : byKey.subMap(key, true, key + Character.MAX_VALUE, false).entrySet()) {
+            String match = entry.getKey().equals(key) ? "exact" : "prefix";
+            IntList list = entry.getValue();
+            for (int i = 0; i < list.size; i++) {
+                matches.add(match(list.values[i], match, 0));
+            }
+            if (matches.size() >= wanted) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The names containing the query but not starting with it, in name order.
+     */
+    private void substringMatches(String key, List<GoodMatch> matches) {
+        IntList rarest = null;
+        for (String trigram : trigrams(key)) {
+            IntList list = byTrigram.get(trigram);
+            if (Objects.isNull(list)) {
+                return;
+            }
+            if (Objects.isNull(rarest) || list.size < rarest.size) {
+                rarest = list;
+            }
+        }
+        if (Objects.isNull(rarest)) {
+            /* shorter than a trigram, only prefixes are searched */
+            return;
+        }
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < rarest.size; i++) {
+            int ordinal = rarest.values[i];
+            String candidate = keys.get(ordinal);
+            if (Objects.nonNull(candidate) && !candidate.startsWith(key) && candidate.contains(key)) {
+                found.add(ordinal);
+            }
+        }
+        found.sort(Comparator.comparing(keys::get));
+        found.forEach(ordinal -> matches.add(match(ordinal, "substring", 0)));
+    }
+
+    /**
+     * The names within the tolerated number of typos of the query that do not contain it, by distance and name.
+     */
+    private void fuzzyMatches(String key, List<GoodMatch> matches) {
+        int maxTypos = key.length() >= 6 ? 2 : key.length() >= 3 ? 1 : 0;
+        if (maxTypos == 0) {
+            return;
+        }
+        Set<String> trigrams = trigrams(" " + key + " ");
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String trigram : trigrams) {
+            IntList list = byTrigram.get(trigram);
+            if (Objects.nonNull(list) && list.size <= MAX_FUZZY_POSTINGS) {
+                for (int i = 0; i < list.size; i++) {
+                    shared.merge(list.values[i], 1, Integer::sum);
+                }
+            }
+        }
+        /* a name within a typo or two of the query still shares a third of its trigrams, the rest is noise */
+        int minShared = Math.max(1, trigrams.size() / 3);
+        List<int[]> found = new ArrayList<>();
+        shared.forEach((ordinal, count) -> {
+            String candidate = keys.get(ordinal);
+            if (count >= minShared && Objects.nonNull(candidate) && !candidate.contains(key)) {
+                int typos = typos(key, candidate, maxTypos);
+                if (typos <= maxTypos) {
+                    found.add(new int[]{ordinal, typos});
+                }
+            }
+        });
+        found.sort(Comparator.<int[]>comparingInt(hit -> hit[1]).thenComparing(hit -> keys.get(hit[0])));
+        found.forEach(hit -> matches.add(match(hit[0], "fuzzy", hit[1])));
+    }
+
+    /**
+     * The fewest typos between the query and the whole name, the start of the name or one of its words.
+     */
+    private static int typos(String key, String candidate, int max) {
+        int best = distance(key, candidate, max);
+        if (candidate.length() > key.length()) {
+            best = Math.min(best, distance(key, candidate.substring(0, key.length()), max));
+        }
+        for (String word : candidate.split(" ")) {
+            if (best == 0) {
+                break;
+            }
+            best = Math.min(best, distance(key, word, max));
+        }
+        return best;
+    }
+
+    /**
+     * The distinct windows of three letters of a text whose middle letter is not a space, which for a padded
+     * name are the trigrams of its padded words.
+     */
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            if (text.charAt(i + 1) != ' ') {
+                trigrams.add(text.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private GoodMatch match(int ordinal, String match, int distance) {
+        return new GoodMatch(ids.get(ordinal), names.get(ordinal), match, distance);
+    }
+
+    private void add(UUID id, String name) {
+        int ordinal = ids.size();
+        String key = normalize(name);
+        ids.add(id);
+        keys.add(key);
+        names.add(name);
+        ordinals.put(id, ordinal);
+        byKey.computeIfAbsent(key, k -> new IntList()).add(ordinal);
+        for (String trigram : trigrams(" " + key + " ")) {
+            byTrigram.computeIfAbsent(trigram, t -> new IntList()).add(ordinal);
+        }
+    }
+
+    private void kill(int ordinal) {
+        String key = keys.get(ordinal);
+        IntList list = byKey.get(key);
+        list.remove(ordinal);
+        if (list.size == 0) {
+            byKey.remove(key);
+        }
+        keys.set(ordinal, null);
+        dead++;
+    }
+
+    /**
+     * Index the live goods again under new ordinals once half of the ordinals are dead.
+     */
+    private void compactIfNeeded() {
+        if (dead < Math.max(MIN_COMPACTION, ordinals.size())) {
+            return;
+        }
+        List<UUID> liveIds = new ArrayList<>(ordinals.size());
+        List<String> liveNames = new ArrayList<>(ordinals.size());
+        for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+            if (Objects.nonNull(keys.get(ordinal))) {
+                liveIds.add(ids.get(ordinal));
+                liveNames.add(names.get(ordinal));
+            }
+        }
+        ids.clear();
+        keys.clear();
+        names.clear();
+        ordinals.clear();
+        byKey.clear();
+        byTrigram.clear();
+        dead = 0;
+        for (int i = 0; i < liveIds.size(); i++) {
+            add(liveIds.get(i), liveNames.get(i));
+        }
+    }
+
+    /**
+     * A growable list of ordinals, much smaller than a list of boxed integers.
+     */
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.BulkItemResult;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.ImportRow;
+import dev.xxj.logistics.model.MoveDTO;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * BulkInventoryService interface applies large numbers of stock changes with as few database round trips
+ * as possible.
+ * <p>
+ * Items are processed in chunks. Each chunk runs in one transaction that reads the occupancy of every
+ * involved warehouse once, validates the items in order and writes all changes with JDBC batching.
+ * Every item gets its own {@link BulkItemResult}; a rejected item does not affect the others.
+ * <p>
+ * The iterator variants never hold more than one chunk in memory, so they can consume streams of any size.
+ *
+ * @author Frank-Xiao
+ * @see InventoryService
+ */
+public interface BulkInventoryService {
+    /**
+     * Store goods into warehouses.
+     *
+     * @param items   the items to store, consumed one chunk at a time
+     * @param results receives one result per item, in item order
+     */
+    void storeAll(Iterator<GoodStorageDto> items, Consumer<BulkItemResult> results);
+
+    /**
+     * Retrieve goods from warehouses.
+     *
+     * @param items   the items to retrieve, consumed one chunk at a time
+     * @param results receives one result per item, in item order
+     */
+    void retrieveAll(Iterator<GoodStorageDto> items, Consumer<BulkItemResult> results);
+
+    /**
+     * Move goods between warehouses.
+     *
+     * @param items   the moves, consumed one chunk at a time
+     * @param results receives one result per item, in item order
+     */
+    void moveAll(Iterator<MoveDTO> items, Consumer<BulkItemResult> results);
+
+    /**
+     * Import goods, warehouses and stock levels.
+     * <p>
+     * Goods and warehouses are matched by name and only registered if no good or warehouse of that name
+     * exists yet, so importing the same file twice creates nothing new. A stock level replaces the amount of the
+     * good in the warehouse, so when several rows name the same good and warehouse, the last one wins.
+     *
+     * @param rows    the rows to import, consumed one chunk at a time
+     * @param results receives one result per row, in row order
+     */
+    void importAll(Iterator<ImportRow> rows, Consumer<BulkItemResult> results);
+
+    /**
+     * Store goods into warehouses.
+     *
+     * @param items the items to store
+     * @return one result per item, in item order
+     */
+    default List<BulkItemResult> storeAll(List<GoodStorageDto> items) {
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        storeAll(items.iterator(), results::add);
+        return results;
+    }
+
+    /**
+     * Retrieve goods from warehouses.
+     *
+     * @param items the items to retrieve
+     * @return one result per item, in item order
+     */
+    default List<BulkItemResult> retrieveAll(List<GoodStorageDto> items) {
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        retrieveAll(items.iterator(), results::add);
+        return results;
+    }
+
+    /**
+     * Move goods between warehouses.
+     *
+     * @param items the moves
+     * @return one result per item, in item order
+     */
+    default List<BulkItemResult> moveAll(List<MoveDTO> items) {
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        moveAll(items.iterator(), results::add);
+        return results;
+    }
+}
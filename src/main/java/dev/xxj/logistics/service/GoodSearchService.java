@@ -0,0 +1,45 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.CursorPage;
+import dev.xxj.logistics.model.GoodMatch;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * GoodSearchService finds goods by a part of their name, ignoring case and tolerating typos.
+ * <p>
+ * The services that register, rename or delete goods report it here, so the search sees the change as soon as
+ * it is committed.
+ *
+ * @author Frank-Xiao
+ * @see GoodMatch
+ */
+public interface GoodSearchService {
+    /**
+     * Find goods by name, best matches first: the exact matches, the names starting with the query, the names
+     * containing it and the names within a few typos of it.
+     *
+     * @param query the query, case and repeated whitespace do not matter
+     * @param page  the index of the page, starting at 0
+     * @param size  the page size, at most {@link CursorPage#MAX_SIZE}
+     * @return the matches of the page
+     * @throws IllegalArgumentException if the page is negative
+     */
+    List<GoodMatch> search(String query, int page, int size);
+
+    /**
+     * Make a registered or renamed good searchable once the current transaction, if any, commits.
+     *
+     * @param id   the id of the good
+     * @param name the name of the good
+     */
+    void index(UUID id, String name);
+
+    /**
+     * Remove a deleted good from the search once the current transaction, if any, commits.
+     *
+     * @param id the id of the good
+     */
+    void unindex(UUID id);
+}
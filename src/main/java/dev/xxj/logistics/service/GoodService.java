@@ -1,6 +1,8 @@
 package dev.xxj.logistics.service;
 
 import dev.xxj.logistics.model.*;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.List;
 import java.util.UUID;
@@ -43,8 +45,10 @@ public interface GoodService {
     /**
      * Update a good's details.
      *
-     * @param good the good object to be updated, should contain the id of the good
+     * @param good the good object to be updated, should contain the id of the good, and the version it was read
+     *             with to fail instead of overwriting a concurrent update
      * @return the updated good object if the good is registered, null otherwise
+     * @throws OptimisticLockingFailureException if the good was updated since that version
      * @see Good
      */
     Good updateGood(Good good);
@@ -63,13 +67,33 @@ public interface GoodService {
      */
     List<Good> getAllGoods();
 
+    /**
+     * Get the version of all goods, which changes whenever a good is added, updated or deleted.
+     *
+     * @return the current version of the goods, read without the database
+     */
+    CollectionVersion getGoodsVersion();
+
+    /**
+     * Get one page of goods with keyset pagination.
+     *
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @param sort   the sort of the first page, {@code id} or {@code name} optionally followed by {@code ,desc};
+     *               ignored when a cursor is given since the cursor remembers it
+     * @param size   the page size, at most {@link CursorPage#MAX_SIZE}
+     * @return the page of lightweight {@link GoodSummary} projections
+     * @throws IllegalArgumentException           if the cursor or the sort direction is invalid
+     * @throws InvalidDataAccessApiUsageException if the sort property is not sortable
+     */
+    CursorPage<GoodSummary> getGoodPage(String cursor, String sort, int size);
+
     /**
      * Get all locations of one good.
      *
      * @param id UUID of the good
-     * @return a list of {@link Warehouse} objects where the good is stored
+     * @return a list of {@link WarehouseSummary} objects of the warehouses where the good is stored
      */
-    List<Warehouse> getLocations(UUID id);
+    List<WarehouseSummary> getLocations(UUID id);
 
     /**
      * Get the total stored amount of a good in the system.
@@ -99,9 +123,9 @@ public interface GoodService {
      * Store an amount of good into a warehouse
      *
      * @param goodStorageDto dto object containing the good id, warehouse id, and amount to store
-     * @return the {@link GoodStorage} object if the storage is successful, null otherwise
+     * @return the stored goods if the storage is successful
      */
-    GoodStorage storeGood(GoodStorageDto goodStorageDto);
+    GoodStorageDto storeGood(GoodStorageDto goodStorageDto);
 
     /**
      * Retrieve an amount of good from a warehouse
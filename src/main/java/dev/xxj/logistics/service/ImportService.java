@@ -0,0 +1,48 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.ImportFormat;
+import dev.xxj.logistics.model.ImportStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * ImportService interface runs inventory imports in the background.
+ * <p>
+ * An upload is saved to a file first, so the request returns as soon as it is received, and the file is
+ * then imported chunk by chunk with {@link BulkInventoryService#importAll}.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.model.ImportRow
+ */
+public interface ImportService {
+    /**
+     * Save an upload and queue its import.
+     *
+     * @param body   the uploaded rows
+     * @param format the format of the rows
+     * @return the status of the queued job
+     * @throws IOException if the upload cannot be saved
+     */
+    ImportStatus submit(InputStream body, ImportFormat format) throws IOException;
+
+    /**
+     * Get the progress of a job.
+     *
+     * @param id the id of the job
+     * @return the status, or empty if there is no such job or it has been purged
+     */
+    Optional<ImportStatus> getStatus(UUID id);
+
+    /**
+     * Get the rejected rows of a job.
+     *
+     * @param id the id of the job
+     * @return a CSV file with the row number and the reason of every rejected row, or empty if there is no
+     * such job
+     */
+    Optional<Path> getErrors(UUID id);
+}
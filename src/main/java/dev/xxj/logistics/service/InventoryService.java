@@ -0,0 +1,59 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.exception.InventoryException;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.InventoryRow;
+import dev.xxj.logistics.model.MoveDTO;
+
+import java.util.function.Consumer;
+
+/**
+ * InventoryService interface applies stock changes to warehouses atomically.
+ * <p>
+ * Each operation either applies completely or not at all. A rejected operation throws an
+ * {@link InventoryException} and leaves the inventory unchanged, so it is safe to call these methods
+ * concurrently for the same warehouse and good.
+ *
+ * @author Frank-Xiao
+ * @see GoodService
+ */
+public interface InventoryService {
+    /**
+     * Store an amount of good into a warehouse.
+     *
+     * @param dto dto object containing the good id, warehouse id, and amount to store
+     * @throws CapacityExceededException if the warehouse would exceed its maximum amount
+     * @throws InventoryException        if the warehouse or the good does not exist
+     */
+    void store(GoodStorageDto dto);
+
+    /**
+     * Retrieve an amount of good from a warehouse.
+     *
+     * @param dto dto object containing the good id, warehouse id, and amount to retrieve
+     * @throws InsufficientStockException if the warehouse does not store enough goods of this kind
+     */
+    void retrieve(GoodStorageDto dto);
+
+    /**
+     * Move an amount of good from one warehouse to another.
+     *
+     * @param dto dto object containing the good id, source warehouse id, target warehouse id, and amount to move
+     * @throws InsufficientStockException if the source warehouse does not store enough goods of this kind
+     * @throws CapacityExceededException  if the target warehouse would exceed its maximum amount
+     */
+    void move(MoveDTO dto);
+
+    /**
+     * Read every storage of the inventory and hand it to the consumer one row at a time.
+     * <p>
+     * The rows are streamed from the database in one read-only transaction, so the memory used does not depend
+     * on the size of the inventory.
+     *
+     * @param rows receives one {@link InventoryRow} per storage, ordered by good and warehouse
+     * @return the number of rows
+     */
+    long export(Consumer<InventoryRow> rows);
+}
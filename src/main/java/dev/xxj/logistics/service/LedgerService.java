@@ -0,0 +1,58 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.InventoryBalance;
+import dev.xxj.logistics.model.InventorySnapshot;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * LedgerService interface appends to the inventory ledger and rebuilds past inventory states from it.
+ *
+ * @author Frank-Xiao
+ * @see dev.xxj.logistics.model.InventoryMovement
+ * @see InventorySnapshot
+ */
+public interface LedgerService {
+    /**
+     * Append a change of the amount of a good in a warehouse. It must be called in the transaction that changes
+     * the {@link dev.xxj.logistics.model.GoodStorage}, so the ledger and the balances commit or roll back together.
+     * That transaction fails to commit once its first movement is older than {@code logistics.ledger.commit-timeout},
+     * so no movement commits later than that after its time.
+     *
+     * @param warehouseId the id of the warehouse
+     * @param goodId      the id of the good
+     * @param delta       the signed change of the amount, nothing is appended for 0
+     * @param operation   the operation that changed the amount
+     */
+    void append(UUID warehouseId, UUID goodId, long delta, String operation);
+
+    /**
+     * Rebuild the inventory as it was at a point in time from the latest snapshot before it and the movements
+     * after that snapshot.
+     *
+     * @param at the point in time
+     * @return the positive balances of every (warehouse, good) pair, sorted by warehouse id and good id
+     */
+    List<InventoryBalance> getBalancesAt(Instant at);
+
+    /**
+     * Check the latest snapshot against the stored balances: its balances plus every movement appended after it
+     * must equal the amount of every good in every warehouse. A difference means that a movement was committed
+     * too late to be part of the snapshot, and every rebuild after the snapshot misses it.
+     *
+     * @return the rebuilt balance minus the stored amount of every (warehouse, good) pair where they differ
+     */
+    List<InventoryBalance> checkLatestSnapshot();
+
+    /**
+     * Store the balances as of a point in time, so that later rebuilds only read the movements after it.
+     *
+     * @param takenAt the point in time, which should be further in the past than the longest a transaction that
+     *                appends movements may take to commit
+     * @return the new snapshot, or empty if nothing moved since the previous snapshot
+     */
+    Optional<InventorySnapshot> snapshot(Instant takenAt);
+}
@@ -0,0 +1,20 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.AccessToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ * TokenService interface issues the access tokens of API clients.
+ *
+ * @author Frank-Xiao
+ * @see AccessToken
+ */
+public interface TokenService {
+    /**
+     * Issue a token for an authenticated user.
+     *
+     * @param authentication the authentication of the user
+     * @return a token carrying the name and the authorities of the user
+     */
+    AccessToken issue(Authentication authentication);
+}
@@ -1,6 +1,11 @@
 package dev.xxj.logistics.service;
 
+import dev.xxj.logistics.model.CollectionVersion;
+import dev.xxj.logistics.model.CursorPage;
 import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseSummary;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.List;
 import java.util.UUID;
@@ -33,8 +38,10 @@ public interface WarehouseService {
     /**
      * Update the warehouse.
      *
-     * @param warehouse the warehouse to be updated, should contain the id of the warehouse
+     * @param warehouse the warehouse to be updated, should contain the id of the warehouse, and the version it was
+     *                  read with to fail instead of overwriting a concurrent update
      * @return the updated warehouse
+     * @throws OptimisticLockingFailureException if the warehouse was updated since that version
      */
     Warehouse updateWarehouse(Warehouse warehouse);
 
@@ -67,4 +74,24 @@ public interface WarehouseService {
      * @return a list of all the warehouses
      */
     List<Warehouse> getAllWarehouses();
+
+    /**
+     * Get the version of all warehouses, which changes whenever a warehouse is added, updated or deleted.
+     *
+     * @return the current version of the warehouses, read without the database
+     */
+    CollectionVersion getWarehousesVersion();
+
+    /**
+     * Get one page of warehouses with keyset pagination.
+     *
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @param sort   the sort of the first page, {@code id}, {@code name} or {@code maxAmount} optionally followed
+     *               by {@code ,desc}; ignored when a cursor is given since the cursor remembers it
+     * @param size   the page size, at most {@link CursorPage#MAX_SIZE}
+     * @return the page of lightweight {@link WarehouseSummary} projections
+     * @throws IllegalArgumentException           if the cursor or the sort direction is invalid
+     * @throws InvalidDataAccessApiUsageException if the sort property is not sortable
+     */
+    CursorPage<WarehouseSummary> getWarehousePage(String cursor, String sort, int size);
 }
@@ -0,0 +1,504 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.config.CacheNames;
+import dev.xxj.logistics.metrics.InventoryMetrics;
+import dev.xxj.logistics.model.*;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import dev.xxj.logistics.service.BulkInventoryService;
+import dev.xxj.logistics.service.GoodSearchService;
+import dev.xxj.logistics.service.LedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * BulkInventoryServiceImpl is the implementation of {@link BulkInventoryService}.
+ * <p>
+ * Store, retrieve and move items are all handled as one kind of change with an optional source and an
+ * optional target warehouse. For each chunk, in one transaction, it
+ * <ol>
+ *     <li>locks the occupancy counters of all involved warehouses in id order, like
+ *     {@link InventoryServiceImpl} does, so no other writer can change these warehouses meanwhile,</li>
+ *     <li>loads the maximum amounts, the existing goods and the existing storages with one query each,</li>
+ *     <li>validates and applies every item in order against this in-memory state,</li>
+ *     <li>lets Hibernate flush the changed counters and storages as batched, ordered UPDATE and INSERT
+ *     statements on commit.</li>
+ * </ol>
+ * Imports are chunked the same way. Each chunk looks up the goods and warehouses it names with one query each,
+ * registers the missing ones, locks the counters of the existing warehouses it changes and sets the stock
+ * levels. If the database still rejects a chunk, e.g. because another writer registered the same good
+ * meanwhile, only the rows of that chunk fail.
+ * <p>
+ * Every chunk is timed and its items are counted by outcome by {@link InventoryMetrics}.
+ *
+ * @author Frank-Xiao
+ * @see InventoryServiceImpl
+ */
+@Service
+@Slf4j
+public class BulkInventoryServiceImpl implements BulkInventoryService {
+    private static final int NAME_LENGTH = 255;
+    private final GoodRepository goodRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final GoodStorageRepository storageRepo;
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryMetrics metrics;
+    private final LedgerService ledgerService;
+    private final GoodSearchService searchService;
+    private final Cache goodsByName;
+    private final Cache goodLists;
+    private final Cache warehouseLists;
+    private final int chunkSize;
+
+    @Autowired
+    public BulkInventoryServiceImpl(GoodRepository goodRepository,
+                                    WarehouseRepository warehouseRepository,
+                                    GoodStorageRepository storageRepo,
+                                    WarehouseOccupancyRepository occupancyRepo,
+                                    PlatformTransactionManager transactionManager,
+                                    InventoryMetrics metrics,
+                                    LedgerService ledgerService,
+                                    GoodSearchService searchService,
+                                    CacheManager cacheManager,
+                                    @Value("${logistics.bulk.chunk-size:1000}") int chunkSize) {
+        this.goodRepository = goodRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.storageRepo = storageRepo;
+        this.occupancyRepo = occupancyRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.ledgerService = ledgerService;
+        this.searchService = searchService;
+        this.goodsByName = Objects.requireNonNull(cacheManager.getCache(CacheNames.GOODS_BY_NAME));
+        this.goodLists = Objects.requireNonNull(cacheManager.getCache(CacheNames.GOOD_LISTS));
+        this.warehouseLists = Objects.requireNonNull(cacheManager.getCache(CacheNames.WAREHOUSE_LISTS));
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void storeAll(Iterator<GoodStorageDto> items, Consumer<BulkItemResult> results) {
+        process("bulk_store", items, dto -> Objects.isNull(dto.warehouseId()) || Objects.isNull(dto.goodId()) ?
+                "A store needs a warehouse id and a good id" :
+                new Change(null, dto.warehouseId(), dto.goodId(), dto.amount()), results);
+    }
+
+    @Override
+    public void retrieveAll(Iterator<GoodStorageDto> items, Consumer<BulkItemResult> results) {
+        process("bulk_retrieve", items, dto -> Objects.isNull(dto.warehouseId()) || Objects.isNull(dto.goodId()) ?
+                "A retrieve needs a warehouse id and a good id" :
+                new Change(dto.warehouseId(), null, dto.goodId(), dto.amount()), results);
+    }
+
+    @Override
+    public void moveAll(Iterator<MoveDTO> items, Consumer<BulkItemResult> results) {
+        process("bulk_move", items, dto -> Objects.isNull(dto.fromId()) || Objects.isNull(dto.toId())
+                || Objects.isNull(dto.goodId()) ?
+                "A move needs a source warehouse id, a target warehouse id and a good id" :
+                new Change(dto.fromId(), dto.toId(), dto.goodId(), dto.amount()), results);
+    }
+
+    @Override
+    public void importAll(Iterator<ImportRow> rows, Consumer<BulkItemResult> results) {
+        process("import", rows, this::importChunk, results);
+    }
+
+    /**
+     * Apply bulk items chunk by chunk.
+     *
+     * @param toChange turns an item into its {@link Change}, or into the reason why it is rejected
+     */
+    private <T> void process(String operation, Iterator<T> items, Function<T, Object> toChange,
+                             Consumer<BulkItemResult> results) {
+        process(operation, items, (chunk, firstIndex) -> transactionTemplate.execute(
+                status -> apply(chunk.stream().map(toChange).toList(), firstIndex)), results);
+    }
+
+    /**
+     * Cut the items into chunks and apply one chunk after the other.
+     *
+     * @param applyChunk applies one chunk given the index of its first item, and returns one result per item
+     */
+    private <T> void process(String operation, Iterator<T> items,
+                             BiFunction<List<T>, Long, List<BulkItemResult>> applyChunk,
+                             Consumer<BulkItemResult> results) {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        long firstIndex = 0;
+        while (items.hasNext()) {
+            chunk.add(items.next());
+            if (chunk.size() == chunkSize || !items.hasNext()) {
+                long base = firstIndex;
+                Objects.requireNonNull(metrics.recordChunk(operation, () -> applyChunk.apply(chunk, base)))
+                        .forEach(results);
+                firstIndex += chunk.size();
+                chunk.clear();
+            }
+        }
+    }
+
+    private List<BulkItemResult> apply(List<Object> chunk, long firstIndex) {
+        Set<UUID> warehouseIds = new TreeSet<>();
+        Set<UUID> goodIds = new HashSet<>();
+        for (Object item : chunk) {
+            if (item instanceof Change change) {
+                if (Objects.nonNull(change.fromId())) warehouseIds.add(change.fromId());
+                if (Objects.nonNull(change.toId())) warehouseIds.add(change.toId());
+                goodIds.add(change.goodId());
+            }
+        }
+        boolean empty = warehouseIds.isEmpty() || goodIds.isEmpty();
+        var state = new ChunkState(
+                (empty ? List.<WarehouseOccupancy>of() : occupancyRepo.findAllForUpdate(warehouseIds)).stream()
+                        .collect(Collectors.toMap(WarehouseOccupancy::getWarehouseId, Function.identity())),
+                (empty ? List.<WarehouseSummary>of() : warehouseRepository.findSummariesByIdIn(warehouseIds)).stream()
+                        .collect(Collectors.toMap(WarehouseSummary::id, WarehouseSummary::maxAmount)),
+                new HashSet<>(empty ? List.of() : goodRepository.findExistingIds(goodIds)),
+                (empty ? List.<GoodStorage>of() : storageRepo.findAllByWarehouseIdsAndGoodIds(warehouseIds, goodIds))
+                        .stream()
+                        .collect(Collectors.toMap(
+                                storage -> new StorageKey(storage.getWarehouse().getId(), storage.getGood().getId()),
+                                Function.identity())));
+
+        List<BulkItemResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = chunk.get(i) instanceof Change change ? apply(change, state) : (String) chunk.get(i);
+            results.add(Objects.isNull(error) ? BulkItemResult.ok(firstIndex + i) :
+                    BulkItemResult.failed(firstIndex + i, error));
+        }
+        log.info("Applied bulk chunk of {} item(s) on {} warehouse(s)", chunk.size(), warehouseIds.size());
+        return results;
+    }
+
+    /**
+     * Validate one change against the chunk state and apply it if it is valid.
+     *
+     * @return null if the change is applied, otherwise the reason why it is rejected
+     */
+    private String apply(Change change, ChunkState state) {
+        UUID fromId = change.fromId(), toId = change.toId(), goodId = change.goodId();
+        Long amount = change.amount();
+        if (Objects.isNull(amount) || amount < 0) {
+            return "Amount must not be negative";
+        }
+        GoodStorage source = null;
+        if (Objects.nonNull(fromId)) {
+            source = state.storages().get(new StorageKey(fromId, goodId));
+            if (!state.occupancies().containsKey(fromId) || Objects.isNull(source)) {
+                return "No such goods in the warehouse";
+            }
+            if (source.getAmount() < amount) {
+                return "Not enough goods in the warehouse";
+            }
+        }
+        if (Objects.nonNull(toId)) {
+            if (!state.occupancies().containsKey(toId) || !state.maxAmounts().containsKey(toId)) {
+                return "No such warehouse";
+            }
+            if (!state.goodIds().contains(goodId)) {
+                return "No such good";
+            }
+            long occupied = state.occupancies().get(toId).getAmount() - (Objects.equals(fromId, toId) ? amount : 0);
+            if (occupied + amount > state.maxAmounts().get(toId)) {
+                return "Warehouse is full";
+            }
+        }
+
+        String operation = Objects.isNull(fromId) ? "store" : Objects.isNull(toId) ? "retrieve" : "move";
+        if (Objects.nonNull(source)) {
+            source.setAmount(source.getAmount() - amount);
+            var occupancy = state.occupancies().get(fromId);
+            occupancy.setAmount(occupancy.getAmount() - amount);
+            ledgerService.append(fromId, goodId, -amount, operation);
+        }
+        if (Objects.nonNull(toId)) {
+            var target = state.storages().computeIfAbsent(new StorageKey(toId, goodId),
+                    key -> storageRepo.save(GoodStorage.builder()
+                            .warehouse(warehouseRepository.getReferenceById(toId))
+                            .good(goodRepository.getReferenceById(goodId))
+                            .amount(0L)
+                            .build()));
+            target.setAmount(target.getAmount() + amount);
+            var occupancy = state.occupancies().get(toId);
+            occupancy.setAmount(occupancy.getAmount() + amount);
+            ledgerService.append(toId, goodId, amount, operation);
+        }
+        return null;
+    }
+
+    private List<BulkItemResult> importChunk(List<ImportRow> chunk, long firstIndex) {
+        try {
+            return transactionTemplate.execute(status -> importRows(chunk, firstIndex));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Import chunk of {} row(s) from row {} was rolled back", chunk.size(), firstIndex, e);
+            return LongStream.range(firstIndex, firstIndex + chunk.size())
+                    .mapToObj(index -> BulkItemResult.failed(index, "Rejected by the database, chunk rolled back"))
+                    .toList();
+        }
+    }
+
+    private List<BulkItemResult> importRows(List<ImportRow> chunk, long firstIndex) {
+        List<Object> parsed = chunk.stream().map(BulkInventoryServiceImpl::parse).toList();
+        List<Level> levels = parsed.stream().filter(Level.class::isInstance).map(Level.class::cast).toList();
+        Map<String, List<Good>> goods = levels.isEmpty() ? new HashMap<>() :
+                goodRepository.findByNameIn(levels.stream().map(Level::good).filter(Objects::nonNull).toList())
+                        .stream().collect(Collectors.groupingBy(Good::getName, HashMap::new, Collectors.toList()));
+        Map<String, List<Warehouse>> warehouses = levels.isEmpty() ? new HashMap<>() :
+                warehouseRepository.findByNameIn(levels.stream().map(Level::warehouse).filter(Objects::nonNull).toList())
+                        .stream().collect(Collectors.groupingBy(Warehouse::getName, HashMap::new, Collectors.toList()));
+
+        /* lock the counters of the existing warehouses whose stock levels change, in id order */
+        Set<UUID> warehouseIds = new TreeSet<>();
+        Set<UUID> goodIds = new HashSet<>();
+        for (Level level : levels) {
+            if (Objects.nonNull(level.amount())) {
+                var house = warehouses.getOrDefault(level.warehouse(), List.of());
+                var good = goods.getOrDefault(level.good(), List.of());
+                if (house.size() == 1) warehouseIds.add(house.getFirst().getId());
+                if (good.size() == 1) goodIds.add(good.getFirst().getId());
+            }
+        }
+        Map<UUID, WarehouseOccupancy> occupancies = (warehouseIds.isEmpty() ? List.<WarehouseOccupancy>of() :
+                occupancyRepo.findAllForUpdate(warehouseIds)).stream()
+                .collect(Collectors.toMap(WarehouseOccupancy::getWarehouseId, Function.identity()));
+        /* the warehouses found by name may come from the entity cache, check against the current maximum */
+        Map<UUID, Long> maxAmounts = (warehouseIds.isEmpty() ? List.<WarehouseSummary>of() :
+                warehouseRepository.findSummariesByIdIn(warehouseIds)).stream()
+                .collect(Collectors.toMap(WarehouseSummary::id, WarehouseSummary::maxAmount,
+                        (first, second) -> first, HashMap::new));
+        Map<StorageKey, GoodStorage> storages = (warehouseIds.isEmpty() || goodIds.isEmpty() ? List.<GoodStorage>of() :
+                storageRepo.findAllByWarehouseIdsAndGoodIds(warehouseIds, goodIds)).stream()
+                .collect(Collectors.toMap(
+                        storage -> new StorageKey(storage.getWarehouse().getId(), storage.getGood().getId()),
+                        Function.identity()));
+
+        var state = new ImportState(goods, warehouses, occupancies, maxAmounts, storages);
+        List<BulkItemResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            String error = parsed.get(i) instanceof Level level ? importRow(level, state) : (String) parsed.get(i);
+            results.add(Objects.isNull(error) ? BulkItemResult.ok(firstIndex + i) :
+                    BulkItemResult.failed(firstIndex + i, error));
+        }
+        log.info("Imported chunk of {} row(s), registered {} good(s) and {} warehouse(s)",
+                chunk.size(), state.createdGoods(), state.createdWarehouses());
+        return results;
+    }
+
+    /**
+     * Register the good and the warehouse of one row if they are missing and set its stock level.
+     * <p>
+     * The row is checked completely before anything is written, so a rejected row registers nothing.
+     *
+     * @return null if the row is imported, otherwise the reason why it is rejected
+     */
+    private String importRow(Level level, ImportState state) {
+        List<Good> goods = Objects.isNull(level.good()) ? List.of() :
+                state.goods().computeIfAbsent(level.good(), name -> new ArrayList<>());
+        if (goods.size() > 1) {
+            return "Ambiguous good name";
+        }
+        List<Warehouse> houses = Objects.isNull(level.warehouse()) ? List.of() :
+                state.warehouses().computeIfAbsent(level.warehouse(), name -> new ArrayList<>());
+        if (houses.size() > 1) {
+            return "Ambiguous warehouse name";
+        }
+        if (Objects.nonNull(level.warehouse()) && houses.isEmpty() && Objects.isNull(level.maxAmount())) {
+            return "No such warehouse";
+        }
+
+        /* a good or warehouse registered by this row stores nothing yet */
+        long current = 0, occupied = 0;
+        if (Objects.nonNull(level.amount())) {
+            Long maxAmount = level.maxAmount();
+            if (!houses.isEmpty()) {
+                UUID houseId = houses.getFirst().getId();
+                var occupancy = state.occupancies().get(houseId);
+                maxAmount = state.maxAmounts().get(houseId);
+                if (Objects.isNull(occupancy) || Objects.isNull(maxAmount)) {
+                    return "No such warehouse";
+                }
+                occupied = occupancy.getAmount();
+                if (!goods.isEmpty()) {
+                    GoodStorage storage = state.storages().get(new StorageKey(houseId, goods.getFirst().getId()));
+                    current = Objects.isNull(storage) ? 0 : storage.getAmount();
+                }
+            }
+            occupied += level.amount() - current;
+            if (occupied > maxAmount) {
+                return "Warehouse is full";
+            }
+        }
+
+        if (Objects.nonNull(level.good()) && goods.isEmpty()) {
+            Good registered = goodRepository.save(Good.builder().name(level.good()).build());
+            searchService.index(registered.getId(), registered.getName());
+            goods.add(registered);
+            goodsByName.evict(level.good());
+            goodLists.clear();
+            state.createdGoods++;
+        }
+        if (Objects.nonNull(level.warehouse()) && houses.isEmpty()) {
+            Warehouse saved = warehouseRepository.save(Warehouse.builder()
+                    .name(level.warehouse())
+                    .location(level.location())
+                    .maxAmount(level.maxAmount())
+                    .build());
+            houses.add(saved);
+            state.maxAmounts().put(saved.getId(), saved.getMaxAmount());
+            state.occupancies().put(saved.getId(), occupancyRepo.save(
+                    WarehouseOccupancy.builder().warehouseId(saved.getId()).amount(0L).build()));
+            warehouseLists.clear();
+            state.createdWarehouses++;
+        }
+        if (Objects.isNull(level.amount())) {
+            return null;
+        }
+
+        Good good = goods.getFirst();
+        Warehouse house = houses.getFirst();
+        var key = new StorageKey(house.getId(), good.getId());
+        GoodStorage storage = state.storages().get(key);
+        if (Objects.nonNull(storage)) {
+            storage.setAmount(level.amount());
+        } else if (level.amount() > 0) {
+            state.storages().put(key, storageRepo.save(GoodStorage.builder()
+                    .warehouse(house)
+                    .good(good)
+                    .amount(level.amount())
+                    .build()));
+        }
+        state.occupancies().get(house.getId()).setAmount(occupied);
+        ledgerService.append(house.getId(), good.getId(), level.amount() - current, "import");
+        return null;
+    }
+
+    /**
+     * Validate one import row.
+     *
+     * @return the {@link Level} of a valid row, otherwise the reason why it is rejected
+     */
+    private static Object parse(ImportRow row) {
+        String good = name(row.good()), warehouse = name(row.warehouse());
+        if (Objects.isNull(good) && Objects.isNull(warehouse)) {
+            return "Row names neither a good nor a warehouse";
+        }
+        if (Objects.nonNull(good) && good.length() > NAME_LENGTH
+                || Objects.nonNull(warehouse) && warehouse.length() > NAME_LENGTH) {
+            return "Name is longer than " + NAME_LENGTH + " characters";
+        }
+        Long maxAmount, amount;
+        try {
+            maxAmount = number(row.maxAmount());
+            amount = number(row.amount());
+        } catch (NumberFormatException e) {
+            return "Amounts must be whole numbers";
+        }
+        if (Objects.nonNull(maxAmount) && maxAmount <= 0) {
+            return "Max amount must be positive";
+        }
+        if (Objects.nonNull(amount) && (amount < 0 || Objects.isNull(good) || Objects.isNull(warehouse))) {
+            return "A stock level needs a good, a warehouse and an amount that is not negative";
+        }
+        return new Level(good, warehouse, name(row.location()), maxAmount, amount);
+    }
+
+    private static String name(String value) {
+        return Objects.isNull(value) || value.isBlank() ? null : value.strip();
+    }
+
+    private static Long number(String value) {
+        return Objects.isNull(value) || value.isBlank() ? null : Long.parseLong(value.strip());
+    }
+
+    /**
+     * One valid item of a bulk request: a store has no source, a retrieve has no target, a move has both.
+     */
+    private record Change(UUID fromId, UUID toId, UUID goodId, Long amount) {
+    }
+
+    private record StorageKey(UUID warehouseId, UUID goodId) {
+    }
+
+    /**
+     * A valid import row with its names stripped and its amounts parsed.
+     */
+    private record Level(String good, String warehouse, String location, Long maxAmount, Long amount) {
+    }
+
+    /**
+     * Goods and warehouses by name, locked counters, maximum amounts and storages of one import chunk.
+     */
+    private static final class ImportState {
+        private final Map<String, List<Good>> goods;
+        private final Map<String, List<Warehouse>> warehouses;
+        private final Map<UUID, WarehouseOccupancy> occupancies;
+        private final Map<UUID, Long> maxAmounts;
+        private final Map<StorageKey, GoodStorage> storages;
+        private int createdGoods;
+        private int createdWarehouses;
+
+        private ImportState(Map<String, List<Good>> goods,
+                            Map<String, List<Warehouse>> warehouses,
+                            Map<UUID, WarehouseOccupancy> occupancies,
+                            Map<UUID, Long> maxAmounts,
+                            Map<StorageKey, GoodStorage> storages) {
+            this.goods = goods;
+            this.warehouses = warehouses;
+            this.occupancies = occupancies;
+            this.maxAmounts = maxAmounts;
+            this.storages = storages;
+        }
+
+        Map<String, List<Good>> goods() {
+            return goods;
+        }
+
+        Map<String, List<Warehouse>> warehouses() {
+            return warehouses;
+        }
+
+        Map<UUID, WarehouseOccupancy> occupancies() {
+            return occupancies;
+        }
+
+        Map<UUID, Long> maxAmounts() {
+            return maxAmounts;
+        }
+
+        Map<StorageKey, GoodStorage> storages() {
+            return storages;
+        }
+
+        int createdGoods() {
+            return createdGoods;
+        }
+
+        int createdWarehouses() {
+            return createdWarehouses;
+        }
+    }
+
+    /**
+     * Locked counters, maximum amounts, existing goods and storages of one chunk.
+     */
+    private record ChunkState(Map<UUID, WarehouseOccupancy> occupancies,
+                              Map<UUID, Long> maxAmounts,
+                              Set<UUID> goodIds,
+                              Map<StorageKey, GoodStorage> storages) {
+    }
+}
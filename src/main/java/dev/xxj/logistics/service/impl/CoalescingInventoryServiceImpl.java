@@ -0,0 +1,304 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.exception.InventoryException;
+import dev.xxj.logistics.metrics.InventoryMetrics;
+import dev.xxj.logistics.model.GoodStorage;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.InventoryRow;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.WarehouseOccupancy;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import dev.xxj.logistics.service.InventoryService;
+import dev.xxj.logistics.service.LedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * CoalescingInventoryServiceImpl is the implementation of {@link InventoryService} used when
+ * {@code logistics.inventory.write-mode} is {@code coalescing}.
+ * <p>
+ * Stores and retrieves of the same good in the same warehouse are gathered into one batch. The first caller of a
+ * batch leads it: it waits up to {@code logistics.inventory.coalesce-window}, or until
+ * {@code logistics.inventory.max-batch} commands joined, and then commits the whole batch in one transaction
+ * while the callers that joined wait for their answer. That transaction locks the counter of the warehouse,
+ * reads the occupancy and the stored amount once, decides every command in arrival order exactly like
+ * {@link InventoryServiceImpl} would have one after the other, and writes only the net change of the counter and
+ * the storage row. Every accepted command is still appended to the ledger on its own.
+ * <p>
+ * Unlike the {@code sharded} mode no state is kept between batches, so the answers are exact even when other
+ * instances write to the same database. A batch the database rejects anyway is replayed one command at a time
+ * through {@link InventoryServiceImpl}. Moves take the counters of two warehouses and are always run by
+ * {@link InventoryServiceImpl}; they wait for the batches of their warehouses on the counter row locks.
+ * <p>
+ * A command is committed in its own transaction, even if the caller has one.
+ *
+ * @author Frank-Xiao
+ * @see InventoryServiceImpl
+ * @see ShardedInventoryServiceImpl
+ */
+@Service
+@Primary
+@Slf4j
+@ConditionalOnProperty(name = "logistics.inventory.write-mode", havingValue = "coalescing")
+public class CoalescingInventoryServiceImpl implements InventoryService {
+    private final InventoryServiceImpl lockingService;
+    private final GoodRepository goodRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final GoodStorageRepository storageRepo;
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final LedgerService ledgerService;
+    private final InventoryMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration window;
+    private final int maxBatch;
+    /* the batches still accepting commands, by (warehouse, good) */
+    private final Map<PairKey, Batch> open = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CoalescingInventoryServiceImpl(InventoryServiceImpl lockingService,
+                                          GoodRepository goodRepository,
+                                          WarehouseRepository warehouseRepository,
+                                          GoodStorageRepository storageRepo,
+                                          WarehouseOccupancyRepository occupancyRepo,
+                                          LedgerService ledgerService,
+                                          InventoryMetrics metrics,
+                                          PlatformTransactionManager transactionManager,
+                                          @Value("${logistics.inventory.coalesce-window:PT0.002S}") Duration window,
+                                          @Value("${logistics.inventory.max-batch:256}") int maxBatch) {
+        this.lockingService = lockingService;
+        this.goodRepository = goodRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.storageRepo = storageRepo;
+        this.occupancyRepo = occupancyRepo;
+        this.ledgerService = ledgerService;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.window = window;
+        this.maxBatch = maxBatch;
+        log.info("Inventory writes are coalesced for {} into batches of up to {} command(s)", window, maxBatch);
+    }
+
+    @Override
+    public void store(GoodStorageDto dto) {
+        if (Objects.isNull(dto.warehouseId()) || Objects.isNull(dto.goodId())) {
+            lockingService.store(dto);
+            return;
+        }
+        submit(new Command(new PairKey(dto.warehouseId(), dto.goodId()), true, validAmount(dto.amount())));
+    }
+
+    @Override
+    public void retrieve(GoodStorageDto dto) {
+        if (Objects.isNull(dto.warehouseId()) || Objects.isNull(dto.goodId())) {
+            lockingService.retrieve(dto);
+            return;
+        }
+        submit(new Command(new PairKey(dto.warehouseId(), dto.goodId()), false, validAmount(dto.amount())));
+    }
+
+    @Override
+    public void move(MoveDTO dto) {
+        lockingService.move(dto);
+    }
+
+    @Override
+    public long export(Consumer<InventoryRow> rows) {
+        return lockingService.export(rows);
+    }
+
+    /**
+     * Join the open batch of the command's pair, or open one and lead it, and wait for the answer.
+     */
+    private void submit(Command command) {
+        Batch[] joined = new Batch[1];
+        boolean[] leading = new boolean[1];
+        open.compute(command.key(), (key, batch) -> {
+            leading[0] = Objects.isNull(batch);
+            joined[0] = leading[0] ? new Batch() : batch;
+            joined[0].commands.add(command);
+            if (joined[0].commands.size() < maxBatch) {
+                return joined[0];
+            }
+            /* full, close it to later commands and wake its leader */
+            joined[0].full.countDown();
+            return null;
+        });
+        if (leading[0]) {
+            lead(command.key(), joined[0]);
+        }
+        try {
+            command.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for the window to pass or the batch to fill up, close the batch and commit it.
+     */
+    private void lead(PairKey key, Batch batch) {
+        try {
+            batch.full.await(window.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        /* commands only join inside compute, so after this the batch does not change any more */
+        open.remove(key, batch);
+        List<Command> commands = batch.commands;
+        try {
+            List<RuntimeException> rejections = transactionTemplate.execute(status -> commit(key, commands));
+            metrics.recordCoalescedBatch(commands.size(), true);
+            for (int i = 0; i < commands.size(); i++) {
+                if (Objects.isNull(rejections.get(i))) {
+                    commands.get(i).result().complete(null);
+                } else {
+                    commands.get(i).result().completeExceptionally(rejections.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.info("Inventory replays a batch of {} command(s) on {}: {}", commands.size(), key, e.getMessage());
+            metrics.recordCoalescedBatch(commands.size(), false);
+            commands.forEach(this::runLocking);
+        }
+    }
+
+    /**
+     * Decide the commands of one pair in arrival order against its locked counter, apply their net change and
+     * append the accepted ones to the ledger.
+     *
+     * @return the rejection of every command, null for the accepted ones
+     */
+    private List<RuntimeException> commit(PairKey key, List<Command> commands) {
+        UUID warehouseId = key.warehouseId(), goodId = key.goodId();
+        Optional<WarehouseOccupancy> counter = metrics.recordLockWait("coalesced",
+                () -> occupancyRepo.findForUpdate(warehouseId));
+        Optional<Long> maxAmount = warehouseRepository.findMaxAmountById(warehouseId);
+        if (counter.isEmpty() || maxAmount.isEmpty()) {
+            throw new IllegalStateException("No counter for warehouse " + warehouseId);
+        }
+        Optional<GoodStorage> storage = storageRepo.findByWarehouse_IdAndGood_Id(warehouseId, goodId);
+        long occupancy = counter.get().getAmount();
+        long stored = storage.map(GoodStorage::getAmount).orElse(0L);
+        boolean rowExists = storage.isPresent();
+        Boolean goodExists = storage.isPresent() ? Boolean.TRUE : null;
+
+        List<RuntimeException> rejections = new ArrayList<>(commands.size());
+        long net = 0;
+        for (Command command : commands) {
+            long delta = command.store() ? command.amount() : -command.amount();
+            RuntimeException rejection = null;
+            if (command.store()) {
+                if (Objects.isNull(goodExists)) {
+                    goodExists = goodRepository.findById(goodId).isPresent();
+                }
+                if (!goodExists) {
+                    rejection = new InventoryException("No such good");
+                } else if (occupancy + delta > maxAmount.get()) {
+                    rejection = new CapacityExceededException("Warehouse is full");
+                }
+            } else if (stored < command.amount()) {
+                rejection = new InsufficientStockException(rowExists
+                        ? "Not enough goods in the warehouse" : "No such goods in the warehouse");
+            }
+            rejections.add(rejection);
+            if (Objects.isNull(rejection)) {
+                occupancy += delta;
+                stored += delta;
+                net += delta;
+                rowExists |= command.store();
+                ledgerService.append(warehouseId, goodId, delta, command.store() ? "store" : "retrieve");
+            }
+        }
+
+        if (net > 0 && occupancyRepo.increase(warehouseId, net) == 0
+                || net < 0 && occupancyRepo.decrease(warehouseId, -net) == 0) {
+            throw new IllegalStateException("Occupancy of warehouse " + warehouseId + " changed meanwhile");
+        }
+        if (storage.isEmpty() && rowExists) {
+            storageRepo.save(GoodStorage.builder()
+                    .warehouse(warehouseRepository.getReferenceById(warehouseId))
+                    .good(goodRepository.getReferenceById(goodId))
+                    .amount(net)
+                    .build());
+        } else if (net > 0) {
+            storageRepo.increaseAmount(warehouseId, goodId, net);
+        } else if (net < 0 && storageRepo.decreaseAmount(warehouseId, goodId, -net) == 0) {
+            throw new IllegalStateException("Storage " + key + " changed meanwhile");
+        }
+        /* flush here so that a rejected insert fails the batch before the callers are answered */
+        storageRepo.flush();
+        return rejections;
+    }
+
+    /**
+     * Run a command through {@link InventoryServiceImpl} in its own transaction and answer its caller.
+     */
+    private void runLocking(Command command) {
+        try {
+            var dto = new GoodStorageDto(command.key().warehouseId(), command.key().goodId(), command.amount());
+            if (command.store()) {
+                lockingService.store(dto);
+            } else {
+                lockingService.retrieve(dto);
+            }
+            command.result().complete(null);
+        } catch (RuntimeException e) {
+            command.result().completeExceptionally(e);
+        }
+    }
+
+    private static long validAmount(Long amount) {
+        if (Objects.isNull(amount) || amount < 0) {
+            throw new InventoryException("Amount must not be negative");
+        }
+        return amount;
+    }
+
+    private record PairKey(UUID warehouseId, UUID goodId) {
+    }
+
+    /**
+     * A store or retrieve waiting for its batch.
+     */
+    private record Command(PairKey key, boolean store, long amount, CompletableFuture<Void> result) {
+        Command(PairKey key, boolean store, long amount) {
+            this(key, store, amount, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * The commands of one pair gathered in arrival order, only changed while the batch is open.
+     */
+    private static final class Batch {
+        private final List<Command> commands = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
@@ -0,0 +1,142 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.model.CursorPage;
+import dev.xxj.logistics.model.GoodMatch;
+import dev.xxj.logistics.model.GoodSummary;
+import dev.xxj.logistics.model.PageCursor;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.search.GoodNameIndex;
+import dev.xxj.logistics.service.GoodSearchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * GoodSearchServiceImpl is the implementation of {@link GoodSearchService} on a {@link GoodNameIndex}.
+ * <p>
+ * The index is loaded page by page when the application is ready, and loaded again every
+ * {@code logistics.search.rebuild-interval} to pick up goods written by other instances or directly in the
+ * database. Changes reported while it loads go to both the old and the new index. Until the first load is done,
+ * queries are answered by a case-insensitive prefix query on the database, which uses the {@code lower(name)}
+ * index of the good table on MySQL.
+ *
+ * @author Frank-Xiao
+ * @see GoodNameIndex
+ */
+@Service
+@Slf4j
+public class GoodSearchServiceImpl implements GoodSearchService {
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private final GoodRepository goodRepository;
+    /* null until the first load is done */
+    private volatile GoodNameIndex index;
+    /* the index being loaded, null between loads */
+    private volatile GoodNameIndex loading;
+
+    @Autowired
+    public GoodSearchServiceImpl(GoodRepository goodRepository) {
+        this.goodRepository = goodRepository;
+    }
+
+    @Override
+    public List<GoodMatch> search(String query, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        int limit = Math.clamp(size, 1, CursorPage.MAX_SIZE);
+        GoodNameIndex current = index;
+        if (Objects.nonNull(current)) {
+            return current.search(query, page * limit, limit);
+        }
+        String key = Objects.requireNonNullElse(query, "").strip().toLowerCase(Locale.ROOT);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        String prefix = key.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return goodRepository.findByNamePrefix(prefix, PageRequest.of(page, limit)).stream()
+                .map(good -> new GoodMatch(good.id(), good.name(),
+                        good.name().toLowerCase(Locale.ROOT).equals(key) ? "exact" : "prefix", 0))
+                .toList();
+    }
+
+    @Override
+    public void index(UUID id, String name) {
+        afterCommit(target -> target.put(id, name));
+    }
+
+    @Override
+    public void unindex(UUID id) {
+        afterCommit(target -> target.remove(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Load all goods into a new index and replace the current one with it.
+     */
+    @Scheduled(fixedDelayString = "${logistics.search.rebuild-interval:PT1H}",
+            initialDelayString = "${logistics.search.rebuild-interval:PT1H}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        GoodNameIndex fresh = new GoodNameIndex();
+        loading = fresh;
+        try {
+            PageCursor cursor = PageCursor.first("id");
+            List<GoodSummary> goods;
+            do {
+                goods = goodRepository.findKeyset(cursor, LOAD_PAGE_SIZE);
+                goods.forEach(good -> fresh.put(good.id(), good.name()));
+                if (!goods.isEmpty()) {
+                    cursor = cursor.after(null, goods.getLast().id());
+                }
+            } while (goods.size() == LOAD_PAGE_SIZE);
+            index = fresh;
+        } finally {
+            loading = null;
+        }
+        log.info("Indexed the names of {} good(s) in {} ms", fresh.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Apply a change to the index and to the index being loaded, after the current transaction commits.
+     */
+    private void afterCommit(Consumer<GoodNameIndex> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    private void apply(Consumer<GoodNameIndex> change) {
+        /* read the loading index first: it only becomes null after it replaced the current one */
+        GoodNameIndex next = loading;
+        GoodNameIndex current = index;
+        if (Objects.nonNull(current)) {
+            change.accept(current);
+        }
+        if (Objects.nonNull(next) && next != current) {
+            change.accept(next);
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package dev.xxj.logistics.service.impl;
 
+import dev.xxj.logistics.config.CacheNames;
+import dev.xxj.logistics.metrics.InventoryMetrics;
 import dev.xxj.logistics.model.*;
 import dev.xxj.logistics.repo.GoodRepository;
 import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.service.GoodSearchService;
 import dev.xxj.logistics.service.GoodService;
-import dev.xxj.logistics.service.WarehouseService;
+import dev.xxj.logistics.service.InventoryService;
+import dev.xxj.logistics.service.LedgerService;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
@@ -18,31 +28,59 @@ import java.util.UUID;
 
 /**
  * GoodServiceImpl is the implementation of {@link GoodService}.
+ * <p>
+ * Goods are cached by id, by name and as lists in the separate caches of {@link CacheNames}.
+ * Every write replaces or evicts the entity by id, evicts the names it had before and after the write,
+ * and evicts all lists and pages of goods.
+ * <p>
+ * Every operation is timed as {@code logistics.service}, and the inventory operations are also recorded with
+ * their outcome by {@link InventoryMetrics}.
  *
  * @author Frank-Xiao
  */
 @Service
 @Slf4j
+@Timed("logistics.service")
 public class GoodServiceImpl implements GoodService {
     private final GoodRepository repository;
     private final GoodStorageRepository storageRepo;
-    private final WarehouseService warehouseService;
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final InventoryService inventoryService;
+    private final InventoryMetrics metrics;
+    private final LedgerService ledgerService;
+    private final GoodSearchService searchService;
+    private final Cache goodsByName;
 
     /**
      * Default Constructor of GoodServiceImpl.
      *
-     * @param goodRepository    autowired {@link GoodRepository} bean
-     * @param storageRepository autowired {@link GoodStorageRepository} bean
-     * @param warehouseService  autowired {@link WarehouseService} bean
+     * @param goodRepository      autowired {@link GoodRepository} bean
+     * @param storageRepository   autowired {@link GoodStorageRepository} bean
+     * @param occupancyRepository autowired {@link WarehouseOccupancyRepository} bean
+     * @param inventoryService    autowired {@link InventoryService} bean
+     * @param metrics             autowired {@link InventoryMetrics} bean
+     * @param ledgerService       autowired {@link LedgerService} bean, records the amounts released by a deletion
+     * @param searchService       autowired {@link GoodSearchService} bean, kept in sync with the names of the goods
+     * @param cacheManager        autowired {@link CacheManager} bean, used to evict the old name of a changed good
      */
     @Autowired
     public GoodServiceImpl(
             GoodRepository goodRepository,
             GoodStorageRepository storageRepository,
-            WarehouseService warehouseService) {
+            WarehouseOccupancyRepository occupancyRepository,
+            InventoryService inventoryService,
+            InventoryMetrics metrics,
+            LedgerService ledgerService,
+            GoodSearchService searchService,
+            CacheManager cacheManager) {
         this.repository = goodRepository;
         this.storageRepo = storageRepository;
-        this.warehouseService = warehouseService;
+        this.occupancyRepo = occupancyRepository;
+        this.inventoryService = inventoryService;
+        this.metrics = metrics;
+        this.ledgerService = ledgerService;
+        this.searchService = searchService;
+        this.goodsByName = Objects.requireNonNull(cacheManager.getCache(CacheNames.GOODS_BY_NAME));
     }
 
     /**
@@ -56,9 +94,16 @@ public class GoodServiceImpl implements GoodService {
      * @return the registered good object if the good is not registered, null otherwise
      */
     @Override
-    @CachePut(value = "goods")
+    @Caching(put = @CachePut(cacheNames = CacheNames.GOODS, key = "#result.id", condition = "#result != null"),
+            evict = {@CacheEvict(cacheNames = CacheNames.GOODS_BY_NAME, key = "#good.name"),
+                    @CacheEvict(cacheNames = CacheNames.GOOD_LISTS, allEntries = true)})
     public Good addGood(Good good) {
-        return Objects.isNull(good.getId()) ? repository.save(good) : null;
+        if (Objects.nonNull(good.getId())) {
+            return null;
+        }
+        Good saved = repository.save(good);
+        searchService.index(saved.getId(), saved.getName());
+        return saved;
     }
 
     /**
@@ -68,7 +113,7 @@ public class GoodServiceImpl implements GoodService {
      * @return the {@link Good} object with the specified id if it exists, null otherwise
      */
     @Override
-    @Cacheable(value = "goods")
+    @Cacheable(cacheNames = CacheNames.GOODS)
     public Good getGoodById(UUID id) {
         return repository.findById(id).orElse(null);
     }
@@ -82,7 +127,7 @@ public class GoodServiceImpl implements GoodService {
      * @return a {@link List} of {@link Good} objects with the same name
      */
     @Override
-    @Cacheable(value = "goods")
+    @Cacheable(cacheNames = CacheNames.GOODS_BY_NAME)
     public List<Good> getGoodByName(String name) {
         return repository.findByName(name);
     }
@@ -95,29 +140,60 @@ public class GoodServiceImpl implements GoodService {
      * or else it will return null. If the good is not registered, the user should use the
      * {@link #addGood(Good) addGood} method to register the good.
      *
+     * Since a rename moves the good from one name lookup to another, both names are evicted.
+     * A good without a version overwrites the stored one, like before goods had versions.
+     *
      * @param good the good object to be updated, should contain the id of the good
      * @return the updated good object if the good is registered, null otherwise
      * @see Good
      */
-    @SuppressWarnings("SpringCacheableMethodCallsInspection")
     @Override
-    @CachePut(value = "goods")
+    @Caching(put = @CachePut(cacheNames = CacheNames.GOODS, key = "#good.id", condition = "#result != null"),
+            evict = {@CacheEvict(cacheNames = CacheNames.GOODS_BY_NAME, key = "#good.name"),
+                    @CacheEvict(cacheNames = CacheNames.GOOD_LISTS, allEntries = true)})
     public Good updateGood(Good good) {
-        return Objects.nonNull(good.getId()) && Objects.nonNull(getGoodById(good.getId())) ? repository.save(good) : null;
+        if (Objects.isNull(good.getId())) {
+            return null;
+        }
+        return repository.findById(good.getId())
+                .map(old -> {
+                    if (Objects.isNull(good.getVersion())) {
+                        good.setVersion(old.getVersion());
+                    }
+                    Good saved = repository.save(good);
+                    goodsByName.evict(old.getName());
+                    searchService.index(saved.getId(), saved.getName());
+                    return saved;
+                })
+                .orElse(null);
     }
 
     /**
      * Delete a good by its id.
      * <p>
-     * Deletion is done in a cascade way. If the  good is deleted, all the related GoodStorage objects are deleted.
+     * Deletion is done in a cascade way. If the  good is deleted, all the related GoodStorage objects are deleted
+     * and their amounts are released from the occupancy of the warehouses.
      *
      * @param id the id of the good to be deleted
      */
     @Override
-    @CacheEvict(value = "goods")
+    @Caching(evict = {@CacheEvict(cacheNames = CacheNames.GOODS),
+            @CacheEvict(cacheNames = CacheNames.GOOD_LISTS, allEntries = true)})
+    @Transactional
     public void deleteGood(UUID id) {
-        storageRepo.deleteAll(getGoodStorages(id));
+        repository.findById(id).ifPresent(good -> goodsByName.evict(good.getName()));
+        /* lock the counters in id order like the inventory operations do, then read the now stable amounts */
+        storageRepo.findWarehouseIdsByGoodId(id).stream()
+                .sorted(WarehouseOccupancy.LOCK_ORDER)
+                .forEach(occupancyRepo::findForUpdate);
+        List<GoodStorage> storages = getGoodStorages(id);
+        storages.forEach(storage -> {
+            occupancyRepo.decrease(storage.getWarehouse().getId(), storage.getAmount());
+            ledgerService.append(storage.getWarehouse().getId(), id, -storage.getAmount(), "delete");
+        });
+        storageRepo.deleteAll(storages);
         repository.deleteById(id);
+        searchService.unindex(id);
     }
 
     /**
@@ -127,34 +203,71 @@ public class GoodServiceImpl implements GoodService {
      * and how many they are
      */
     @Override
-    @Cacheable(value = "goods")
+    @Cacheable(cacheNames = CacheNames.GOOD_LISTS)
     public List<Good> getAllGoods() {
         return repository.findAll();
     }
 
+    /**
+     * Get the version of all goods.
+     * <p>
+     * The version is kept with the lists of goods, so every write that evicts the lists creates a new version
+     * on the next call, and a shared cache tier gives all nodes the same version.
+     *
+     * @return the cached version, or a new one after a change
+     */
+    @Override
+    @Cacheable(cacheNames = CacheNames.GOOD_LISTS, key = "'version'", sync = true)
+    public CollectionVersion getGoodsVersion() {
+        return CollectionVersion.next();
+    }
+
+    /**
+     * Get one page of goods with keyset pagination.
+     * <p>
+     * Only the rows of the requested page are read, so walking through all goods page by page never holds
+     * the whole table in memory.
+     *
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @param sort   the sort of the first page, ignored when a cursor is given
+     * @param size   the page size, at most {@link CursorPage#MAX_SIZE}
+     * @return the page of {@link GoodSummary} projections
+     */
+    @Override
+    @Cacheable(cacheNames = CacheNames.GOOD_LISTS)
+    public CursorPage<GoodSummary> getGoodPage(String cursor, String sort, int size) {
+        PageCursor position = Objects.isNull(cursor) ? PageCursor.first(sort) : PageCursor.decode(cursor);
+        int limit = Math.clamp(size, 1, CursorPage.MAX_SIZE);
+        return CursorPage.of(repository.findKeyset(position, limit + 1), limit,
+                last -> position.after(last.name(), last.id()));
+    }
+
     /**
      * Get the locations of the specific good.
+     * <p>
+     * The warehouses are read with one join query as {@link WarehouseSummary} projections.
      *
      * @param id the id of the good
-     * @return a {@link List} of {@link Warehouse} objects storing the good
+     * @return a {@link List} of {@link WarehouseSummary} objects of the warehouses storing the good
      */
     @Override
-    public List<Warehouse> getLocations(UUID id) {
-        return storageRepo.findByGood_Id(id).stream()
-                .map(GoodStorage::getWarehouse).toList();
+    @Transactional(readOnly = true)
+    public List<WarehouseSummary> getLocations(UUID id) {
+        return storageRepo.findLocationsByGoodId(id);
     }
 
     /**
      * Get the total stock amount of the specified good.
+     * <p>
+     * The amount is summed by the database.
      *
      * @param id the id of the good
      * @return the total stock amount of the specified good, in {@link Long} type
      */
     @Override
+    @Transactional(readOnly = true)
     public Long getTotalAmount(UUID id) {
-        return storageRepo.findByGood_Id(id).stream()
-                .map(GoodStorage::getAmount)
-                .reduce(0L, Long::sum);
+        return storageRepo.sumAmountByGoodId(id);
     }
 
     /**
@@ -162,17 +275,16 @@ public class GoodServiceImpl implements GoodService {
      * <p>
      * If the warehouse does not have enough goods of this kind, it will return false to indicate
      * the failure of the operation. Otherwise, it will return true to indicate the success of the operation.
+     * <p>
+     * Both sides of the move are applied atomically by {@link InventoryService#move(MoveDTO)}.
      *
      * @param moveDTO the MoveDTO object containing the goodId, fromId, toId, and amount
      * @return true if the operation is valid and successful, false otherwise
      */
     @Override
     public boolean moveGood(MoveDTO moveDTO) {
-        UUID goodId = moveDTO.goodId(), fromId = moveDTO.fromId(), toId = moveDTO.toId();
-        Long amount = moveDTO.amount();
         try {
-            retrieveGood(new GoodStorageDto(fromId, goodId, amount));
-            storeGood(new GoodStorageDto(toId, goodId, amount));
+            metrics.record("move", moveDTO.amount(), () -> inventoryService.move(moveDTO));
         } catch (IllegalArgumentException e) {
             return false;
         }
@@ -186,6 +298,7 @@ public class GoodServiceImpl implements GoodService {
      * @return a list of GoodStorage objects storing the specified good
      */
     @Override
+    @Transactional(readOnly = true)
     public List<GoodStorage> getGoodStorages(UUID goodId) {
         return storageRepo.findByGood_Id(goodId);
     }
@@ -193,49 +306,20 @@ public class GoodServiceImpl implements GoodService {
     /**
      * Store the goods in the warehouse.
      * <p>
-     * If the warehouse is full, throw an exception.
+     * If the warehouse does not have enough space, throw an exception.
      * If the GoodStorage exists, update the amount.
-     * If the GoodStorage does not exist, validate the amount and try to create a new one.
+     * If the GoodStorage does not exist, create a new one.
      * <p>
-     * This method is NOT thread-safe due to the lack of transaction management.
+     * The change is applied atomically by {@link InventoryService#store(GoodStorageDto)}.
      *
      * @param goodStorageDto the GoodStorageDto object containing the goodId, warehouseId, and amount
-     * @return the updated or brand new GoodStorage,
-     * depending on whether the good is already stored in the given warehouse or not
+     * @return the stored goods
      * @see GoodStorageDto
      */
     @Override
-    public GoodStorage storeGood(GoodStorageDto goodStorageDto) {
-        UUID goodId = goodStorageDto.goodId();
-        UUID warehouseId = goodStorageDto.warehouseId();
-        Long amount = goodStorageDto.amount();
-        final GoodStorage[] saved = new GoodStorage[1];
-        var maxAmount = warehouseService.getWarehouseById(warehouseId).getMaxAmount();
-        var existAmount = warehouseService.getExistAmount(warehouseId);
-
-        storageRepo.findByWarehouse_IdAndGood_Id(warehouseId, goodId)
-                /* if the GoodStorage exists, try to update the amount*/
-                .ifPresentOrElse(storage -> {
-                    if (existAmount + amount > maxAmount) {
-                        log.info("Warehouse is not full enough to store more goods of this type");
-                        throw new IllegalArgumentException("Warehouse is full");
-                    } else {
-                        storage.setAmount(storage.getAmount() + amount);
-                        saved[0] = storageRepo.save(storage);
-                    }
-                }, () -> {/* if the GoodStorage does not exist, try to create a new one*/
-                    if (existAmount + amount > maxAmount) {
-                        log.info("Warehouse is already full");
-                        throw new IllegalArgumentException("Warehouse is full");
-                    } else {
-                        saved[0] = storageRepo.save(GoodStorage.builder()
-                                .warehouse(warehouseService.getWarehouseById(warehouseId))
-                                .amount(amount)
-                                .good(repository.getReferenceById(goodId))
-                                .build());
-                    }
-                });
-        return saved[0];
+    public GoodStorageDto storeGood(GoodStorageDto goodStorageDto) {
+        metrics.record("store", goodStorageDto.amount(), () -> inventoryService.store(goodStorageDto));
+        return goodStorageDto;
     }
 
     /**
@@ -244,7 +328,7 @@ public class GoodServiceImpl implements GoodService {
      * If the warehouse does not have enough goods of this kind, throw an exception.
      * If the warehouse has enough goods, update the amount.
      * <p>
-     * This method is NOT thread-safe due to the lack of transaction management.
+     * The change is applied atomically by {@link InventoryService#retrieve(GoodStorageDto)}.
      *
      * @param dto the GoodStorageDto object containing the goodId, warehouseId, and amount
      *            to be retrieved
@@ -252,21 +336,7 @@ public class GoodServiceImpl implements GoodService {
      */
     @Override
     public void retrieveGood(GoodStorageDto dto) {
-        UUID goodId = dto.goodId(), warehouseId = dto.warehouseId();
-        Long amount = dto.amount();
-        storageRepo.findByWarehouse_IdAndGood_Id(warehouseId, goodId)
-                .ifPresentOrElse(storage -> {
-                    if (storage.getAmount() < amount) {
-                        log.info("Not enough goods in the warehouse");
-                        throw new IllegalArgumentException("Not enough goods in the warehouse");
-                    }
-                    storage.setAmount(storage.getAmount() - amount);
-                    storageRepo.save(storage);
-                    log.info("Goods {} retrieved successfully", goodId);
-                }, () -> {
-                    log.info("No such goods in the warehouse");
-                    throw new IllegalArgumentException("No such goods in the warehouse");
-                });
+        metrics.record("retrieve", dto.amount(), () -> inventoryService.retrieve(dto));
     }
 
 
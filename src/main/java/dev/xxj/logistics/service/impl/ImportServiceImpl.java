@@ -0,0 +1,204 @@
+package dev.xxj.logistics.service.impl;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import dev.xxj.logistics.model.BulkItemResult;
+import dev.xxj.logistics.model.ImportFormat;
+import dev.xxj.logistics.model.ImportRow;
+import dev.xxj.logistics.model.ImportStatus;
+import dev.xxj.logistics.service.BulkInventoryService;
+import dev.xxj.logistics.service.ImportService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImportServiceImpl is the implementation of {@link ImportService}.
+ * <p>
+ * Uploads are spooled to {@code logistics.import.directory} and imported by a pool of
+ * {@code logistics.import.concurrency} threads, so a few large imports cannot take every database connection
+ * from the requests. The rows are parsed lazily from the file and handed to
+ * {@link BulkInventoryService#importAll} one chunk at a time, so the memory used does not depend on the size of
+ * the upload. Rejected rows are written to an error file next to the upload.
+ * <p>
+ * Jobs are kept in memory and purged with their files {@code logistics.import.retention} after they finish.
+ *
+ * @author Frank-Xiao
+ */
+@Slf4j
+@Service
+public class ImportServiceImpl implements ImportService {
+    private static final String QUEUED = "QUEUED";
+    private static final String RUNNING = "RUNNING";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+    private final BulkInventoryService bulkInventoryService;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final Path directory;
+    private final Duration retention;
+    private final ExecutorService executor;
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImportServiceImpl(BulkInventoryService bulkInventoryService,
+                             ObjectMapper objectMapper,
+                             @Value("${logistics.import.directory:${java.io.tmpdir}/logistics-import}") Path directory,
+                             @Value("${logistics.import.concurrency:2}") int concurrency,
+                             @Value("${logistics.import.retention:PT24H}") Duration retention) throws IOException {
+        this.bulkInventoryService = bulkInventoryService;
+        this.ndjsonReader = objectMapper.readerFor(ImportRow.class);
+        this.csvReader = new CsvMapper().readerFor(ImportRow.class).with(CsvSchema.emptySchema().withHeader());
+        this.directory = Files.createDirectories(directory);
+        this.retention = retention;
+        this.executor = Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().name("import-", 0).factory());
+    }
+
+    @Override
+    public ImportStatus submit(InputStream body, ImportFormat format) throws IOException {
+        UUID id = UUID.randomUUID();
+        Path upload = directory.resolve(id + ".upload");
+        Files.copy(body, upload, StandardCopyOption.REPLACE_EXISTING);
+        Job job = new Job(id, upload, directory.resolve(id + ".errors.csv"), Instant.now());
+        jobs.put(id, job);
+        log.info("Queued import {} of {} bytes as {}", id, Files.size(upload), format);
+        executor.execute(() -> run(job, format));
+        return job.status();
+    }
+
+    @Override
+    public Optional<ImportStatus> getStatus(UUID id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::status);
+    }
+
+    @Override
+    public Optional<Path> getErrors(UUID id) {
+        return Optional.ofNullable(jobs.get(id)).map(job -> job.errors).filter(Files::exists);
+    }
+
+    /**
+     * Forget the jobs that finished longer than the retention ago, and delete their files.
+     */
+    @Scheduled(fixedDelayString = "${logistics.import.purge-delay:PT10M}")
+    public void purge() {
+        Instant expired = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (Objects.isNull(job.finishedAt) || job.finishedAt.isAfter(expired)) {
+                return false;
+            }
+            delete(job.upload);
+            delete(job.errors);
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Import jobs did not stop within 30 seconds");
+        }
+    }
+
+    private void run(Job job, ImportFormat format) {
+        job.state = RUNNING;
+        ObjectReader reader = format == ImportFormat.CSV ? csvReader : ndjsonReader;
+        try (MappingIterator<ImportRow> rows = reader.readValues(job.upload.toFile());
+             BufferedWriter errors = Files.newBufferedWriter(job.errors, StandardCharsets.UTF_8)) {
+            errors.write("row,message\n");
+            bulkInventoryService.importAll(rows, result -> record(job, result, errors));
+            job.finish(COMPLETED, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Import {} failed after {} row(s)", job.id, job.rows.get(), e);
+            job.finish(FAILED, e instanceof UncheckedIOException unchecked ? unchecked.getCause().getMessage() :
+                    e.getMessage());
+        } finally {
+            delete(job.upload);
+        }
+        log.info("Import {} {}: {} row(s) imported, {} rejected",
+                job.id, job.state, job.imported.get(), job.failed.get());
+    }
+
+    private static void record(Job job, BulkItemResult result, BufferedWriter errors) {
+        job.rows.incrementAndGet();
+        if (result.success()) {
+            job.imported.incrementAndGet();
+            return;
+        }
+        job.failed.incrementAndGet();
+        try {
+            /* the row number counts the data rows from 1, like a spreadsheet without its header */
+            errors.write((result.index() + 1) + ",\"" + result.message().replace("\"", "\"\"") + "\"\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete {}", file, e);
+        }
+    }
+
+    /**
+     * One import, updated by the thread running it and read by the status requests.
+     */
+    private static final class Job {
+        private final UUID id;
+        private final Path upload;
+        private final Path errors;
+        private final Instant submittedAt;
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile String state = QUEUED;
+        private volatile Instant finishedAt;
+        private volatile String message;
+
+        private Job(UUID id, Path upload, Path errors, Instant submittedAt) {
+            this.id = id;
+            this.upload = upload;
+            this.errors = errors;
+            this.submittedAt = submittedAt;
+        }
+
+        private void finish(String state, String message) {
+            this.message = message;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        private ImportStatus status() {
+            return new ImportStatus(id, state, rows.get(), imported.get(), failed.get(), submittedAt, finishedAt,
+                    message);
+        }
+    }
+}
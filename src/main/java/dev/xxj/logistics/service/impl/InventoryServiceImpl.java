@@ -0,0 +1,175 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.exception.InventoryException;
+import dev.xxj.logistics.metrics.InventoryMetrics;
+import dev.xxj.logistics.model.GoodStorage;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.InventoryRow;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.WarehouseOccupancy;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import dev.xxj.logistics.service.InventoryService;
+import dev.xxj.logistics.service.LedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * InventoryServiceImpl is the transactional implementation of {@link InventoryService}.
+ * <p>
+ * Every change is applied with conditional UPDATE statements, e.g.
+ * {@code UPDATE good_storage SET amount = amount - ? WHERE ... AND amount >= ?}, so the check and the write
+ * are one atomic step in the database and no entity is loaded and saved back. An update count of 0 means
+ * the check failed, and the exception thrown in that case rolls back the whole operation.
+ * <p>
+ * The warehouse occupancy counter is always updated before the storage row. Its row lock is therefore held
+ * for the rest of the transaction and serializes the operations on one warehouse, which also makes it safe
+ * to insert a new storage row when the good is not stored in the warehouse yet. A move locks both counters
+ * in {@link WarehouseOccupancy#LOCK_ORDER} first, like every writer that locks several counters, so two moves
+ * in opposite directions cannot deadlock. The statement that takes the first counter lock of an operation is
+ * timed by {@link InventoryMetrics#recordLockWait}, which shows how long operations wait for each other.
+ * <p>
+ * Each change is also appended to the inventory ledger by {@link LedgerService} in the same transaction, so the
+ * storage rows are the materialized balances of the ledger.
+ *
+ * @author Frank-Xiao
+ * @see GoodStorageRepository
+ * @see WarehouseOccupancyRepository
+ */
+@Service
+@Slf4j
+public class InventoryServiceImpl implements InventoryService {
+    private final GoodRepository goodRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final GoodStorageRepository storageRepo;
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final InventoryMetrics metrics;
+    private final LedgerService ledgerService;
+
+    @Autowired
+    public InventoryServiceImpl(GoodRepository goodRepository,
+                                WarehouseRepository warehouseRepository,
+                                GoodStorageRepository storageRepo,
+                                WarehouseOccupancyRepository occupancyRepo,
+                                InventoryMetrics metrics,
+                                LedgerService ledgerService) {
+        this.goodRepository = goodRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.storageRepo = storageRepo;
+        this.occupancyRepo = occupancyRepo;
+        this.metrics = metrics;
+        this.ledgerService = ledgerService;
+    }
+
+    @Override
+    @Transactional
+    public void store(GoodStorageDto dto) {
+        long amount = validAmount(dto.amount());
+        store(dto.warehouseId(), dto.goodId(), amount, "store");
+        ledgerService.append(dto.warehouseId(), dto.goodId(), amount, "store");
+    }
+
+    @Override
+    @Transactional
+    public void retrieve(GoodStorageDto dto) {
+        long amount = validAmount(dto.amount());
+        retrieve(dto.warehouseId(), dto.goodId(), amount, "retrieve");
+        ledgerService.append(dto.warehouseId(), dto.goodId(), -amount, "retrieve");
+    }
+
+    @Override
+    @Transactional
+    public void move(MoveDTO dto) {
+        long amount = validAmount(dto.amount());
+        UUID fromId = dto.fromId(), toId = dto.toId();
+        if (Objects.equals(fromId, toId)) {
+            retrieve(fromId, dto.goodId(), amount, "move");
+        } else {
+            /* lock both counters in the order of the database before changing either of them */
+            metrics.recordLockWait("move", () -> occupancyRepo.findAllForUpdate(List.of(fromId, toId)));
+            retrieve(fromId, dto.goodId(), amount, null);
+        }
+        store(toId, dto.goodId(), amount, null);
+        ledgerService.append(fromId, dto.goodId(), -amount, "move");
+        ledgerService.append(toId, dto.goodId(), amount, "move");
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(Consumer<InventoryRow> rows) {
+        long count = 0;
+        try (Stream<InventoryRow> stream = storageRepo.streamInventory()) {
+            for (var iterator = stream.iterator(); iterator.hasNext(); count++) {
+                rows.accept(iterator.next());
+            }
+        }
+        log.info("Exported {} storage(s)", count);
+        return count;
+    }
+
+    /**
+     * @param operation the operation to record the lock wait of, null if the counter is already locked
+     */
+    private void store(UUID warehouseId, UUID goodId, long amount, String operation) {
+        if (locking(operation, () -> occupancyRepo.increase(warehouseId, amount)) == 0) {
+            if (!warehouseRepository.existsById(warehouseId)) {
+                log.info("No such warehouse");
+                throw new InventoryException("No such warehouse");
+            }
+            log.info("Warehouse does not have enough space to store the goods");
+            throw new CapacityExceededException("Warehouse is full");
+        }
+        if (storageRepo.increaseAmount(warehouseId, goodId, amount) == 0) {
+            /* the good is not stored in this warehouse yet, the counter row lock makes the insert safe */
+            if (goodRepository.findById(goodId).isEmpty()) {
+                log.info("No such good");
+                throw new InventoryException("No such good");
+            }
+            storageRepo.save(GoodStorage.builder()
+                    .warehouse(warehouseRepository.getReferenceById(warehouseId))
+                    .good(goodRepository.getReferenceById(goodId))
+                    .amount(amount)
+                    .build());
+        }
+    }
+
+    /**
+     * @param operation the operation to record the lock wait of, null if the counter is already locked
+     */
+    private void retrieve(UUID warehouseId, UUID goodId, long amount, String operation) {
+        if (locking(operation, () -> occupancyRepo.decrease(warehouseId, amount)) == 0
+                || storageRepo.decreaseAmount(warehouseId, goodId, amount) == 0) {
+            if (storageRepo.findByWarehouse_IdAndGood_Id(warehouseId, goodId).isEmpty()) {
+                log.info("No such goods in the warehouse");
+                throw new InsufficientStockException("No such goods in the warehouse");
+            }
+            log.info("Not enough goods in the warehouse");
+            throw new InsufficientStockException("Not enough goods in the warehouse");
+        }
+        log.info("Goods {} retrieved successfully", goodId);
+    }
+
+    private int locking(String operation, Supplier<Integer> statement) {
+        return Objects.isNull(operation) ? statement.get() : metrics.recordLockWait(operation, statement);
+    }
+
+    private static long validAmount(Long amount) {
+        if (Objects.isNull(amount) || amount < 0) {
+            throw new InventoryException("Amount must not be negative");
+        }
+        return amount;
+    }
+}
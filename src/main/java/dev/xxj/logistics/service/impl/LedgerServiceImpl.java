@@ -0,0 +1,187 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.model.InventoryBalance;
+import dev.xxj.logistics.model.InventoryMovement;
+import dev.xxj.logistics.model.InventorySnapshot;
+import dev.xxj.logistics.model.InventorySnapshotBalance;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.InventoryMovementRepository;
+import dev.xxj.logistics.repo.InventorySnapshotBalanceRepository;
+import dev.xxj.logistics.repo.InventorySnapshotRepository;
+import dev.xxj.logistics.service.LedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * LedgerServiceImpl is the implementation of {@link LedgerService}.
+ * <p>
+ * Movements are appended through Hibernate, so the movements of one transaction are sent as one batched
+ * INSERT on commit. Their time is truncated to microseconds, the precision of the columns, so that a
+ * movement is compared against snapshot times exactly as it is stored.
+ * <p>
+ * A movement gets its time when it is appended, not when its transaction commits. So that a snapshot taken as of
+ * some time ago contains every movement before it, the first append of a transaction registers a
+ * {@link CommitDeadline}: right before the commit, it flushes the transaction and rolls it back if its first
+ * movement is older than {@code logistics.ledger.commit-timeout} by then.
+ *
+ * @author Frank-Xiao
+ */
+@Service
+@Slf4j
+public class LedgerServiceImpl implements LedgerService {
+    private static final Comparator<InventoryBalance> BY_PAIR =
+            Comparator.comparing(InventoryBalance::warehouseId).thenComparing(InventoryBalance::goodId);
+    private final InventoryMovementRepository movementRepo;
+    private final InventorySnapshotRepository snapshotRepo;
+    private final InventorySnapshotBalanceRepository snapshotBalanceRepo;
+    private final GoodStorageRepository storageRepo;
+    private final Duration commitTimeout;
+
+    @Autowired
+    public LedgerServiceImpl(InventoryMovementRepository movementRepo,
+                             InventorySnapshotRepository snapshotRepo,
+                             InventorySnapshotBalanceRepository snapshotBalanceRepo,
+                             GoodStorageRepository storageRepo,
+                             @Value("${logistics.ledger.commit-timeout:PT20S}") Duration commitTimeout) {
+        this.movementRepo = movementRepo;
+        this.snapshotRepo = snapshotRepo;
+        this.snapshotBalanceRepo = snapshotBalanceRepo;
+        this.storageRepo = storageRepo;
+        this.commitTimeout = commitTimeout;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UUID warehouseId, UUID goodId, long delta, String operation) {
+        if (delta == 0) {
+            return;
+        }
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            var deadline = new CommitDeadline(now.plus(commitTimeout));
+            TransactionSynchronizationManager.bindResource(this, deadline);
+            TransactionSynchronizationManager.registerSynchronization(deadline);
+        }
+        movementRepo.save(InventoryMovement.builder()
+                .warehouseId(warehouseId)
+                .goodId(goodId)
+                .delta(delta)
+                .operation(operation)
+                .createdAt(now)
+                .build());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<InventoryBalance> getBalancesAt(Instant at) {
+        Optional<InventorySnapshot> base = snapshotRepo.findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(at);
+        Map<PairKey, Long> balances = new HashMap<>();
+        base.ifPresent(snapshot -> snapshotRepo.findBalances(snapshot.getId()).forEach(balance -> add(balances, balance)));
+        movementRepo.sumByPairBetween(base.map(InventorySnapshot::getTakenAt).orElse(Instant.EPOCH), at)
+                .forEach(balance -> add(balances, balance));
+        return balances.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new InventoryBalance(entry.getKey().warehouseId(), entry.getKey().goodId(),
+                        entry.getValue()))
+                .sorted(BY_PAIR)
+                .toList();
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public List<InventoryBalance> checkLatestSnapshot() {
+        /* one consistent view, so the movements and the storages match unless a movement was lost */
+        Optional<InventorySnapshot> latest = snapshotRepo.findFirstByOrderByTakenAtDesc();
+        Map<PairKey, Long> balances = new HashMap<>();
+        latest.ifPresent(snapshot -> snapshotRepo.findBalances(snapshot.getId()).forEach(balance -> add(balances, balance)));
+        movementRepo.sumByPairSince(latest.map(InventorySnapshot::getTakenAt).orElse(Instant.EPOCH))
+                .forEach(balance -> add(balances, balance));
+        storageRepo.findAllBalances().forEach(balance -> balances.merge(
+                new PairKey(balance.warehouseId(), balance.goodId()), -balance.amount(), Long::sum));
+        List<InventoryBalance> differences = balances.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new InventoryBalance(entry.getKey().warehouseId(), entry.getKey().goodId(),
+                        entry.getValue()))
+                .sorted(BY_PAIR)
+                .toList();
+        differences.forEach(difference -> log.warn(
+                "Ledger of good {} in warehouse {} differs by {} from the stored amount since snapshot {}",
+                difference.goodId(), difference.warehouseId(), difference.amount(),
+                latest.map(InventorySnapshot::getId).orElse(null)));
+        log.info("Checked the latest inventory snapshot, {} balance(s) differ", differences.size());
+        return differences;
+    }
+
+    @Override
+    @Transactional
+    public Optional<InventorySnapshot> snapshot(Instant takenAt) {
+        Instant at = takenAt.truncatedTo(ChronoUnit.MICROS);
+        Optional<InventorySnapshot> previous = snapshotRepo.findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(at);
+        if (previous.isPresent() && !movementRepo.existsByCreatedAtGreaterThanEqualAndCreatedAtLessThan(
+                previous.get().getTakenAt(), at)) {
+            return Optional.empty();
+        }
+        List<InventoryBalance> balances = getBalancesAt(at);
+        InventorySnapshot snapshot = snapshotRepo.save(InventorySnapshot.builder().takenAt(at).build());
+        snapshotBalanceRepo.saveAll(balances.stream()
+                .map(balance -> InventorySnapshotBalance.builder()
+                        .snapshotId(snapshot.getId())
+                        .warehouseId(balance.warehouseId())
+                        .goodId(balance.goodId())
+                        .amount(balance.amount())
+                        .build())
+                .toList());
+        log.info("Took inventory snapshot {} as of {} with {} balance(s)", snapshot.getId(), at, balances.size());
+        return Optional.of(snapshot);
+    }
+
+    private static void add(Map<PairKey, Long> balances, InventoryBalance balance) {
+        balances.merge(new PairKey(balance.warehouseId(), balance.goodId()), balance.amount(), Long::sum);
+    }
+
+    private record PairKey(UUID warehouseId, UUID goodId) {
+    }
+
+    /**
+     * Rolls back a transaction that commits too long after its first movement.
+     */
+    private final class CommitDeadline implements TransactionSynchronization {
+        private final Instant deadline;
+
+        private CommitDeadline(Instant deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            /* the statements of the flush may wait for locks as well */
+            movementRepo.flush();
+            if (Instant.now().isAfter(deadline)) {
+                /* not a TransactionException, which Spring takes for a failed commit and does not roll back */
+                throw new IllegalStateException("Ledger movements were not committed before " + deadline);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LedgerServiceImpl.this);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.exception.InventoryException;
+import dev.xxj.logistics.metrics.InventoryMetrics;
+import dev.xxj.logistics.model.GoodStorage;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.InventoryRow;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.WarehouseOccupancy;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import dev.xxj.logistics.service.InventoryService;
+import dev.xxj.logistics.service.LedgerService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * ShardedInventoryServiceImpl is the implementation of {@link InventoryService} used when
+ * {@code logistics.inventory.write-mode} is {@code sharded}.
+ * <p>
+ * Every warehouse belongs to one of {@code logistics.inventory.shards} shards, and each shard applies the
+ * commands of its warehouses one after the other on its own thread. A shard keeps the occupancy, the maximum
+ * amount and the stored amounts of its warehouses in memory, so it checks the capacity and the stock without
+ * asking the database or waiting for a lock. The commands that pass are committed together, up to
+ * {@code logistics.inventory.max-batch} at a time, in one transaction that applies the net change of every
+ * warehouse and storage with the same conditional updates as {@link InventoryServiceImpl}. The callers are
+ * answered once that transaction committed.
+ * <p>
+ * The database stays the authority, since bulk operations, imports, deletions and other instances write to it
+ * as well. A command that the in-memory state rejects, and every command of a batch that the database rejects,
+ * is therefore replayed through {@link InventoryServiceImpl}, which reports the exact reason, and the state of
+ * its warehouses is reloaded. A move between warehouses of two shards is run by the lower shard through
+ * {@link InventoryServiceImpl} while the higher shard is paused; shards only ever wait for higher ones, so they
+ * cannot deadlock.
+ * <p>
+ * A command that fails unexpectedly only fails its own caller, and the shard goes on with the next one. A caller
+ * gives up after {@code logistics.inventory.shard-timeout} if its command was not taken by then, and right away if
+ * its shard is not running; a shard gives up a move after that time if the other shard does not pause.
+ * <p>
+ * A command is committed in its own transaction, even if the caller has one.
+ *
+ * @author Frank-Xiao
+ * @see InventoryServiceImpl
+ */
+@Service
+@Primary
+@Slf4j
+@ConditionalOnProperty(name = "logistics.inventory.write-mode", havingValue = "sharded")
+public class ShardedInventoryServiceImpl implements InventoryService {
+    private final InventoryServiceImpl lockingService;
+    private final GoodRepository goodRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final GoodStorageRepository storageRepo;
+    private final WarehouseOccupancyRepository occupancyRepo;
+    private final LedgerService ledgerService;
+    private final InventoryMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatch;
+    private final Duration timeout;
+    private final Shard[] shards;
+
+    @Autowired
+    public ShardedInventoryServiceImpl(InventoryServiceImpl lockingService,
+                                       GoodRepository goodRepository,
+                                       WarehouseRepository warehouseRepository,
+                                       GoodStorageRepository storageRepo,
+                                       WarehouseOccupancyRepository occupancyRepo,
+                                       LedgerService ledgerService,
+                                       InventoryMetrics metrics,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${logistics.inventory.shards:4}") int shardCount,
+                                       @Value("${logistics.inventory.max-batch:256}") int maxBatch,
+                                       @Value("${logistics.inventory.shard-timeout:PT30S}") Duration timeout) {
+        this.lockingService = lockingService;
+        this.goodRepository = goodRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.storageRepo = storageRepo;
+        this.occupancyRepo = occupancyRepo;
+        this.ledgerService = ledgerService;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatch = maxBatch;
+        this.timeout = timeout;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            metrics.registerShardQueue(i, shards[i].queue);
+        }
+        log.info("Inventory writes run on {} shard(s) with batches of up to {} command(s)", shardCount, maxBatch);
+    }
+
+    @Override
+    public void store(GoodStorageDto dto) {
+        if (Objects.isNull(dto.warehouseId()) || Objects.isNull(dto.goodId())) {
+            lockingService.store(dto);
+            return;
+        }
+        submit(new Command(null, dto.warehouseId(), dto.goodId(), validAmount(dto.amount()), "store"));
+    }
+
+    @Override
+    public void retrieve(GoodStorageDto dto) {
+        if (Objects.isNull(dto.warehouseId()) || Objects.isNull(dto.goodId())) {
+            lockingService.retrieve(dto);
+            return;
+        }
+        submit(new Command(dto.warehouseId(), null, dto.goodId(), validAmount(dto.amount()), "retrieve"));
+    }
+
+    @Override
+    public void move(MoveDTO dto) {
+        if (Objects.isNull(dto.fromId()) || Objects.isNull(dto.toId()) || Objects.isNull(dto.goodId())) {
+            lockingService.move(dto);
+            return;
+        }
+        submit(new Command(dto.fromId(), dto.toId(), dto.goodId(), validAmount(dto.amount()), "move"));
+    }
+
+    @Override
+    public long export(Consumer<InventoryRow> rows) {
+        return lockingService.export(rows);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    /**
+     * Queue a command on the lowest shard it involves and wait until it is committed or rejected.
+     * <p>
+     * A command the shard has taken is always answered, so the caller only stops waiting for it if the shard
+     * stopped; a command still queued after the timeout is withdrawn.
+     *
+     * @throws IllegalStateException if the shard is not running or did not take the command in time
+     */
+    private void submit(Command command) {
+        Shard shard = shards[Math.min(shardOf(command.fromId()), shardOf(command.toId()))];
+        if (!shard.thread.isAlive()) {
+            throw new IllegalStateException("Inventory shard " + shard.index + " is not running");
+        }
+        shard.queue.add(command);
+        try {
+            while (true) {
+                try {
+                    command.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                    return;
+                } catch (TimeoutException e) {
+                    if (shard.queue.remove(command)) {
+                        throw new IllegalStateException("Inventory shard " + shard.index + " is overloaded");
+                    }
+                    if (!shard.thread.isAlive()) {
+                        throw new IllegalStateException("Inventory shard " + shard.index + " stopped");
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for inventory shard " + shard.index, e);
+        }
+    }
+
+    /**
+     * @return the index of the shard of a warehouse, {@link Integer#MAX_VALUE} for no warehouse
+     */
+    private int shardOf(UUID warehouseId) {
+        return Objects.isNull(warehouseId) ? Integer.MAX_VALUE : Math.floorMod(warehouseId.hashCode(), shards.length);
+    }
+
+    private static long validAmount(Long amount) {
+        if (Objects.isNull(amount) || amount < 0) {
+            throw new InventoryException("Amount must not be negative");
+        }
+        return amount;
+    }
+
+    /**
+     * A store ({@code fromId} is null), retrieve ({@code toId} is null) or move waiting for its shard.
+     */
+    private record Command(UUID fromId, UUID toId, UUID goodId, long amount, String operation,
+                           CompletableFuture<Void> result) implements Task {
+        Command(UUID fromId, UUID toId, UUID goodId, long amount, String operation) {
+            this(fromId, toId, goodId, amount, operation, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Asks a shard to stop once it committed what it has, until a lower shard has moved goods in or out of
+     * one of its warehouses, and to reload that warehouse afterwards.
+     */
+    private record Pause(UUID warehouseId, CountDownLatch paused, CountDownLatch resumed) implements Task {
+    }
+
+    private sealed interface Task permits Command, Pause {
+    }
+
+    /**
+     * The in-memory state of one warehouse, only accessed by the thread of its shard.
+     */
+    private static final class WarehouseState {
+        private final long maxAmount;
+        private long occupancy;
+        /* amounts by good id, loaded when a good is first used; 0 if the good is not stored */
+        private final Map<UUID, Long> amounts = new HashMap<>();
+
+        private WarehouseState(long maxAmount, long occupancy) {
+            this.maxAmount = maxAmount;
+            this.occupancy = occupancy;
+        }
+    }
+
+    private record PairKey(UUID warehouseId, UUID goodId) {
+    }
+
+    private final class Shard {
+        private final int index;
+        private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        private final Map<UUID, WarehouseState> states = new HashMap<>();
+        private final List<Command> pending = new ArrayList<>();
+        private final Thread thread;
+
+        private Shard(int index) {
+            this.index = index;
+            this.thread = Thread.ofPlatform().name("inventory-shard-" + index).daemon().start(this::run);
+        }
+
+        private void run() {
+            List<Task> batch = new ArrayList<>(maxBatch);
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatch - 1);
+                    for (Task task : batch) {
+                        try {
+                            handle(task);
+                        } catch (RuntimeException e) {
+                            fail(task, e);
+                        }
+                    }
+                    flush();
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Inventory shard {} stopped", index, e);
+            }
+            batch.addAll(queue);
+            batch.forEach(task -> {
+                if (task instanceof Command command) {
+                    command.result().completeExceptionally(new IllegalStateException("Inventory is shutting down"));
+                }
+            });
+            pending.forEach(command -> command.result().completeExceptionally(
+                    new IllegalStateException("Inventory is shutting down")));
+        }
+
+        private void handle(Task task) throws InterruptedException {
+            switch (task) {
+                case Pause pause -> {
+                    flush();
+                    pause.paused().countDown();
+                    pause.resumed().await();
+                    states.remove(pause.warehouseId());
+                }
+                case Command command when Objects.nonNull(command.fromId()) && Objects.nonNull(command.toId())
+                        && shardOf(command.fromId()) != shardOf(command.toId()) -> {
+                    flush();
+                    moveAcross(command);
+                }
+                case Command command -> {
+                    boolean applied;
+                    try {
+                        applied = applyInMemory(command);
+                    } catch (RuntimeException e) {
+                        log.warn("Inventory shard {} cannot load the state of {}: {}", index, command, e.getMessage());
+                        applied = false;
+                    }
+                    if (applied) {
+                        pending.add(command);
+                    } else {
+                        /* the state may be stale or missing, let the database decide and reload it */
+                        flush();
+                        runLocking(command);
+                        invalidate(command);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Answer a task that failed unexpectedly, so that the shard can go on with the next one.
+         */
+        private void fail(Task task, RuntimeException e) {
+            log.error("Inventory shard {} failed to handle {}", index, task, e);
+            if (task instanceof Command command) {
+                invalidate(command);
+                command.result().completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Check a command against the in-memory state and apply it there if it passes.
+         *
+         * @return true if the command is applied, false if it is rejected or the state cannot be loaded
+         */
+        private boolean applyInMemory(Command command) {
+            UUID fromId = command.fromId(), toId = command.toId(), goodId = command.goodId();
+            long amount = command.amount();
+            WarehouseState from = Objects.isNull(fromId) ? null : state(fromId);
+            WarehouseState to = Objects.isNull(toId) ? null : state(toId);
+            if (Objects.nonNull(fromId) && (Objects.isNull(from) || amount(from, fromId, goodId) < amount)) {
+                return false;
+            }
+            if (Objects.nonNull(toId)) {
+                if (Objects.isNull(to)) {
+                    return false;
+                }
+                long occupied = to.occupancy - (Objects.equals(fromId, toId) ? amount : 0);
+                if (occupied + amount > to.maxAmount) {
+                    return false;
+                }
+                /* a good stored for the first time is checked by the foreign key on commit */
+                amount(to, toId, goodId);
+            }
+            if (Objects.nonNull(from)) {
+                from.occupancy -= amount;
+                from.amounts.merge(goodId, -amount, Long::sum);
+            }
+            if (Objects.nonNull(to)) {
+                to.occupancy += amount;
+                to.amounts.merge(goodId, amount, Long::sum);
+            }
+            return true;
+        }
+
+        /**
+         * Commit the pending commands in one transaction and answer their callers.
+         */
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> commit(pending));
+                metrics.recordShardBatch(pending.size(), true);
+                pending.forEach(command -> command.result().complete(null));
+            } catch (RuntimeException e) {
+                log.info("Inventory shard {} replays a batch of {} command(s): {}", index, pending.size(),
+                        e.getMessage());
+                metrics.recordShardBatch(pending.size(), false);
+                pending.forEach(this::invalidate);
+                pending.forEach(this::runLocking);
+            }
+            pending.clear();
+        }
+
+        /**
+         * Apply the net change of every warehouse and storage of the commands, in warehouse id order like the
+         * other writers lock the counters, and append the commands to the ledger.
+         */
+        private void commit(List<Command> commands) {
+            Map<UUID, Long> occupancies = new TreeMap<>(WarehouseOccupancy.LOCK_ORDER);
+            Map<PairKey, Long> storages = new LinkedHashMap<>();
+            for (Command command : commands) {
+                if (Objects.nonNull(command.fromId())) {
+                    occupancies.merge(command.fromId(), -command.amount(), Long::sum);
+                    storages.merge(new PairKey(command.fromId(), command.goodId()), -command.amount(), Long::sum);
+                }
+                if (Objects.nonNull(command.toId())) {
+                    occupancies.merge(command.toId(), command.amount(), Long::sum);
+                    storages.merge(new PairKey(command.toId(), command.goodId()), command.amount(), Long::sum);
+                }
+            }
+            occupancies.forEach((warehouseId, delta) -> {
+                if (delta > 0 && occupancyRepo.increase(warehouseId, delta) == 0
+                        || delta < 0 && occupancyRepo.decrease(warehouseId, -delta) == 0) {
+                    throw new IllegalStateException("Occupancy of warehouse " + warehouseId + " changed meanwhile");
+                }
+            });
+            storages.forEach((key, delta) -> {
+                if (delta > 0 && storageRepo.increaseAmount(key.warehouseId(), key.goodId(), delta) == 0) {
+                    storageRepo.save(GoodStorage.builder()
+                            .warehouse(warehouseRepository.getReferenceById(key.warehouseId()))
+                            .good(goodRepository.getReferenceById(key.goodId()))
+                            .amount(delta)
+                            .build());
+                } else if (delta < 0 && storageRepo.decreaseAmount(key.warehouseId(), key.goodId(), -delta) == 0) {
+                    throw new IllegalStateException("Storage " + key + " changed meanwhile");
+                }
+            });
+            for (Command command : commands) {
+                if (Objects.nonNull(command.fromId())) {
+                    ledgerService.append(command.fromId(), command.goodId(), -command.amount(), command.operation());
+                }
+                if (Objects.nonNull(command.toId())) {
+                    ledgerService.append(command.toId(), command.goodId(), command.amount(), command.operation());
+                }
+            }
+            /* flush here so that a rejected insert fails the batch before the callers are answered */
+            storageRepo.flush();
+        }
+
+        /**
+         * Move goods to or from a warehouse of a higher shard while that shard is paused.
+         */
+        private void moveAcross(Command command) throws InterruptedException {
+            boolean fromHere = shardOf(command.fromId()) == index;
+            UUID other = fromHere ? command.toId() : command.fromId();
+            var pause = new Pause(other, new CountDownLatch(1), new CountDownLatch(1));
+            shards[shardOf(other)].queue.add(pause);
+            try {
+                if (pause.paused().await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    runLocking(command);
+                } else {
+                    command.result().completeExceptionally(
+                            new IllegalStateException("Inventory shard " + shardOf(other) + " did not pause in time"));
+                }
+            } finally {
+                pause.resumed().countDown();
+            }
+            states.remove(fromHere ? command.fromId() : command.toId());
+        }
+
+        /**
+         * Run a command through {@link InventoryServiceImpl} in its own transaction and answer its caller.
+         */
+        private void runLocking(Command command) {
+            try {
+                switch (command.operation()) {
+                    case "store" -> lockingService.store(
+                            new GoodStorageDto(command.toId(), command.goodId(), command.amount()));
+                    case "retrieve" -> lockingService.retrieve(
+                            new GoodStorageDto(command.fromId(), command.goodId(), command.amount()));
+                    default -> lockingService.move(
+                            new MoveDTO(command.fromId(), command.toId(), command.goodId(), command.amount()));
+                }
+                command.result().complete(null);
+            } catch (RuntimeException e) {
+                command.result().completeExceptionally(e);
+            }
+        }
+
+        private void invalidate(Command command) {
+            if (Objects.nonNull(command.fromId())) {
+                states.remove(command.fromId());
+            }
+            if (Objects.nonNull(command.toId())) {
+                states.remove(command.toId());
+            }
+        }
+
+        /**
+         * @return the state of a warehouse, loaded from the database if needed, or null if it has no counter
+         */
+        private WarehouseState state(UUID warehouseId) {
+            WarehouseState state = states.get(warehouseId);
+            if (Objects.isNull(state)) {
+                Optional<Long> occupancy = occupancyRepo.findAmountByWarehouseId(warehouseId);
+                Optional<Long> maxAmount = warehouseRepository.findMaxAmountById(warehouseId);
+                if (occupancy.isEmpty() || maxAmount.isEmpty()) {
+                    return null;
+                }
+                state = new WarehouseState(maxAmount.get(), occupancy.get());
+                states.put(warehouseId, state);
+            }
+            return state;
+        }
+
+        private long amount(WarehouseState state, UUID warehouseId, UUID goodId) {
+            return state.amounts.computeIfAbsent(goodId, id -> storageRepo.findByWarehouse_IdAndGood_Id(warehouseId, id)
+                    .map(GoodStorage::getAmount)
+                    .orElse(0L));
+        }
+    }
+}
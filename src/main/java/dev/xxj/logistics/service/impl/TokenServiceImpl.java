@@ -0,0 +1,67 @@
+package dev.xxj.logistics.service.impl;
+
+import dev.xxj.logistics.config.TokenConfig;
+import dev.xxj.logistics.config.TokenProperties;
+import dev.xxj.logistics.model.AccessToken;
+import dev.xxj.logistics.service.TokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * TokenServiceImpl is the implementation of {@link TokenService}.
+ * <p>
+ * Tokens are JWTs signed with HMAC-SHA256 by the {@link JwtEncoder} of {@link TokenConfig}.
+ *
+ * @author Frank-Xiao
+ */
+@Service
+public class TokenServiceImpl implements TokenService {
+    private final JwtEncoder encoder;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    /**
+     * Default Constructor of TokenServiceImpl.
+     *
+     * @param encoder    autowired {@link JwtEncoder} bean
+     * @param properties autowired {@link TokenProperties} bean, for the time to live of the tokens
+     */
+    @Autowired
+    public TokenServiceImpl(JwtEncoder encoder, TokenProperties properties) {
+        this(encoder, properties.timeToLive(), Clock.systemUTC());
+    }
+
+    TokenServiceImpl(JwtEncoder encoder, Duration timeToLive, Clock clock) {
+        this.encoder = encoder;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    @Override
+    public AccessToken issue(Authentication authentication) {
+        Instant now = clock.instant();
+        Instant expiresAt = now.plus(timeToLive);
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject(authentication.getName())
+                .issuedAt(now)
+                .expiresAt(expiresAt)
+                .claim(TokenConfig.AUTHORITIES_CLAIM, authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .toList())
+                .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        String token = encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        return new AccessToken(token, expiresAt);
+    }
+}
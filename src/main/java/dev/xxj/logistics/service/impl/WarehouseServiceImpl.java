@@ -1,16 +1,21 @@
 package dev.xxj.logistics.service.impl;
 
-import dev.xxj.logistics.model.GoodStorage;
-import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.config.CacheNames;
+import dev.xxj.logistics.model.*;
 import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
 import dev.xxj.logistics.repo.WarehouseRepository;
 import dev.xxj.logistics.service.WarehouseService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
@@ -19,28 +24,49 @@ import java.util.UUID;
 /**
  * WarehouseServiceImpl is the implementation of {@link WarehouseService}.
  * It provides the basic CRUD operations for warehouses and the operations for checking the storage status.
+ * <p>
+ * Single warehouses are cached by id and lists by their arguments, in separate caches of {@link CacheNames}.
+ * Every write replaces or evicts the warehouse by id and evicts all lists and pages of warehouses.
+ * Every operation is timed as {@code logistics.service}.
  *
  * @author Frank-Xiao
  * @see WarehouseService
  * @see Warehouse
  */
 @Service
-@CacheConfig(cacheNames = "warehouse")
+@CacheConfig(cacheNames = CacheNames.WAREHOUSE)
+@Timed("logistics.service")
 public class WarehouseServiceImpl implements WarehouseService {
     private final WarehouseRepository warehouseRepository;
     private final GoodStorageRepository storageRepo;
+    private final WarehouseOccupancyRepository occupancyRepo;
 
     @Autowired
     public WarehouseServiceImpl(WarehouseRepository warehouseRepository,
-                                GoodStorageRepository storageRepo) {
+                                GoodStorageRepository storageRepo,
+                                WarehouseOccupancyRepository occupancyRepo) {
         this.warehouseRepository = warehouseRepository;
         this.storageRepo = storageRepo;
+        this.occupancyRepo = occupancyRepo;
     }
 
+    /**
+     * Add a new warehouse together with its empty {@link WarehouseOccupancy} counter.
+     *
+     * @param warehouse the warehouse to be added, which should not contain an id
+     * @return the added warehouse, or null if the warehouse already has an id
+     */
     @Override
-    @CachePut()
+    @Caching(put = @CachePut(key = "#result.id", condition = "#result != null"),
+            evict = @CacheEvict(cacheNames = CacheNames.WAREHOUSE_LISTS, allEntries = true))
+    @Transactional
     public Warehouse addWarehouse(Warehouse warehouse) {
-        return Objects.isNull(warehouse.getId()) ? warehouseRepository.save(warehouse) : null;
+        if (Objects.nonNull(warehouse.getId())) {
+            return null;
+        }
+        Warehouse saved = warehouseRepository.save(warehouse);
+        occupancyRepo.save(WarehouseOccupancy.builder().warehouseId(saved.getId()).amount(0L).build());
+        return saved;
     }
 
     @Cacheable()
@@ -49,39 +75,98 @@ public class WarehouseServiceImpl implements WarehouseService {
         return warehouseRepository.findById(id).orElse(null);
     }
 
-    @SuppressWarnings("SpringCacheableMethodCallsInspection")
+    /**
+     * Update a warehouse. A warehouse without a version overwrites the stored one, like before warehouses had
+     * versions.
+     *
+     * @param warehouse the warehouse to be updated, should contain the id of the warehouse
+     * @return the updated warehouse, or null if there is no warehouse with its id
+     */
     @Override
-    @CachePut()
+    @Caching(put = @CachePut(key = "#warehouse.id", condition = "#result != null"),
+            evict = @CacheEvict(cacheNames = CacheNames.WAREHOUSE_LISTS, allEntries = true))
     public Warehouse updateWarehouse(Warehouse warehouse) {
-        return Objects.nonNull(warehouse.getId()) && Objects.nonNull(getWarehouseById(warehouse.getId())) ?
-                warehouseRepository.save(warehouse) : null;
+        if (Objects.isNull(warehouse.getId())) {
+            return null;
+        }
+        return warehouseRepository.findById(warehouse.getId())
+                .map(current -> {
+                    if (Objects.isNull(warehouse.getVersion())) {
+                        warehouse.setVersion(current.getVersion());
+                    }
+                    return warehouseRepository.save(warehouse);
+                })
+                .orElse(null);
     }
 
 
     @Override
-    @CacheEvict()
+    @Caching(evict = {@CacheEvict(), @CacheEvict(cacheNames = CacheNames.WAREHOUSE_LISTS, allEntries = true)})
+    @Transactional
     public void deleteWarehouse(UUID id) {
+        occupancyRepo.findById(id).ifPresent(occupancyRepo::delete);
         warehouseRepository.deleteById(id);
     }
 
 
+    /**
+     * Get the stored amount of goods in one warehouse.
+     * <p>
+     * The amount is read from the running {@link WarehouseOccupancy} counter. Only a warehouse that has
+     * no counter yet, e.g. one created before the counters were introduced, falls back to summing its
+     * storages in the database.
+     *
+     * @param id the id of the warehouse, of type UUID
+     * @return the amount of goods in the warehouse
+     */
     @Override
+    @Transactional(readOnly = true)
     public Long getExistAmount(UUID id) {
-        return storageRepo.findByWarehouse_Id(id)
-                .stream()
-                .mapToLong(GoodStorage::getAmount)
-                .sum();
+        return occupancyRepo.findAmountByWarehouseId(id)
+                .orElseGet(() -> storageRepo.sumAmountByWarehouseId(id));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean isFull(UUID id) {
-        return warehouseRepository.getReferenceById(id).getMaxAmount() <= getExistAmount(id);
+        return warehouseRepository.findMaxAmountById(id)
+                .orElseThrow(() -> new EntityNotFoundException("No such warehouse " + id)) <= getExistAmount(id);
     }
 
     @Override
-    @Cacheable()
+    @Cacheable(cacheNames = CacheNames.WAREHOUSE_LISTS)
     public List<Warehouse> getAllWarehouses() {
         return warehouseRepository.findAll();
     }
 
+    /**
+     * Get the version of all warehouses, kept with the lists of warehouses like
+     * {@link GoodServiceImpl#getGoodsVersion()}.
+     *
+     * @return the cached version, or a new one after a change
+     */
+    @Override
+    @Cacheable(cacheNames = CacheNames.WAREHOUSE_LISTS, key = "'version'", sync = true)
+    public CollectionVersion getWarehousesVersion() {
+        return CollectionVersion.next();
+    }
+
+    /**
+     * Get one page of warehouses with keyset pagination.
+     *
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @param sort   the sort of the first page, ignored when a cursor is given
+     * @param size   the page size, at most {@link CursorPage#MAX_SIZE}
+     * @return the page of {@link WarehouseSummary} projections
+     */
+    @Override
+    @Cacheable(cacheNames = CacheNames.WAREHOUSE_LISTS)
+    public CursorPage<WarehouseSummary> getWarehousePage(String cursor, String sort, int size) {
+        PageCursor position = Objects.isNull(cursor) ? PageCursor.first(sort) : PageCursor.decode(cursor);
+        int limit = Math.clamp(size, 1, CursorPage.MAX_SIZE);
+        return CursorPage.of(warehouseRepository.findKeyset(position, limit + 1), limit,
+                last -> position.after("maxAmount".equals(position.sort()) ? last.maxAmount() : last.name(),
+                        last.id()));
+    }
+
 }
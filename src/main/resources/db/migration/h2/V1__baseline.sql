@@ -0,0 +1,31 @@
+-- Schema as it was created by Hibernate before migrations were introduced.
+create table good (id uuid not null, name varchar(255) not null, primary key (id));
+create table good_storage (amount bigint not null, good_id uuid not null, id uuid not null, warehouse_id uuid not null, primary key (id));
+create table warehouse (max_amount bigint not null, id uuid not null, location varchar(255), name varchar(255) not null, primary key (id));
+alter table good_storage add constraint UK_dadmsp2gqab6mmqequfhr0wi2 unique (warehouse_id);
+alter table good_storage add constraint FK58tqudbhv0xoiadl9gp5ultdh foreign key (good_id) references good;
+alter table good_storage add constraint FK2uyfuc4qtphvg28idy6gnv3y foreign key (warehouse_id) references warehouse;
+
+-- Spring Session JDBC
+CREATE TABLE SPRING_SESSION (
+	PRIMARY_ID CHAR(36) NOT NULL,
+	SESSION_ID CHAR(36) NOT NULL,
+	CREATION_TIME BIGINT NOT NULL,
+	LAST_ACCESS_TIME BIGINT NOT NULL,
+	MAX_INACTIVE_INTERVAL INT NOT NULL,
+	EXPIRY_TIME BIGINT NOT NULL,
+	PRINCIPAL_NAME VARCHAR(100),
+	CONSTRAINT SPRING_SESSION_PK PRIMARY KEY (PRIMARY_ID)
+);
+
+CREATE UNIQUE INDEX SPRING_SESSION_IX1 ON SPRING_SESSION (SESSION_ID);
+CREATE INDEX SPRING_SESSION_IX2 ON SPRING_SESSION (EXPIRY_TIME);
+CREATE INDEX SPRING_SESSION_IX3 ON SPRING_SESSION (PRINCIPAL_NAME);
+
+CREATE TABLE SPRING_SESSION_ATTRIBUTES (
+	SESSION_PRIMARY_ID CHAR(36) NOT NULL,
+	ATTRIBUTE_NAME VARCHAR(200) NOT NULL,
+	ATTRIBUTE_BYTES LONGVARBINARY NOT NULL,
+	CONSTRAINT SPRING_SESSION_ATTRIBUTES_PK PRIMARY KEY (SESSION_PRIMARY_ID, ATTRIBUTE_NAME),
+	CONSTRAINT SPRING_SESSION_ATTRIBUTES_FK FOREIGN KEY (SESSION_PRIMARY_ID) REFERENCES SPRING_SESSION(PRIMARY_ID) ON DELETE CASCADE
+);
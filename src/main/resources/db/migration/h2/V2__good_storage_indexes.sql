@@ -0,0 +1,19 @@
+-- Merge rows storing the same good in the same warehouse into the row with the smallest id, so that the
+-- unique index below can be created. Amounts are summed, so the warehouse occupancy does not change.
+update good_storage s
+set amount = (select sum(d.amount) from good_storage d
+              where d.warehouse_id = s.warehouse_id and d.good_id = s.good_id)
+where s.id = (select min(k.id) from good_storage k
+              where k.warehouse_id = s.warehouse_id and k.good_id = s.good_id);
+
+delete from good_storage s
+where s.id <> (select min(k.id) from good_storage k
+               where k.warehouse_id = s.warehouse_id and k.good_id = s.good_id);
+
+-- Point lookup and conditional update of store, retrieve and move; rejects a second row for the same pair
+-- when two first stores race.
+alter table good_storage add constraint uk_good_storage_warehouse_good unique (warehouse_id, good_id);
+
+-- Covering indexes for the totals and locations.
+create index ix_good_storage_good_warehouse_amount on good_storage (good_id, warehouse_id, amount);
+create index ix_good_storage_warehouse_amount on good_storage (warehouse_id, amount);
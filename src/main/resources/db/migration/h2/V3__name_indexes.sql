@@ -0,0 +1,4 @@
+-- Goods and warehouses are looked up by name, their natural key, when they are queried by name and when an
+-- import registers only the names that do not exist yet.
+create index ix_good_name on good (name);
+create index ix_warehouse_name on warehouse (name);
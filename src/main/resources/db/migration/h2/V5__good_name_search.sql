@@ -0,0 +1,2 @@
+-- MySQL indexes lower(name) for case-insensitive name searches. H2 has no functional indexes; its searches
+-- scan the good table, which is fine for the development and test data it holds.
@@ -0,0 +1,4 @@
+-- Heartbeat written to the primary by ReplicaLagJob and read back from the read replicas to measure their lag.
+-- The beat is the time of the writing instance in milliseconds since the epoch.
+create table replication_heartbeat (id int not null, beat bigint not null, primary key (id));
+insert into replication_heartbeat (id, beat) values (1, 0);
@@ -0,0 +1,7 @@
+-- The schema generated from the old one-to-one mapping allowed a single storage row per warehouse, i.e. one
+-- kind of good per warehouse. A warehouse stores many goods; uk_good_storage_warehouse_good still allows one
+-- row per (warehouse, good) pair. The warehouse foreign key took over the unique index, so it is recreated
+-- around the drop to release it.
+alter table good_storage drop constraint FK2uyfuc4qtphvg28idy6gnv3y;
+alter table good_storage drop constraint UK_dadmsp2gqab6mmqequfhr0wi2;
+alter table good_storage add constraint FK2uyfuc4qtphvg28idy6gnv3y foreign key (warehouse_id) references warehouse;
@@ -0,0 +1,26 @@
+-- Merge rows storing the same good in the same warehouse into the row with the smallest id, so that the
+-- unique index below can be created. Amounts are summed, so the warehouse occupancy does not change.
+update good_storage s
+    join (select warehouse_id, good_id, min(id) as keep_id, sum(amount) as total
+          from good_storage
+          group by warehouse_id, good_id
+          having count(*) > 1) d on s.id = d.keep_id
+set s.amount = d.total;
+
+delete s
+from good_storage s
+         join (select warehouse_id, good_id, min(id) as keep_id
+               from good_storage
+               group by warehouse_id, good_id
+               having count(*) > 1) d
+              on s.warehouse_id = d.warehouse_id and s.good_id = d.good_id and s.id <> d.keep_id;
+
+-- Point lookup and conditional update of store, retrieve and move; rejects a second row for the same pair
+-- when two first stores race.
+alter table good_storage add constraint uk_good_storage_warehouse_good unique (warehouse_id, good_id);
+
+-- Covering indexes for the totals and locations: the per-good and per-warehouse sums, the locations join
+-- and the warehouses locked when a good is deleted read the index only. Every amount change also updates
+-- these two indexes, which is cheap next to scanning the table for each total.
+create index ix_good_storage_good_warehouse_amount on good_storage (good_id, warehouse_id, amount);
+create index ix_good_storage_warehouse_amount on good_storage (warehouse_id, amount);
@@ -0,0 +1,17 @@
+-- Append-only history of every stock change. The good_storage balances are maintained from the same
+-- transactions, the movements are never updated or deleted.
+create table inventory_movement (id binary(16) not null, warehouse_id binary(16) not null, good_id binary(16) not null, delta bigint not null, operation varchar(16) not null, created_at timestamp(6) not null, primary key (id)) engine=InnoDB;
+create index ix_inventory_movement_created_at on inventory_movement (created_at);
+create index ix_inventory_movement_warehouse_good on inventory_movement (warehouse_id, good_id, created_at);
+
+-- Balances of every (warehouse, good) pair as of taken_at, so that a past state is rebuilt from the latest
+-- snapshot before it and the movements after the snapshot.
+create table inventory_snapshot (id binary(16) not null, taken_at timestamp(6) not null, primary key (id)) engine=InnoDB;
+create index ix_inventory_snapshot_taken_at on inventory_snapshot (taken_at);
+create table inventory_snapshot_balance (id binary(16) not null, snapshot_id binary(16) not null, warehouse_id binary(16) not null, good_id binary(16) not null, amount bigint not null, primary key (id)) engine=InnoDB;
+alter table inventory_snapshot_balance add constraint uk_inventory_snapshot_balance unique (snapshot_id, warehouse_id, good_id);
+alter table inventory_snapshot_balance add constraint fk_inventory_snapshot_balance_snapshot foreign key (snapshot_id) references inventory_snapshot (id);
+
+-- Open the ledger with the balances stored so far.
+insert into inventory_movement (id, warehouse_id, good_id, delta, operation, created_at)
+select uuid_to_bin(uuid()), warehouse_id, good_id, amount, 'opening', utc_timestamp(6) from good_storage where amount > 0;
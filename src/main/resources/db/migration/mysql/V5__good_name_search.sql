@@ -0,0 +1,3 @@
+-- Case-insensitive name searches compare lower(name), which the plain name index cannot serve. A functional
+-- index on the same expression lets a prefix search range scan instead of reading the whole good table.
+create index ix_good_name_lower on good ((lower(name)));
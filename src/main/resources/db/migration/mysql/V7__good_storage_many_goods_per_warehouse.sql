@@ -0,0 +1,4 @@
+-- The schema generated from the old one-to-one mapping allowed a single storage row per warehouse, i.e. one
+-- kind of good per warehouse. A warehouse stores many goods; uk_good_storage_warehouse_good still allows one
+-- row per (warehouse, good) pair and also serves the foreign key of warehouse_id.
+alter table good_storage drop index UK_dadmsp2gqab6mmqequfhr0wi2;
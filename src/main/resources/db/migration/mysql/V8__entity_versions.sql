@@ -0,0 +1,5 @@
+-- Optimistic lock versions of the catalogue and the storages, increased by every update of a row.
+-- Existing rows start at version 0.
+alter table good add column version bigint default 0 not null;
+alter table warehouse add column version bigint default 0 not null;
+alter table good_storage add column version bigint default 0 not null;
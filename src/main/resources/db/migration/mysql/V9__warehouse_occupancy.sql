@@ -0,0 +1,10 @@
+-- Running occupancy counter per warehouse. Databases created by Hibernate before the migrations may already
+-- have the table, those created before the counters were introduced do not.
+create table if not exists warehouse_occupancy (amount bigint not null, warehouse_id binary(16) not null, primary key (warehouse_id)) engine=InnoDB;
+-- Start every warehouse without a counter at the amount it stores.
+insert into warehouse_occupancy (warehouse_id, amount)
+select w.id, coalesce(sum(s.amount), 0)
+from warehouse w
+         left join good_storage s on s.warehouse_id = w.id
+where not exists (select 1 from warehouse_occupancy o where o.warehouse_id = w.id)
+group by w.id;
@@ -0,0 +1,75 @@
+package dev.xxj.logistics.cache;
+
+import dev.xxj.logistics.metrics.QueryCounter;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.service.GoodService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plays the other node of an embedded shared tier, publishing and receiving the invalidations of the entity cache.
+ */
+@SpringBootTest(properties = "logistics.cache.shared-tier=embedded")
+@ActiveProfiles("h2")
+class EntityCacheInvalidatorTest {
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private SharedCacheTier sharedCacheTier;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void t1committedChangesAreBroadcast() {
+        List<CacheInvalidation> received = new CopyOnWriteArrayList<>();
+        sharedCacheTier.subscribe(received::add);
+
+        Good good = goodService.addGood(Good.builder().name("invalidated-" + UUID.randomUUID()).build());
+        goodService.updateGood(Good.builder().id(good.getId()).name("invalidated-" + UUID.randomUUID()).build());
+
+        List<Object> keys = received.stream()
+                .filter(invalidation -> Good.class.getName().equals(invalidation.cacheName()))
+                .map(invalidation -> (Object) invalidation.key())
+                .toList();
+        assertEquals(2, keys.size(), "an insert and an update");
+        assertNull(keys.get(0));
+        assertEquals(good.getId(), keys.get(1));
+    }
+
+    @Test
+    void t2changesOfAnotherNodeDropTheCopyAndTheQueryResults() {
+        String name = "invalidated-" + UUID.randomUUID();
+        Good good = goodService.addGood(Good.builder().name(name).build());
+        goodRepository.findByName(name);
+        var cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        assertTrue(cache.containsEntity(Good.class, good.getId()));
+        assertEquals(0, statements(() -> goodRepository.findByName(name)));
+
+        sharedCacheTier.publish(new CacheInvalidation("other-node", Good.class.getName(), good.getId()));
+
+        assertFalse(cache.containsEntity(Good.class, good.getId()));
+        assertEquals(1, statements(() -> goodRepository.findByName(name)));
+    }
+
+    /**
+     * Count the statements Hibernate executes for an action.
+     */
+    private static int statements(Runnable action) {
+        QueryCounter.start();
+        action.run();
+        return QueryCounter.stop();
+    }
+}
@@ -0,0 +1,85 @@
+package dev.xxj.logistics.cache;
+
+import dev.xxj.logistics.model.Good;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulates two nodes that share one {@link InMemorySharedCacheTier}.
+ */
+class TwoLevelCacheManagerTest {
+    private final UUID id = UUID.randomUUID();
+    private Cache node1;
+    private Cache node2;
+
+    @BeforeEach
+    void setUp() {
+        SharedCacheTier shared = new InMemorySharedCacheTier();
+        node1 = new TwoLevelCacheManager(new CaffeineCacheManager("goods"), shared).getCache("goods");
+        node2 = new TwoLevelCacheManager(new CaffeineCacheManager("goods"), shared).getCache("goods");
+    }
+
+    @Test
+    void t1readFallsThroughToSharedLevel() {
+        node1.put(id, good("apple"));
+
+        assertEquals("apple", read(node2).getName());
+        assertNotNull(((TwoLevelCache) node2).getNativeCache().getIfPresent(id));
+    }
+
+    @Test
+    void t2writeEvictsLocalCopyOnOtherNode() {
+        node1.put(id, good("apple"));
+        assertEquals("apple", read(node2).getName());
+
+        node1.put(id, good("banana"));
+        assertEquals("banana", read(node2).getName());
+
+        node1.evict(id);
+        assertNull(node2.get(id));
+    }
+
+    @Test
+    void t3clearEvictsAllLocalCopies() {
+        UUID other = UUID.randomUUID();
+        node1.put(id, good("apple"));
+        node1.put(other, good("banana"));
+        read(node2);
+
+        node2.clear();
+
+        assertNull(node1.get(id));
+        assertNull(node1.get(other));
+    }
+
+    @Test
+    void t4valueLoaderRunsOnceAcrossNodes() {
+        assertEquals("apple", node1.get(id, () -> good("apple")).getName());
+        assertEquals("apple", node2.get(id, () -> Assertions.<Good>fail("loaded twice")).getName());
+    }
+
+    @Test
+    void t5nullValuesAreShared() {
+        node1.put(id, null);
+
+        Cache.ValueWrapper wrapper = node2.get(id);
+        assertNotNull(wrapper);
+        assertNull(wrapper.get());
+    }
+
+    private Good read(Cache cache) {
+        return (Good) Objects.requireNonNull(cache.get(id)).get();
+    }
+
+    private Good good(String name) {
+        return Good.builder().id(id).name(name).build();
+    }
+}
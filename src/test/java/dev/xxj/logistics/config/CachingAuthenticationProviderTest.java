@@ -0,0 +1,110 @@
+package dev.xxj.logistics.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingAuthenticationProviderTest {
+    private final AtomicInteger checks = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PasswordEncoder encoder;
+    private InMemoryUserDetailsManager users;
+    private CachingAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        encoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                checks.incrementAndGet();
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        };
+        users = new InMemoryUserDetailsManager(user("password", "USER"));
+        provider = new CachingAuthenticationProvider(users, encoder,
+                new CredentialCacheProperties(true, 10L, Duration.ofMinutes(5)), registry);
+    }
+
+    @Test
+    void t1repeatedCredentialsSkipPasswordEncoder() {
+        authenticate("password");
+        Authentication result = authenticate("password");
+
+        assertEquals(1, checks.get());
+        assertEquals("user", result.getName());
+        assertNull(result.getCredentials());
+        assertEquals(1, registry.get("logistics.auth.verification").tag("cache", "hit").timer().count());
+        assertEquals(1, registry.get("logistics.auth.verification").tag("cache", "miss").timer().count());
+    }
+
+    @Test
+    void t2wrongPasswordIsCheckedAndRejected() {
+        authenticate("password");
+
+        assertThrows(BadCredentialsException.class, () -> authenticate("wrong"));
+        assertThrows(BadCredentialsException.class, () -> authenticate("wrong"));
+        assertEquals(3, checks.get());
+    }
+
+    @Test
+    void t3passwordChangeInvalidatesCachedCheck() {
+        authenticate("password");
+        users.updateUser(user("changed", "USER"));
+
+        assertThrows(BadCredentialsException.class, () -> authenticate("password"));
+        authenticate("changed");
+        authenticate("changed");
+        assertEquals(3, checks.get());
+    }
+
+    @Test
+    void t4roleChangeAppliesToCachedCheck() {
+        authenticate("password");
+        String hash = users.loadUserByUsername("user").getPassword();
+        users.updateUser(User.withUsername("user").password(hash).roles("ADMIN").build());
+
+        Authentication result = authenticate("password");
+        assertEquals(1, checks.get());
+        assertEquals(Set.of("ROLE_ADMIN"), AuthorityUtils.authorityListToSet(result.getAuthorities()));
+    }
+
+    @Test
+    void t5disabledAndDeletedUsersAreRejected() {
+        authenticate("password");
+        String hash = users.loadUserByUsername("user").getPassword();
+        users.updateUser(User.withUsername("user").password(hash).roles("USER").disabled(true).build());
+        assertThrows(DisabledException.class, () -> authenticate("password"));
+
+        users.deleteUser("user");
+        assertThrows(BadCredentialsException.class, () -> authenticate("password"));
+    }
+
+    private Authentication authenticate(String password) {
+        return provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", password));
+    }
+
+    private org.springframework.security.core.userdetails.UserDetails user(String password, String role) {
+        return User.withUsername("user").password(encoder.encode(password)).roles(role).build();
+    }
+}
@@ -0,0 +1,102 @@
+package dev.xxj.logistics.config;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import dev.xxj.logistics.model.CursorPage;
+import dev.xxj.logistics.service.GoodService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class CachingConfigTest {
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void t1maximumWeightCountsEntities() {
+        CaffeineCacheManager manager = CachingConfig.cacheManager(new CacheProperties(null, Map.of(
+                "lists", new CacheProperties.Spec(null, 10L, null, null, null)), null), Map.of());
+        Cache cache = manager.getCache("lists");
+        cache.put("a", List.of(1, 2, 3, 4, 5, 6));
+        cache.put("b", List.of(1, 2, 3, 4, 5, 6));
+        cache.put("c", 1);
+
+        var nativeCache = ((CaffeineCache) cache).getNativeCache();
+        nativeCache.cleanUp();
+        assertTrue(nativeCache.policy().eviction().orElseThrow().weightedSize().orElseThrow() <= 10L);
+    }
+
+    @Test
+    void t2refreshAfterWriteReloadsInBackground() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CacheLoader<Object, Object> loader = key -> {
+            release.await(5, TimeUnit.SECONDS);
+            return key + "-" + loads.incrementAndGet();
+        };
+        CaffeineCacheManager manager = CachingConfig.cacheManager(new CacheProperties(null, Map.of(
+                "refreshing", new CacheProperties.Spec(10L, null, null, null, Duration.ofMillis(20))), null), Map.of("refreshing", loader));
+        Cache cache = manager.getCache("refreshing");
+        cache.put("key", "old");
+        Thread.sleep(50);
+
+        /* the stale value is still served while the refresh runs */
+        assertEquals("old", Objects.requireNonNull(cache.get("key")).get());
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while ("old".equals(Objects.requireNonNull(cache.get("key")).get()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("key-1", Objects.requireNonNull(cache.get("key")).get());
+    }
+
+    @Test
+    void t3refreshWithoutLoaderIsRejected() {
+        assertThrows(IllegalStateException.class, () -> CachingConfig.cacheManager(new CacheProperties(null, Map.of(
+                "refreshing", new CacheProperties.Spec(10L, null, null, null, Duration.ofMinutes(1))), null), Map.of()));
+    }
+
+    @Test
+    void t4statisticsArePublishedAsMetrics() {
+        UUID id = UUID.randomUUID();
+        goodService.getGoodById(id);
+        goodService.getGoodById(id);
+
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", "goods").tag("result", "hit").functionCounter());
+        assertTrue(meterRegistry.find("cache.gets").tag("cache", "goods").tag("result", "miss")
+                .functionCounter().count() >= 1);
+    }
+
+    @Test
+    void t5pagesWeighTheirItems() {
+        CaffeineCacheManager manager = CachingConfig.cacheManager(new CacheProperties(null, Map.of(
+                "pages", new CacheProperties.Spec(null, 10L, null, null, null)), null), Map.of());
+        Cache cache = manager.getCache("pages");
+        cache.put("a", new CursorPage<>(List.of(1, 2, 3, 4, 5, 6), "next"));
+        cache.put("b", new CursorPage<>(List.of(7, 8, 9, 10, 11, 12), null));
+
+        var nativeCache = ((CaffeineCache) cache).getNativeCache();
+        nativeCache.cleanUp();
+        assertEquals(1, nativeCache.estimatedSize(), "two pages of 6 items exceed a weight of 10");
+        assertEquals(6L, nativeCache.policy().eviction().orElseThrow().weightedSize().orElseThrow());
+    }
+}
@@ -0,0 +1,77 @@
+package dev.xxj.logistics.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseBulkheadFilterTest {
+    private final DatabaseBulkheadFilter filter = new DatabaseBulkheadFilter(1, Duration.ofMillis(100));
+
+    @Test
+    void t1requestWaitingTooLongIsRejected() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        var first = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        entered.await();
+
+        var rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+
+        release.countDown();
+        first.join();
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void t2permitIsReleasedWhenTheChainFails() {
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(new MockHttpServletRequest(),
+                new MockHttpServletResponse(), (request, response) -> {
+                    throw new IllegalStateException("failed");
+                }));
+        assertEquals(1, filter.availablePermits());
+
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+        assertDoesNotThrow(() -> filter.doFilter(new MockHttpServletRequest(), response, chain));
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void t3asyncRequestKeepsItsPermitUntilItCompletes() throws Exception {
+        var request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(0, filter.availablePermits(), "the response is still being written");
+
+        var rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+
+        request.getAsyncContext().complete();
+        assertEquals(1, filter.availablePermits());
+    }
+}
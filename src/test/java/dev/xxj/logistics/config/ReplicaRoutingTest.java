@@ -0,0 +1,150 @@
+package dev.xxj.logistics.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.job.ReplicaLagJob;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.service.GoodService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the application against a second embedded database standing in for a replica that receives nothing from
+ * the primary, so every read shows which of them served it.
+ */
+@SpringBootTest(properties = {
+        "logistics.datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "logistics.datasource.replicas[0].username=sa",
+        "logistics.datasource.lag-check-interval=PT1H"})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@WithUserDetails("admin")
+class ReplicaRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    @Autowired
+    private ReplicaLagJob lagJob;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").locations("classpath:db/migration/h2").load().migrate();
+    }
+
+    @Test
+    void t1readOnlyTransactionsReadTheReplica() {
+        UUID goodId = storeOnReplicaOnly(7);
+        replicaBehind(Duration.ZERO);
+        assertEquals(7L, goodService.getTotalAmount(goodId));
+    }
+
+    @Test
+    void t2laggingReplicaIsSkipped() {
+        UUID goodId = storeOnReplicaOnly(7);
+        replicaBehind(Duration.ofMinutes(1));
+        assertEquals(0L, goodService.getTotalAmount(goodId));
+        replicaBehind(Duration.ZERO);
+        assertEquals(7L, goodService.getTotalAmount(goodId));
+    }
+
+    @Test
+    void t3writersReadTheirOwnWrites() throws Exception {
+        replicaBehind(Duration.ZERO);
+        Warehouse warehouse = objectMapper.readValue(mvc.perform(post("/warehouse")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(
+                                Warehouse.builder().name("replica-" + UUID.randomUUID()).maxAmount(10L).build())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), Warehouse.class);
+        Good good = objectMapper.readValue(mvc.perform(post("/good")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(
+                                Good.builder().name("replica-" + UUID.randomUUID()).build())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), Good.class);
+        mvc.perform(post("/good/store")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(
+                                new GoodStorageDto(warehouse.getId(), good.getId(), 3L))))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/good/amount/" + good.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+        mvc.perform(get("/good/amount/" + good.getId()).with(user("other")))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0"));
+        assertEquals(0L, goodService.getTotalAmount(good.getId()), "reads without a client are not pinned");
+    }
+
+    @Test
+    void t4replicaReadsDoNotFillTheEntityCache() {
+        var cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        UUID replicaOnly = storeOnReplicaOnly(1);
+        replicaBehind(Duration.ZERO);
+        assertTrue(goodRepository.findById(replicaOnly).isPresent());
+        assertFalse(cache.containsEntity(Good.class, replicaOnly), "a replica may lag behind the primary");
+
+        Good good = goodService.addGood(Good.builder().name("replica-" + UUID.randomUUID()).build());
+        cache.evictEntityData(Good.class, good.getId());
+        assertTrue(ReplicaRoutingDataSource.onPrimary(() -> goodRepository.findById(good.getId())).isPresent());
+        assertTrue(cache.containsEntity(Good.class, good.getId()), "reads of the primary refresh the entity cache");
+    }
+
+    /**
+     * Store a good in a warehouse of the replica only.
+     */
+    private static UUID storeOnReplicaOnly(long amount) {
+        UUID warehouseId = UUID.randomUUID();
+        UUID goodId = UUID.randomUUID();
+        replica.update("insert into warehouse (id, name, max_amount) values (?, ?, 100)", warehouseId,
+                "replica-" + warehouseId);
+        replica.update("insert into good (id, name) values (?, ?)", goodId, "replica-" + goodId);
+        replica.update("insert into good_storage (id, warehouse_id, good_id, amount) values (?, ?, ?, ?)",
+                UUID.randomUUID(), warehouseId, goodId, amount);
+        return goodId;
+    }
+
+    /**
+     * Let the replica see a heartbeat that is {@code lag} old, and measure the lag.
+     */
+    private void replicaBehind(Duration lag) {
+        replica.update("update replication_heartbeat set beat = ? where id = 1",
+                System.currentTimeMillis() - lag.toMillis());
+        lagJob.check();
+    }
+}
@@ -0,0 +1,151 @@
+package dev.xxj.logistics.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.metrics.QueryCountFilter;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.service.GoodService;
+import dev.xxj.logistics.service.WarehouseService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("h2")
+@WithUserDetails("admin")
+class ConditionalGetTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+
+    @Test
+    void t1unchangedListIsNotSentAgain() throws Exception {
+        addWarehouse();
+        String etag = mvc.perform(get("/warehouse"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        double before = statements("/warehouse");
+        mvc.perform(get("/warehouse").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertEquals(0, statements("/warehouse") - before, "a 304 is answered without the database");
+
+        addWarehouse();
+        String changed = mvc.perform(get("/warehouse").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void t2entityEtagIsItsVersion() throws Exception {
+        Warehouse warehouse = addWarehouse();
+        mvc.perform(get("/warehouse/" + warehouse.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.version").value(0));
+        mvc.perform(get("/warehouse/" + warehouse.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+
+        warehouse.setVersion(null);
+        warehouse.setMaxAmount(200L);
+        mvc.perform(put("/warehouse")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(warehouse)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1));
+        mvc.perform(get("/warehouse/" + warehouse.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.maxAmount").value(200));
+
+        warehouse.setVersion(0L);
+        mvc.perform(put("/warehouse")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(warehouse)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void t3listIsNotSentAgainSinceItsLastModifiedTime() throws Exception {
+        goodService.addGood(Good.builder().name("conditional-" + UUID.randomUUID()).build());
+        mvc.perform(get("/good"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+        /* a date is only sent once no later change can fall into the same second */
+        Thread.sleep(1000);
+        String lastModified = mvc.perform(get("/good"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        assertNotNull(lastModified);
+
+        mvc.perform(get("/good").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+        goodService.addGood(Good.builder().name("conditional-" + UUID.randomUUID()).build());
+        mvc.perform(get("/good").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void t4storageVersionFollowsItsAmount() {
+        Good good = goodService.addGood(Good.builder().name("conditional-" + UUID.randomUUID()).build());
+        UUID warehouseId = addWarehouse().getId();
+        goodService.storeGood(new GoodStorageDto(warehouseId, good.getId(), 5L));
+        assertEquals(0L, goodService.getGoodStorages(good.getId()).getFirst().getVersion());
+
+        goodService.storeGood(new GoodStorageDto(warehouseId, good.getId(), 5L));
+        goodService.retrieveGood(new GoodStorageDto(warehouseId, good.getId(), 3L));
+        assertEquals(2L, goodService.getGoodStorages(good.getId()).getFirst().getVersion());
+    }
+
+    private Warehouse addWarehouse() {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("conditional-" + UUID.randomUUID()).maxAmount(100L).build());
+    }
+
+    /**
+     * Get the number of statements executed by the GET requests of a URI pattern so far.
+     */
+    private double statements(String uri) {
+        DistributionSummary summary = registry.find(QueryCountFilter.QUERIES)
+                .tag("method", "GET")
+                .tag("uri", uri)
+                .summary();
+        return Objects.isNull(summary) ? 0 : summary.totalAmount();
+    }
+}
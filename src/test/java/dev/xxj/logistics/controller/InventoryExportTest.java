@@ -0,0 +1,116 @@
+package dev.xxj.logistics.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.InventoryRow;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.service.GoodService;
+import dev.xxj.logistics.service.WarehouseService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class InventoryExportTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private UUID goodId;
+    private List<UUID> warehouseIds;
+
+    @BeforeEach
+    void setUp() {
+        goodId = goodService.addGood(Good.builder().name("export, \"quoted\"").build()).getId();
+        warehouseIds = List.of(warehouse("export-1"), warehouse("export-2"));
+        for (int i = 0; i < warehouseIds.size(); i++) {
+            goodService.storeGood(new GoodStorageDto(warehouseIds.get(i), goodId, 10L * (i + 1)));
+        }
+    }
+
+    @Test
+    void t1exportsNdjsonWithoutLoadingEntities() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<InventoryRow> rows = Arrays.stream(export("ndjson").split("\n"))
+                .map(line -> read(line, InventoryRow.class))
+                .filter(row -> row.goodId().equals(goodId))
+                .toList();
+
+        assertEquals(List.of(
+                new InventoryRow(goodId, "export, \"quoted\"", warehouseIds.get(0), "export-1", 10L),
+                new InventoryRow(goodId, "export, \"quoted\"", warehouseIds.get(1), "export-2", 20L)), rows);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void t2exportsCsvWithQuotedFields() throws Exception {
+        String[] lines = export("csv").split("\n");
+
+        assertEquals("good_id,good_name,warehouse_id,warehouse_name,amount", lines[0]);
+        assertTrue(Arrays.asList(lines).contains(
+                goodId + ",\"export, \"\"quoted\"\"\"," + warehouseIds.get(1) + ",export-2,20"));
+    }
+
+    @Test
+    void t3rejectsUnknownFormat() throws Exception {
+        mvc.perform(get("/inventory/export").param("format", "xml").with(httpBasic("user", "password")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String export(String format) throws Exception {
+        MvcResult started = mvc.perform(get("/inventory/export").param("format", format)
+                        .with(httpBasic("user", "password")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(format.equals("csv") ? "text/csv" : "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private UUID warehouse(String name) {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name(name)
+                .location("China")
+                .maxAmount(100L).build()).getId();
+    }
+
+    private <T> T read(String line, Class<T> type) {
+        try {
+            return objectMapper.readValue(line, type);
+        } catch (Exception e) {
+            throw new AssertionError(line, e);
+        }
+    }
+}
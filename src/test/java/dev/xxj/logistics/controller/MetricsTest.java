@@ -0,0 +1,117 @@
+package dev.xxj.logistics.controller;
+
+import dev.xxj.logistics.job.OccupancyMetricsJob;
+import dev.xxj.logistics.metrics.InventoryMetrics;
+import dev.xxj.logistics.metrics.QueryCountFilter;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.service.GoodService;
+import dev.xxj.logistics.service.WarehouseService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("h2")
+class MetricsTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private OccupancyMetricsJob occupancyMetricsJob;
+    private UUID goodId;
+    private UUID warehouseId;
+
+    @BeforeEach
+    void setUp() {
+        goodId = goodService.addGood(Good.builder().name("metrics").build()).getId();
+        warehouseId = warehouseService.addWarehouse(Warehouse.builder()
+                .name("metrics")
+                .location("China")
+                .maxAmount(10L).build()).getId();
+    }
+
+    @Test
+    void t1operationsAreTimedByOutcome() throws Exception {
+        double stored = count("store", "success");
+        double full = count("store", "capacity_exceeded");
+        double insufficient = count("retrieve", "insufficient_stock");
+
+        inventory("/good/store", 6).andExpect(status().isOk());
+        inventory("/good/store", 6).andExpect(status().isBadRequest());
+        inventory("/good/retrieve", 7).andExpect(status().isBadRequest());
+
+        assertEquals(stored + 1, count("store", "success"));
+        assertEquals(full + 1, count("store", "capacity_exceeded"));
+        assertEquals(insufficient + 1, count("retrieve", "insufficient_stock"));
+        assertTrue(registry.get(InventoryMetrics.LOCK_WAIT).tag("operation", "store").timer().count() >= 2);
+        assertTrue(registry.get("logistics.service").tag("method", "storeGood").timer().count() >= 2);
+    }
+
+    @Test
+    void t2queriesAreCountedPerRequest() throws Exception {
+        inventory("/good/store", 1).andExpect(status().isOk());
+
+        DistributionSummary queries = registry.get(QueryCountFilter.QUERIES)
+                .tag("method", "POST")
+                .tag("uri", "/good/store")
+                .summary();
+        assertTrue(queries.count() >= 1);
+        assertTrue(queries.max() >= 2, "the counter update and the storage update or insert");
+    }
+
+    @Test
+    void t3prometheusExposesOccupancyAndCaches() throws Exception {
+        inventory("/good/store", 4).andExpect(status().isOk());
+        occupancyMetricsJob.refresh();
+
+        assertEquals(4.0, registry.get(OccupancyMetricsJob.OCCUPANCY)
+                .tag("warehouse", warehouseId.toString()).gauge().value());
+        String scrape = mvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "password")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(scrape.contains("logistics_inventory_operations_seconds_bucket"), scrape);
+        assertTrue(scrape.contains("logistics_warehouse_capacity{name=\"metrics\",warehouse=\"" + warehouseId + "\""),
+                scrape);
+        assertTrue(scrape.contains("cache_gets_total{cache=\"goods\""), scrape);
+        assertTrue(scrape.contains("logistics_http_db_queries"), scrape);
+    }
+
+    private org.springframework.test.web.servlet.ResultActions inventory(String uri, long amount) throws Exception {
+        return mvc.perform(post(uri).with(httpBasic("admin", "password"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"warehouseId\":\"%s\",\"goodId\":\"%s\",\"amount\":%d}"
+                        .formatted(warehouseId, goodId, amount)));
+    }
+
+    private double count(String operation, String outcome) {
+        var timer = registry.find(InventoryMetrics.OPERATIONS)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
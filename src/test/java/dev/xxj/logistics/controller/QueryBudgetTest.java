@@ -0,0 +1,226 @@
+package dev.xxj.logistics.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.metrics.QueryCountFilter;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.ImportStatus;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.service.GoodService;
+import dev.xxj.logistics.service.WarehouseService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Fails when an endpoint executes more SQL statements than its budget, as counted by {@link QueryCountFilter}.
+ * <p>
+ * Every request runs with empty caches, against a good stored in several warehouses and a warehouse storing
+ * several goods, so a statement per row shows up as soon as there is more than one row. Every endpoint of the
+ * application needs a budget, except those streaming their response, whose statements run after the request
+ * thread returned.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("h2")
+@WithUserDetails("admin")
+class QueryBudgetTest {
+    private static final Map<String, Integer> BUDGETS = Map.ofEntries(
+            entry("POST /auth/token", 0),
+            entry("GET /good", 1),
+            entry("GET /good/page", 1),
+            entry("POST /good", 1),
+            entry("PUT /good", 2),
+            entry("DELETE /good/{id}", 12),
+            entry("GET /good/{id}", 1),
+            entry("GET /good/name/{name}", 1),
+            entry("GET /good/search", 1),
+            entry("GET /good/locations/{id}", 1),
+            entry("GET /good/amount/{id}", 1),
+            entry("GET /good/storages/{goodId}", 1),
+            entry("POST /good/store", 3),
+            entry("POST /good/retrieve", 3),
+            entry("POST /good/move", 7),
+            entry("POST /good/bulk/store", 8),
+            entry("POST /good/bulk/retrieve", 7),
+            entry("POST /good/bulk/move", 8),
+            entry("POST /inventory/import", 0),
+            entry("GET /inventory/import/{id}", 0),
+            entry("GET /inventory/import/{id}/errors", 0),
+            entry("GET /inventory/balances", 3),
+            entry("POST /warehouse", 3),
+            entry("GET /warehouse", 1),
+            entry("GET /warehouse/page", 1),
+            entry("GET /warehouse/{id}", 1),
+            entry("PUT /warehouse", 3),
+            entry("DELETE /warehouse/{id}", 4),
+            entry("GET /warehouse/full/{id}", 2),
+            entry("GET /warehouse/amount/{id}", 1));
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+    private final List<String> overBudget = new ArrayList<>();
+
+    @Test
+    void t1everyEndpointHasABudget() {
+        var endpoints = new TreeSet<String>();
+        handlerMapping.getHandlerMethods().forEach((info, handler) -> {
+            ResolvableType body = ResolvableType.forMethodReturnType(handler.getMethod()).getGeneric(0);
+            if (!handler.getBeanType().getPackageName().equals(getClass().getPackageName())
+                    || StreamingResponseBody.class.equals(body.resolve())) {
+                return;
+            }
+            info.getMethodsCondition().getMethods().forEach(method -> info.getPatternValues()
+                    .forEach(pattern -> endpoints.add(method + " " + pattern)));
+        });
+        assertEquals(new TreeSet<>(BUDGETS.keySet()), endpoints);
+    }
+
+    @Test
+    void t2endpointsStayWithinTheirBudgets() throws Exception {
+        Warehouse house = addWarehouse(), other = addWarehouse(), spare = addWarehouse();
+        Good good = addGood(), second = addGood(), third = addGood();
+        for (Good stored : List.of(good, second, third)) {
+            goodService.storeGood(new GoodStorageDto(house.getId(), stored.getId(), 10L));
+        }
+        goodService.storeGood(new GoodStorageDto(other.getId(), good.getId(), 10L));
+        goodService.storeGood(new GoodStorageDto(spare.getId(), good.getId(), 10L));
+
+        request("POST /auth/token", post("/auth/token"));
+        request("GET /good", get("/good"));
+        request("GET /good/page", get("/good/page").param("size", "5"));
+        request("POST /good", json(post("/good"), Good.builder().name("budget-" + UUID.randomUUID()).build()));
+        request("PUT /good", json(put("/good"), Good.builder().id(third.getId()).name(third.getName() + "!").build()));
+        request("GET /good/{id}", get("/good/" + good.getId()));
+        request("GET /good/name/{name}", get("/good/name/" + good.getName()));
+        request("GET /good/search", get("/good/search").param("q", good.getName()));
+        request("GET /good/locations/{id}", get("/good/locations/" + good.getId()));
+        request("GET /good/amount/{id}", get("/good/amount/" + good.getId()));
+        request("GET /good/storages/{goodId}", get("/good/storages/" + good.getId()));
+        request("POST /good/store", json(post("/good/store"), new GoodStorageDto(house.getId(), good.getId(), 1L)));
+        request("POST /good/retrieve",
+                json(post("/good/retrieve"), new GoodStorageDto(house.getId(), good.getId(), 1L)));
+        request("POST /good/move",
+                json(post("/good/move"), new MoveDTO(house.getId(), other.getId(), good.getId(), 1L)));
+        request("POST /good/bulk/store", json(post("/good/bulk/store"), List.of(
+                new GoodStorageDto(house.getId(), good.getId(), 1L),
+                new GoodStorageDto(house.getId(), second.getId(), 1L),
+                new GoodStorageDto(other.getId(), second.getId(), 1L))));
+        request("POST /good/bulk/retrieve", json(post("/good/bulk/retrieve"), List.of(
+                new GoodStorageDto(house.getId(), good.getId(), 1L),
+                new GoodStorageDto(house.getId(), second.getId(), 1L),
+                new GoodStorageDto(other.getId(), second.getId(), 1L))));
+        request("POST /good/bulk/move", json(post("/good/bulk/move"), List.of(
+                new MoveDTO(house.getId(), other.getId(), good.getId(), 1L),
+                new MoveDTO(house.getId(), spare.getId(), second.getId(), 1L),
+                new MoveDTO(house.getId(), other.getId(), third.getId(), 1L))));
+        String imported = request("POST /inventory/import", post("/inventory/import")
+                .contentType("text/csv")
+                .content("good,warehouse,location,max_amount,amount\n" + good.getName() + ",,,,\n"));
+        UUID importId = objectMapper.readValue(imported, ImportStatus.class).id();
+        request("GET /inventory/import/{id}", get("/inventory/import/" + importId));
+        request("GET /inventory/import/{id}/errors", get("/inventory/import/" + importId + "/errors"));
+        request("GET /inventory/balances", get("/inventory/balances"));
+        request("DELETE /good/{id}", delete("/good/" + good.getId()));
+
+        request("POST /warehouse", json(post("/warehouse"), Warehouse.builder()
+                .name("budget-" + UUID.randomUUID()).maxAmount(10L).build()));
+        request("GET /warehouse", get("/warehouse"));
+        request("GET /warehouse/page", get("/warehouse/page").param("size", "5"));
+        request("GET /warehouse/{id}", get("/warehouse/" + house.getId()));
+        request("PUT /warehouse", json(put("/warehouse"), Warehouse.builder()
+                .id(spare.getId()).name(spare.getName() + "!").maxAmount(100L).build()));
+        request("GET /warehouse/full/{id}", get("/warehouse/full/" + house.getId()));
+        request("GET /warehouse/amount/{id}", get("/warehouse/amount/" + house.getId()));
+        request("DELETE /warehouse/{id}", delete("/warehouse/" + addWarehouse().getId()));
+
+        assertEquals(List.of(), overBudget);
+    }
+
+    /**
+     * Perform a request with empty caches and note it if it executed more statements than its budget.
+     *
+     * @return the response body
+     */
+    private String request(String endpoint, MockHttpServletRequestBuilder request) throws Exception {
+        cacheManager.getCacheNames().forEach(name -> Objects.requireNonNull(cacheManager.getCache(name)).clear());
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        double before = statements(endpoint);
+        var response = mvc.perform(request).andReturn().getResponse();
+        assertTrue(response.getStatus() < 400, endpoint + " answered " + response.getStatus());
+        int executed = (int) (statements(endpoint) - before);
+        if (executed > BUDGETS.get(endpoint)) {
+            overBudget.add(endpoint + " executed " + executed + " statement(s), its budget is " + BUDGETS.get(endpoint));
+        }
+        return response.getContentAsString();
+    }
+
+    private double statements(String endpoint) {
+        String[] methodAndUri = endpoint.split(" ");
+        DistributionSummary summary = registry.find(QueryCountFilter.QUERIES)
+                .tag("method", methodAndUri[0])
+                .tag("uri", methodAndUri[1])
+                .summary();
+        return Objects.isNull(summary) ? 0 : summary.totalAmount();
+    }
+
+    private MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, Object body) throws Exception {
+        return request.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(body));
+    }
+
+    private Warehouse addWarehouse() {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("budget-" + UUID.randomUUID()).maxAmount(100L).build());
+    }
+
+    private Good addGood() {
+        return goodService.addGood(Good.builder().name("budget-" + UUID.randomUUID()).build());
+    }
+}
@@ -0,0 +1,107 @@
+package dev.xxj.logistics.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.config.TokenConfig;
+import dev.xxj.logistics.model.AccessToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class TokenAuthTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JwtEncoder encoder;
+
+    @Test
+    void t1tokenAuthenticatesWithoutSession() throws Exception {
+        String token = token("admin");
+        Integer sessions = jdbcTemplate.queryForObject("select count(*) from SPRING_SESSION", Integer.class);
+
+        MvcResult result = mvc.perform(get("/good").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Current-User", "admin"))
+                .andExpect(header().doesNotExist(HttpHeaders.SET_COOKIE))
+                .andReturn();
+
+        assertNull(result.getRequest().getSession(false));
+        assertEquals(sessions, jdbcTemplate.queryForObject("select count(*) from SPRING_SESSION", Integer.class));
+    }
+
+    @Test
+    void t2tokenCarriesRoles() throws Exception {
+        mvc.perform(post("/good").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("user"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"token\"}"))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/good").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"token\"}"))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void t3invalidTokensAreRejected() throws Exception {
+        String token = token("admin");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        mvc.perform(get("/good").header(HttpHeaders.AUTHORIZATION, "Bearer " + tampered))
+                .andExpect(status().isUnauthorized());
+
+        JwtClaimsSet expired = JwtClaimsSet.builder()
+                .subject("admin")
+                .issuedAt(Instant.now().minusSeconds(7200))
+                .expiresAt(Instant.now().minusSeconds(3600))
+                .claim(TokenConfig.AUTHORITIES_CLAIM, List.of("ROLE_ADMIN"))
+                .build();
+        String expiredToken = encoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(),
+                expired)).getTokenValue();
+        mvc.perform(get("/good").header(HttpHeaders.AUTHORIZATION, "Bearer " + expiredToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void t4tokenCannotBeRenewedWithItself() throws Exception {
+        mvc.perform(post("/auth/token").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("user")))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/auth/token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String token(String username) throws Exception {
+        MvcResult result = mvc.perform(post("/auth/token").with(httpBasic(username, "password")))
+                .andExpect(status().isOk())
+                .andReturn();
+        AccessToken token = objectMapper.readValue(result.getResponse().getContentAsString(), AccessToken.class);
+        assertTrue(token.expiresAt().isAfter(Instant.now()));
+        return token.token();
+    }
+}
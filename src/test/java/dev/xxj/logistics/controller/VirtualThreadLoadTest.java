@@ -0,0 +1,260 @@
+package dev.xxj.logistics.controller;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.xxj.logistics.Application;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.service.GoodService;
+import jakarta.servlet.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the application on platform threads and on virtual threads, with and without the
+ * {@link dev.xxj.logistics.config.DatabaseBulkheadFilter}.
+ * <p>
+ * Every JDBC statement is delayed by {@value LATENCY_MILLIS} ms to simulate a remote database, and
+ * {@code load.clients} clients (1000 by default) request the total amount of a good in a loop for
+ * {@code load.seconds} seconds after a warm-up. For each mode it logs how many requests the server handled at
+ * once, the throughput, the latency percentiles, the failed requests, how many threads waited inside the
+ * Hikari pool at most and the CPU time per request. The bulkhead waits up to a minute here so that every mode
+ * serves the same load instead of shedding part of it.
+ * <p>
+ * It only runs with {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+class VirtualThreadLoadTest {
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.seconds", 15));
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final int SESSIONS = 20;
+    private static final long LATENCY_MILLIS = 20;
+
+    @Test
+    void platformThreads() throws Exception {
+        run("platform threads", "spring.threads.virtual.enabled=false");
+    }
+
+    @Test
+    void virtualThreadsWithBulkhead() throws Exception {
+        Result result = run("virtual threads with bulkhead", "spring.threads.virtual.enabled=true",
+                "logistics.bulkhead.max-wait=PT60S");
+        assertTrue(result.maxAwaitingConnection() < result.poolSize(),
+                "the bulkhead keeps the requests out of the queue of the pool");
+    }
+
+    @Test
+    void virtualThreadsWithoutBulkhead() throws Exception {
+        run("virtual threads without bulkhead", "spring.threads.virtual.enabled=true",
+                "logistics.bulkhead.enabled=false");
+    }
+
+    private Result run(String mode, String... properties) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HikariDataSource[] pool = new HikariDataSource[1];
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("h2")
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn",
+                        "logging.level.dev.xxj.logistics.controller.VirtualThreadLoadTest=info")
+                .initializers(ctx -> {
+                    GenericApplicationContext generic = (GenericApplicationContext) ctx;
+                    generic.registerBean("slowDatabase", BeanPostProcessor.class, () -> slowDatabase(pool));
+                    generic.registerBean("inFlightProbe", FilterRegistrationBean.class,
+                            () -> inFlightProbe(inFlight, maxInFlight));
+                })
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .build()) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            UUID goodId = context.getBean(GoodService.class).addGood(Good.builder().name("load").build()).getId();
+            List<String> cookies = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i++) {
+                cookies.add(login(http, base));
+            }
+
+            List<HttpRequest> requests = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                requests.add(HttpRequest.newBuilder(URI.create(base + "/good/amount/" + goodId))
+                        .header("Cookie", cookies.get(i % SESSIONS))
+                        .timeout(Duration.ofSeconds(60))
+                        .build());
+            }
+
+            /* warm up the JIT first, it competes with the requests for the CPU */
+            load(http, requests, WARMUP, pool[0]);
+            maxInFlight.set(0);
+            Result result = load(http, requests, DURATION, pool[0]).withMaxInFlight(maxInFlight.get());
+            log.info("{} with {} clients: {}", mode, CLIENTS, result);
+            assertTrue(result.requestsPerSecond() > 0);
+            return result;
+        }
+    }
+
+    /**
+     * Let every client send its request in a loop for the given duration and measure the server meanwhile.
+     */
+    private static Result load(HttpClient http, List<HttpRequest> requests, Duration duration, HikariDataSource pool)
+            throws Exception {
+        AtomicInteger maxAwaiting = new AtomicInteger();
+        LongAdder failures = new LongAdder();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        var os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuBefore = os.getProcessCpuTime();
+        long deadline = System.nanoTime() + duration.toNanos();
+        Thread sampler = Thread.ofPlatform().start(() -> {
+            while (System.nanoTime() < deadline) {
+                maxAwaiting.accumulateAndGet(pool.getHikariPoolMXBean().getThreadsAwaitingConnection(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        CompletableFuture.allOf(requests.stream()
+                        .map(request -> loop(http, request, deadline, latencies, failures))
+                        .toArray(CompletableFuture[]::new))
+                .get(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        sampler.join();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(0, sorted.size() / (double) duration.toSeconds(),
+                percentile(sorted, 0.5), percentile(sorted, 0.99), failures.sum(),
+                maxAwaiting.get(), pool.getMaximumPoolSize(),
+                (os.getProcessCpuTime() - cpuBefore) / 1e6 / Math.max(1, sorted.size() + failures.sum()));
+    }
+
+    /**
+     * Send the request again and again until the deadline. The clients are asynchronous so that the load
+     * generator does not compete with the server for the carriers of virtual threads.
+     */
+    private static CompletableFuture<Void> loop(HttpClient http, HttpRequest request, long deadline,
+                                                List<Long> latencies, LongAdder failures) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (Objects.nonNull(response) && response.statusCode() == 200) {
+                        latencies.add(System.nanoTime() - start);
+                    } else {
+                        failures.increment();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(http, request, deadline, latencies, failures));
+    }
+
+    /**
+     * Log in with the form once, since checking the password with BCrypt on every request would make this a
+     * CPU benchmark.
+     *
+     * @return the session cookie
+     */
+    private static String login(HttpClient http, String base) throws Exception {
+        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=user&password=password"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        return response.headers().firstValue("Set-Cookie").orElseThrow().split(";", 2)[0];
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        return sorted.isEmpty() ? 0 : sorted.get((int) (percentile * (sorted.size() - 1))) / 1e6;
+    }
+
+    private static FilterRegistrationBean<Filter> inFlightProbe(AtomicInteger inFlight, AtomicInteger maxInFlight) {
+        var registration = new FilterRegistrationBean<Filter>((request, response, chain) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Delay every statement executed on a connection of the pool, while the connection is held.
+     */
+    private static BeanPostProcessor slowDatabase(HikariDataSource[] pool) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                pool[0] = hikari;
+                return proxy(DataSource.class, hikari);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (target instanceof Statement && method.getName().startsWith("execute")) {
+                Thread.sleep(LATENCY_MILLIS);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returned = method.getReturnType();
+            if (result != null && returned.isInterface()
+                    && (Connection.class.isAssignableFrom(returned) || Statement.class.isAssignableFrom(returned))) {
+                return proxy((Class<Object>) returned, result);
+            }
+            return result;
+        });
+    }
+
+    private record Result(int maxInFlight, double requestsPerSecond, double p50Millis, double p99Millis,
+                          long failures, int maxAwaitingConnection, int poolSize, double cpuMillisPerRequest) {
+
+        Result withMaxInFlight(int maxInFlight) {
+            return new Result(maxInFlight, requestsPerSecond, p50Millis, p99Millis, failures, maxAwaitingConnection,
+                    poolSize, cpuMillisPerRequest);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package dev.xxj.logistics.model;
+
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class TimeOrderedUuidGeneratorTest {
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Test
+    void t1layoutFollowsVersion7() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedUuidGenerator.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        /* the sequence may have carried into the timestamp during earlier tests */
+        assertTrue(millis >= before && millis <= after + 1000, id::toString);
+    }
+
+    @Test
+    void t2idsIncreaseInGenerationOrder() {
+        UUID previous = TimeOrderedUuidGenerator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = TimeOrderedUuidGenerator.next();
+            if (Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits()) >= 0) {
+                fail(previous + " >= " + next);
+            }
+            previous = next;
+        }
+    }
+
+    @Test
+    void t3concurrentIdsAreUnique() {
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 200_000).parallel().forEach(i -> ids.add(TimeOrderedUuidGenerator.next()));
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    void t4entitiesGetTimeOrderedIds() {
+        Good good = goodRepository.save(Good.builder().name("ordered").build());
+        Warehouse house = warehouseRepository.save(Warehouse.builder().name("ordered").maxAmount(1L).build());
+
+        assertEquals(7, good.getId().version());
+        assertEquals(7, house.getId().version());
+        assertTrue(Long.compareUnsigned(good.getId().getMostSignificantBits(),
+                house.getId().getMostSignificantBits()) < 0);
+    }
+}
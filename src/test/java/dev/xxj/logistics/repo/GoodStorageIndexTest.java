@@ -0,0 +1,113 @@
+package dev.xxj.logistics.repo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the query plans of the hot good_storage queries with and without the indexes of the
+ * {@code V2__good_storage_indexes} migration, on the H2 schema created by Flyway.
+ * <p>
+ * {@code EXPLAIN ANALYZE} reports how many rows each plan scanned, which is deterministic, unlike timings.
+ * H2 counts one more row than it returns, where it detects the end of the index range.
+ */
+@Slf4j
+@DataJpaTest
+class GoodStorageIndexTest {
+    private static final int WAREHOUSES = 2000;
+    private static final int GOODS = 50;
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private UUID warehouseId;
+    private UUID goodId;
+
+    @BeforeEach
+    void setUp() {
+        List<UUID> goodIds = new ArrayList<>();
+        List<Object[]> goods = new ArrayList<>();
+        for (int i = 0; i < GOODS; i++) {
+            UUID id = UUID.randomUUID();
+            goodIds.add(id);
+            goods.add(new Object[]{id, "good-" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into good (id, name) values (?, ?)", goods);
+
+        List<Object[]> warehouses = new ArrayList<>();
+        List<Object[]> storages = new ArrayList<>();
+        for (int i = 0; i < WAREHOUSES; i++) {
+            UUID id = UUID.randomUUID();
+            warehouses.add(new Object[]{id, "warehouse-" + i, 100L});
+            storages.add(new Object[]{UUID.randomUUID(), id, goodIds.get(i % GOODS), (long) i % 100});
+        }
+        jdbcTemplate.batchUpdate("insert into warehouse (id, name, max_amount) values (?, ?, ?)", warehouses);
+        jdbcTemplate.batchUpdate("insert into good_storage (id, warehouse_id, good_id, amount) values (?, ?, ?, ?)",
+                storages);
+        warehouseId = (UUID) warehouses.get(WAREHOUSES / 2)[0];
+        goodId = goodIds.get(WAREHOUSES / 2 % GOODS);
+    }
+
+    @Test
+    void t1storageLookupSeeksOneRow() {
+        String plan = explain("select amount from good_storage %s where warehouse_id = ? and good_id = ?",
+                warehouseId, goodId);
+        assertEquals(2, scanCount(plan));
+    }
+
+    @Test
+    void t2totalOfGoodReadsCoveringIndexOnly() {
+        String plan = explain("select sum(amount) from good_storage %s where good_id = ?", goodId);
+        assertTrue(plan.contains("IX_GOOD_STORAGE_GOOD_WAREHOUSE_AMOUNT"), plan);
+        assertEquals(WAREHOUSES / GOODS + 1, scanCount(plan));
+    }
+
+    @Test
+    void t3locationsJoinSeeksBothTables() {
+        String plan = explain("select w.id, w.name from good_storage s %s join warehouse w on w.id = s.warehouse_id " +
+                "where s.good_id = ?", goodId);
+        assertTrue(plan.contains("IX_GOOD_STORAGE_GOOD_WAREHOUSE_AMOUNT"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    @Test
+    void t4duplicatePairIsRejected() {
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "insert into good_storage (id, warehouse_id, good_id, amount) values (?, ?, ?, 0)",
+                UUID.randomUUID(), warehouseId, goodId));
+    }
+
+    /**
+     * Explain the query with its indexes and with a forced table scan, log both plans and return the first one.
+     *
+     * @param sql  the query with a {@code %s} placeholder after the good_storage table for the index hint
+     * @param args the query arguments
+     * @return the plan using the indexes
+     */
+    private String explain(String sql, Object... args) {
+        String indexed = jdbcTemplate.queryForObject("explain analyze " + sql.formatted(""), String.class, args);
+        String scanned = jdbcTemplate.queryForObject("explain analyze " + sql.formatted("use index ()"), String.class, args);
+        log.info("With indexes, {} rows scanned:\n{}", scanCount(indexed), indexed);
+        log.info("Without indexes, {} rows scanned:\n{}", scanCount(scanned), scanned);
+        assertTrue(scanCount(indexed) < scanCount(scanned), indexed);
+        return indexed;
+    }
+
+    private static int scanCount(String plan) {
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return Integer.parseInt(matcher.group(1));
+    }
+}
@@ -0,0 +1,66 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class GoodStorageRepositoryTest {
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private UUID goodId;
+    private Set<UUID> houseIds;
+
+    @BeforeEach
+    void setUp() {
+        Good good = entityManager.persist(Good.builder().name("aggregate").build());
+        goodId = good.getId();
+        for (long amount = 10; amount <= 30; amount += 10) {
+            Warehouse house = entityManager.persist(Warehouse.builder()
+                    .name("aggregate-" + amount)
+                    .location("China")
+                    .maxAmount(100L).build());
+            entityManager.persist(GoodStorage.builder().warehouse(house).good(good).amount(amount).build());
+        }
+        houseIds = storageRepository.findWarehouseIdsByGoodId(goodId).stream().collect(Collectors.toSet());
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void t1sumAmountByGoodIdIsOneQuery() {
+        assertEquals(60L, storageRepository.sumAmountByGoodId(goodId));
+        assertEquals(0L, storageRepository.sumAmountByGoodId(UUID.randomUUID()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void t2findLocationsByGoodIdIsOneQuery() {
+        var locations = storageRepository.findLocationsByGoodId(goodId);
+
+        assertEquals(houseIds, locations.stream().map(WarehouseSummary::id).collect(Collectors.toSet()));
+        assertEquals("China", locations.getFirst().location());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
@@ -0,0 +1,96 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class KeysetRepositoryTest {
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 7; i++) {
+            /* duplicated names and amounts make the id tiebreaker matter */
+            goodRepository.save(Good.builder().name("good-" + i % 3).build());
+            warehouseRepository.save(Warehouse.builder()
+                    .name("warehouse-" + i)
+                    .location("China")
+                    .maxAmount(100L * (1 + i % 4)).build());
+        }
+    }
+
+    @Test
+    void t1goodsByIdVisitEveryRowOnce() {
+        List<GoodSummary> all = readAll(goodRepository, PageCursor.first(null),
+                GoodSummary::name, GoodSummary::id, 3);
+        assertEquals(goodRepository.findAll(Sort.by("id")).stream().map(Good::getId).toList(),
+                all.stream().map(GoodSummary::id).toList());
+    }
+
+    @Test
+    void t2goodsByNameDescUseIdAsTiebreaker() {
+        List<GoodSummary> all = readAll(goodRepository, PageCursor.first("name,desc"),
+                GoodSummary::name, GoodSummary::id, 2);
+        assertEquals(goodRepository.findAll(Sort.by("name", "id").descending()).stream()
+                        .map(Good::getId).toList(),
+                all.stream().map(GoodSummary::id).toList());
+    }
+
+    @Test
+    void t3warehousesByMaxAmount() {
+        List<WarehouseSummary> all = readAll(warehouseRepository, PageCursor.first("maxAmount"),
+                WarehouseSummary::maxAmount, WarehouseSummary::id, 3);
+        assertEquals(warehouseRepository.findAll(Sort.by("maxAmount", "id")).stream()
+                        .map(Warehouse::getId).toList(),
+                all.stream().map(WarehouseSummary::id).toList());
+        assertEquals("China", all.getFirst().location());
+    }
+
+    @Test
+    void t4unknownSortIsRejected() {
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> warehouseRepository.findKeyset(PageCursor.first("location"), 10));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    void t5sortValuesSurviveTheTokenAndNullIsRejected() {
+        PageCursor byName = PageCursor.first("name");
+        assertEquals("", PageCursor.decode(byName.after("", UUID.randomUUID()).encode()).value());
+        assertEquals("null", PageCursor.decode(byName.after("null", UUID.randomUUID()).encode()).value());
+        assertThrows(IllegalStateException.class, () -> byName.after(null, UUID.randomUUID()));
+        assertNull(PageCursor.decode(PageCursor.first("id").after(null, UUID.randomUUID()).encode()).value());
+    }
+
+    /**
+     * Walk through all pages, passing every cursor through its token form like a client would.
+     */
+    private <S> List<S> readAll(KeysetRepository<S> repository, PageCursor cursor,
+                                Function<S, Object> sortValue, Function<S, UUID> id, int size) {
+        List<S> all = new ArrayList<>();
+        while (true) {
+            List<S> page = repository.findKeyset(cursor, size);
+            all.addAll(page);
+            if (page.size() < size) {
+                return all;
+            }
+            S last = page.getLast();
+            cursor = PageCursor.decode(cursor.after(sortValue.apply(last), id.apply(last)).encode());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.TimeOrderedUuidGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert throughput of random (version 4) against time-ordered (version 7) primary keys stored as
+ * {@code binary(16)}, the layout Hibernate uses for UUIDs in MySQL.
+ * <p>
+ * It only runs with {@code mvn test -Pbenchmark}. By default it writes to a file-based H2 database; pass
+ * {@code -Dbenchmark.url=jdbc:mysql://...} together with {@code -Dbenchmark.username} and
+ * {@code -Dbenchmark.password} to measure InnoDB, where the difference is the largest once the index no
+ * longer fits into the buffer pool. The numbers are logged, not asserted.
+ */
+@Slf4j
+@Tag("benchmark")
+class UuidKeyInsertBenchmarkTest {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int BATCH = 1000;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void insertThroughput() throws SQLException {
+        try (Connection connection = connect()) {
+            /* warm up the JIT and the driver before measuring */
+            insert(connection, "bench_warmup", UUID::randomUUID, ROWS / 10);
+            insert(connection, "bench_warmup", TimeOrderedUuidGenerator::next, ROWS / 10);
+
+            double random = insert(connection, "bench_random_key", UUID::randomUUID, ROWS);
+            double ordered = insert(connection, "bench_ordered_key", TimeOrderedUuidGenerator::next, ROWS);
+            log.info("{} rows on {}: random keys {} rows/s, time-ordered keys {} rows/s ({}x)",
+                    ROWS, connection.getMetaData().getDatabaseProductName(),
+                    Math.round(random), Math.round(ordered), Math.round(ordered / random * 100) / 100.0);
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        String url = System.getProperty("benchmark.url", "jdbc:h2:file:" + dir.resolve("bench"));
+        return DriverManager.getConnection(url,
+                System.getProperty("benchmark.username", "sa"), System.getProperty("benchmark.password", ""));
+    }
+
+    /**
+     * Insert rows with the given keys into a fresh table in batches of {@value BATCH}, one transaction each.
+     *
+     * @return the throughput in rows per second
+     */
+    private double insert(Connection connection, String table, Supplier<UUID> keys, int rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists " + table);
+            statement.execute("create table " + table +
+                    " (id binary(16) not null, name varchar(255) not null, amount bigint not null, primary key (id))");
+        }
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into " + table + " (id, name, amount) values (?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setBytes(1, toBytes(keys.get()));
+                insert.setString(2, "item-" + i);
+                insert.setLong(3, i);
+                insert.addBatch();
+                if (i % BATCH == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("select count(*) from " + table)) {
+            count.next();
+            assertEquals(rows, count.getInt(1));
+            statement.execute("drop table " + table);
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return rows / seconds;
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,74 @@
+package dev.xxj.logistics.repo;
+
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.model.WarehouseOccupancy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class WarehouseOccupancyRepositoryTest {
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private WarehouseOccupancyRepository occupancyRepository;
+    private UUID houseId;
+
+    @BeforeEach
+    void setUp() {
+        houseId = warehouseRepository.save(Warehouse.builder()
+                .name("warehouse-occupancy")
+                .location("China")
+                .maxAmount(100L).build()).getId();
+        occupancyRepository.save(WarehouseOccupancy.builder().warehouseId(houseId).amount(0L).build());
+    }
+
+    @Test
+    void t1increaseWithinCapacity() {
+        assertEquals(1, occupancyRepository.increase(houseId, 60L));
+        assertEquals(1, occupancyRepository.increase(houseId, 40L));
+        assertEquals(100L, occupancyRepository.findAmountByWarehouseId(houseId).orElseThrow());
+    }
+
+    @Test
+    void t2increaseOverCapacity() {
+        assertEquals(1, occupancyRepository.increase(houseId, 60L));
+        assertEquals(0, occupancyRepository.increase(houseId, 41L));
+        assertEquals(60L, occupancyRepository.findAmountByWarehouseId(houseId).orElseThrow());
+    }
+
+    @Test
+    void t3decreaseBelowZero() {
+        assertEquals(1, occupancyRepository.increase(houseId, 10L));
+        assertEquals(0, occupancyRepository.decrease(houseId, 11L));
+        assertEquals(1, occupancyRepository.decrease(houseId, 10L));
+        assertEquals(0L, occupancyRepository.findAmountByWarehouseId(houseId).orElseThrow());
+    }
+
+    @Test
+    void t4missingWarehouse() {
+        UUID missing = UUID.randomUUID();
+        assertEquals(0, occupancyRepository.increase(missing, 1L));
+        assertTrue(occupancyRepository.findAmountByWarehouseId(missing).isEmpty());
+    }
+
+    @Test
+    void t5countersAreLockedInLockOrder() {
+        List<UUID> ids = List.of(new UUID(0x8000000000000000L, 1L), new UUID(0x7fffffffffffffffL, 1L),
+                new UUID(0L, 0xffffffffffffffffL), new UUID(0L, 1L));
+        ids.forEach(id -> occupancyRepository.save(WarehouseOccupancy.builder().warehouseId(id).amount(0L).build()));
+
+        List<UUID> locked = occupancyRepository.findAllForUpdate(ids).stream()
+                .map(WarehouseOccupancy::getWarehouseId)
+                .toList();
+
+        assertEquals(ids.stream().sorted(WarehouseOccupancy.LOCK_ORDER).toList(), locked);
+        assertNotEquals(ids.stream().sorted().toList(), locked, "signed order differs from the database");
+    }
+}
@@ -0,0 +1,78 @@
+package dev.xxj.logistics.search;
+
+import dev.xxj.logistics.model.GoodMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoodNameIndexTest {
+    private GoodNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new GoodNameIndex();
+        for (String name : List.of("Widget", "Widget Pro", "widget  mini", "Blue Widget", "Gadget", "Wid")) {
+            index.put(UUID.randomUUID(), name);
+        }
+    }
+
+    @Test
+    void t1rankedPrefixSubstringAndFuzzyMatches() {
+        assertEquals(List.of("Widget:exact", "widget  mini:prefix", "Widget Pro:prefix", "Blue Widget:substring",
+                "Gadget:fuzzy"), names(index.search("WIDGET", 0, 10)));
+        assertEquals(List.of("Wid:exact", "Widget:prefix", "widget  mini:prefix", "Widget Pro:prefix",
+                "Blue Widget:substring"), names(index.search(" wid ", 0, 10)));
+        assertEquals(List.of("Widget Pro:prefix", "widget  mini:fuzzy"), names(index.search("widget   pr", 0, 10)));
+        assertEquals(List.of("Widget Pro:substring"), names(index.search("get pro", 0, 10)));
+    }
+
+    @Test
+    void t2typosAreTolerated() {
+        List<GoodMatch> matches = index.search("wdiget", 0, 10);
+        assertEquals(List.of("Blue Widget:fuzzy", "Widget:fuzzy", "widget  mini:fuzzy", "Widget Pro:fuzzy"),
+                names(matches));
+        assertTrue(matches.stream().allMatch(match -> match.distance() == 1));
+        assertEquals(List.of("Gadget:fuzzy"), names(index.search("gadgte", 0, 10)));
+        assertEquals(List.of(), names(index.search("xyzzy", 0, 10)));
+        assertEquals(1, GoodNameIndex.distance("widget", "wdiget", 2));
+        assertEquals(3, GoodNameIndex.distance("widget", "gadget pro", 2));
+    }
+
+    @Test
+    void t3pagesFollowTheRanking() {
+        List<GoodMatch> all = index.search("widget", 0, 10);
+        assertEquals(all.subList(0, 2), index.search("widget", 0, 2));
+        assertEquals(all.subList(2, 4), index.search("widget", 1 * 2, 2));
+        assertEquals(List.of(), index.search("widget", 10, 2));
+        assertEquals(List.of(), index.search("", 0, 10));
+    }
+
+    @Test
+    void t4renamesAndRemovalsAreVisibleAndCompacted() {
+        UUID id = UUID.randomUUID();
+        index.put(id, "Sprocket");
+        index.put(id, "Gizmo");
+        assertEquals(List.of(), index.search("sprocket", 0, 10));
+        assertEquals(List.of(new GoodMatch(id, "Gizmo", "exact", 0)), index.search("gizmo", 0, 10));
+
+        for (int i = 0; i < 3000; i++) {
+            UUID other = UUID.randomUUID();
+            index.put(other, "Bolt " + i);
+            index.remove(other);
+        }
+        index.remove(id);
+        assertEquals(List.of(), index.search("gizmo", 0, 10));
+        assertEquals(List.of(), index.search("bolt", 0, 10));
+        assertEquals(6, index.size());
+        assertEquals(5, index.search("widget", 0, 10).size());
+    }
+
+    private static List<String> names(List<GoodMatch> matches) {
+        return matches.stream().map(match -> match.name() + ":" + match.match()).toList();
+    }
+}
@@ -0,0 +1,157 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.*;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "logistics.bulk.chunk-size=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class BulkInventoryServiceTest {
+    @Autowired
+    private BulkInventoryService bulkService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @Autowired
+    private WarehouseOccupancyRepository occupancyRepository;
+    @Autowired
+    private MockMvc mvc;
+    private UUID house1;
+    private UUID house2;
+    private UUID goodId;
+
+    @BeforeEach
+    void setUp() {
+        house1 = newWarehouse(100L);
+        house2 = newWarehouse(50L);
+        goodId = goodRepository.save(Good.builder().name("bulk-" + UUID.randomUUID()).build()).getId();
+    }
+
+    @Test
+    void t1storeAllReportsEveryItem() {
+        var results = bulkService.storeAll(List.of(
+                new GoodStorageDto(house1, goodId, 60L),
+                new GoodStorageDto(house1, goodId, 50L),
+                new GoodStorageDto(house1, goodId, 40L),
+                new GoodStorageDto(UUID.randomUUID(), goodId, 1L),
+                new GoodStorageDto(house1, goodId, -1L)));
+
+        assertEquals(List.of(true, false, true, false, false), results.stream().map(BulkItemResult::success).toList());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), results.stream().map(BulkItemResult::index).toList());
+        assertEquals("Warehouse is full", results.get(1).message());
+        assertEquals("No such warehouse", results.get(3).message());
+        assertStored(house1, 100L);
+    }
+
+    @Test
+    void t2moveAllAndRetrieveAllApplyInOrder() {
+        bulkService.storeAll(List.of(new GoodStorageDto(house1, goodId, 100L)));
+
+        var moved = bulkService.moveAll(List.of(
+                new MoveDTO(house1, house2, goodId, 30L),
+                new MoveDTO(house1, house2, goodId, 30L),
+                new MoveDTO(house1, house2, goodId, 20L),
+                new MoveDTO(house2, house1, goodId, 5L)));
+        assertEquals(List.of(true, false, true, true), moved.stream().map(BulkItemResult::success).toList());
+        assertEquals("Warehouse is full", moved.get(1).message());
+        assertStored(house1, 55L);
+        assertStored(house2, 45L);
+
+        var retrieved = bulkService.retrieveAll(List.of(
+                new GoodStorageDto(house2, goodId, 60L),
+                new GoodStorageDto(house2, goodId, 45L)));
+        assertEquals(List.of(false, true), retrieved.stream().map(BulkItemResult::success).toList());
+        assertEquals("Not enough goods in the warehouse", retrieved.getFirst().message());
+        assertStored(house2, 0L);
+    }
+
+    @Test
+    @WithUserDetails("admin")
+    void t3storeNdjsonStream() throws Exception {
+        String body = """
+                {"warehouseId":"%1$s","goodId":"%2$s","amount":70}
+                {"warehouseId":"%1$s","goodId":"%2$s","amount":70}
+                {"warehouseId":"%1$s","goodId":"%2$s","amount":30}
+                """.formatted(house1, goodId);
+        MvcResult started = mvc.perform(post("/good/bulk/store")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String results = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(3, results.lines().count());
+        assertEquals(List.of(true, false, true), results.lines().map(line -> line.contains("\"success\":true")).toList());
+        assertStored(house1, 100L);
+    }
+
+    @Test
+    void t4moveAllRejectsMovesWithoutBothWarehouses() {
+        bulkService.storeAll(List.of(new GoodStorageDto(house1, goodId, 40L)));
+
+        var moved = bulkService.moveAll(List.of(
+                new MoveDTO(house1, null, goodId, 10L),
+                new MoveDTO(null, house1, goodId, 10L),
+                new MoveDTO(house1, house2, null, 10L)));
+
+        assertEquals(List.of(false, false, false), moved.stream().map(BulkItemResult::success).toList());
+        assertEquals("A move needs a source warehouse id, a target warehouse id and a good id",
+                moved.getFirst().message());
+        assertStored(house1, 40L);
+        assertEquals(0L, occupancyRepository.findAmountByWarehouseId(house2).orElseThrow());
+    }
+
+    @Test
+    void t5storeAllAndRetrieveAllRejectItemsWithoutWarehouse() {
+        var stored = bulkService.storeAll(List.of(
+                new GoodStorageDto(null, goodId, 10L),
+                new GoodStorageDto(house1, goodId, 10L)));
+        assertEquals(List.of(false, true), stored.stream().map(BulkItemResult::success).toList());
+        assertEquals("A store needs a warehouse id and a good id", stored.getFirst().message());
+
+        var retrieved = bulkService.retrieveAll(List.of(
+                new GoodStorageDto(null, goodId, 5L),
+                new GoodStorageDto(house1, goodId, 5L)));
+        assertEquals(List.of(false, true), retrieved.stream().map(BulkItemResult::success).toList());
+        assertEquals("A retrieve needs a warehouse id and a good id", retrieved.getFirst().message());
+        assertStored(house1, 5L);
+    }
+
+    private void assertStored(UUID houseId, long expected) {
+        assertEquals(expected, storageRepository.findByWarehouse_IdAndGood_Id(houseId, goodId).orElseThrow().getAmount());
+        assertEquals(expected, occupancyRepository.findAmountByWarehouseId(houseId).orElseThrow());
+    }
+
+    private UUID newWarehouse(long maxAmount) {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("bulk-" + UUID.randomUUID())
+                .location("China")
+                .maxAmount(maxAmount).build()).getId();
+    }
+}
@@ -0,0 +1,107 @@
+package dev.xxj.logistics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import dev.xxj.logistics.config.CacheNames;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.Warehouse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that every write leaves no stale entry in any of the caches of {@link CacheNames}.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CacheInvalidationTest {
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void t1addGoodShowsUpInListsAndNameLookups() {
+        String name = "cache-" + UUID.randomUUID();
+        int before = goodService.getAllGoods().size();
+        assertTrue(goodService.getGoodByName(name).isEmpty());
+
+        Good good = goodService.addGood(Good.builder().name(name).build());
+
+        assertEquals(before + 1, goodService.getAllGoods().size());
+        assertEquals(1, goodService.getGoodByName(name).size());
+        assertEquals(good, cached(CacheNames.GOODS, good.getId()));
+    }
+
+    @Test
+    void t2renameEvictsOldAndNewName() {
+        String oldName = "cache-" + UUID.randomUUID();
+        String newName = "cache-" + UUID.randomUUID();
+        Good good = goodService.addGood(Good.builder().name(oldName).build());
+        assertEquals(1, goodService.getGoodByName(oldName).size());
+        assertTrue(goodService.getGoodByName(newName).isEmpty());
+        goodService.getAllGoods();
+
+        goodService.updateGood(Good.builder().id(good.getId()).name(newName).build());
+
+        assertTrue(goodService.getGoodByName(oldName).isEmpty());
+        assertEquals(1, goodService.getGoodByName(newName).size());
+        assertEquals(newName, goodService.getGoodById(good.getId()).getName());
+        assertTrue(goodService.getAllGoods().stream().anyMatch(g -> newName.equals(g.getName())));
+        assertFalse(goodService.getAllGoods().stream().anyMatch(g -> oldName.equals(g.getName())));
+    }
+
+    @Test
+    void t3deleteGoodEvictsEveryEntry() {
+        String name = "cache-" + UUID.randomUUID();
+        Good good = goodService.addGood(Good.builder().name(name).build());
+        goodService.getGoodById(good.getId());
+        goodService.getGoodByName(name);
+        goodService.getGoodPage(null, "name", 10);
+        assertNotNull(cached(CacheNames.GOOD_LISTS, new SimpleKey(null, "name", 10)));
+
+        goodService.deleteGood(good.getId());
+
+        assertNull(goodService.getGoodById(good.getId()));
+        assertTrue(goodService.getGoodByName(name).isEmpty());
+        assertFalse(goodService.getAllGoods().contains(good));
+        assertNull(cached(CacheNames.GOOD_LISTS, new SimpleKey(null, "name", 10)));
+    }
+
+    @Test
+    void t4warehouseWritesEvictLists() {
+        Warehouse house = warehouseService.addWarehouse(Warehouse.builder()
+                .name("cache-" + UUID.randomUUID())
+                .location("China")
+                .maxAmount(10L).build());
+        assertTrue(warehouseService.getAllWarehouses().contains(house));
+
+        house.setLocation("Beijing");
+        warehouseService.updateWarehouse(house);
+        assertEquals("Beijing", warehouseService.getWarehouseById(house.getId()).getLocation());
+        assertTrue(warehouseService.getAllWarehouses().stream()
+                .anyMatch(w -> w.getId().equals(house.getId()) && "Beijing".equals(w.getLocation())));
+
+        warehouseService.deleteWarehouse(house.getId());
+        assertNull(warehouseService.getWarehouseById(house.getId()));
+        assertFalse(warehouseService.getAllWarehouses().stream().anyMatch(w -> w.getId().equals(house.getId())));
+    }
+
+    /**
+     * Read an entry without going through the loader of the cache.
+     */
+    @SuppressWarnings("unchecked")
+    private Object cached(String cacheName, Object key) {
+        return ((Cache<Object, Object>) Objects.requireNonNull(cacheManager.getCache(cacheName)).getNativeCache())
+                .getIfPresent(key);
+    }
+}
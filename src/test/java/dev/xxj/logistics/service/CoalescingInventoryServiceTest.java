@@ -0,0 +1,149 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.exception.InventoryException;
+import dev.xxj.logistics.metrics.InventoryMetrics;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.InventoryMovement;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.InventoryMovementRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.service.impl.CoalescingInventoryServiceImpl;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"logistics.inventory.write-mode=coalescing",
+        "logistics.inventory.coalesce-window=PT0.02S"})
+@ActiveProfiles("h2")
+class CoalescingInventoryServiceTest {
+    private static final int CLIENTS = 32;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @Autowired
+    private WarehouseOccupancyRepository occupancyRepository;
+    @Autowired
+    private InventoryMovementRepository movementRepository;
+    @Autowired
+    private MeterRegistry registry;
+    private UUID goodId;
+
+    @BeforeEach
+    void setUp() {
+        goodId = goodService.addGood(Good.builder().name("coalescing-" + UUID.randomUUID()).build()).getId();
+    }
+
+    @Test
+    void t1concurrentStoresAreBatchedAndNeverExceedCapacity() throws Exception {
+        assertInstanceOf(CoalescingInventoryServiceImpl.class, inventoryService);
+        UUID house = newWarehouse(100L);
+        DistributionSummary batches = registry.summary(InventoryMetrics.COALESCED_BATCHES, "outcome", "committed");
+        long batchesBefore = batches.count();
+        double commandsBefore = batches.totalAmount();
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger full = new AtomicInteger();
+
+        concurrently(50, i -> {
+            try {
+                inventoryService.store(new GoodStorageDto(house, goodId, 3L));
+                stored.incrementAndGet();
+            } catch (CapacityExceededException e) {
+                full.incrementAndGet();
+            }
+        });
+
+        assertEquals(33, stored.get());
+        assertEquals(17, full.get());
+        assertStored(house, 99L);
+        assertEquals(50, batches.totalAmount() - commandsBefore);
+        assertTrue(batches.count() - batchesBefore < 50, "some stores share a batch");
+    }
+
+    @Test
+    void t2rejectionsReportTheReason() {
+        UUID house = newWarehouse(10L);
+        var e = assertThrows(InsufficientStockException.class,
+                () -> inventoryService.retrieve(new GoodStorageDto(house, goodId, 1L)));
+        assertEquals("No such goods in the warehouse", e.getMessage());
+        inventoryService.store(new GoodStorageDto(house, goodId, 5L));
+
+        e = assertThrows(InsufficientStockException.class,
+                () -> inventoryService.retrieve(new GoodStorageDto(house, goodId, 6L)));
+        assertEquals("Not enough goods in the warehouse", e.getMessage());
+        assertThrows(CapacityExceededException.class,
+                () -> inventoryService.store(new GoodStorageDto(house, goodId, 6L)));
+        assertEquals("No such good", assertThrows(InventoryException.class,
+                () -> inventoryService.store(new GoodStorageDto(house, UUID.randomUUID(), 1L))).getMessage());
+        assertEquals("No such warehouse", assertThrows(InventoryException.class,
+                () -> inventoryService.store(new GoodStorageDto(UUID.randomUUID(), goodId, 1L))).getMessage());
+        assertStored(house, 5L);
+    }
+
+    @Test
+    void t3mixedBatchesKeepStorageCounterAndLedgerInStep() throws Exception {
+        UUID house = newWarehouse(150L);
+        inventoryService.store(new GoodStorageDto(house, goodId, 100L));
+        AtomicInteger net = new AtomicInteger(100);
+
+        concurrently(300, i -> {
+            boolean store = i % 2 == 0;
+            try {
+                if (store) {
+                    inventoryService.store(new GoodStorageDto(house, goodId, 2L));
+                } else {
+                    inventoryService.retrieve(new GoodStorageDto(house, goodId, 3L));
+                }
+                net.addAndGet(store ? 2 : -3);
+            } catch (CapacityExceededException | InsufficientStockException ignored) {
+                /* expected when the warehouse runs full or dry */
+            }
+        });
+
+        assertStored(house, net.get());
+        assertEquals(net.get(), movementRepository.findByWarehouseIdAndGoodIdOrderByCreatedAtAscIdAsc(house, goodId)
+                .stream().mapToLong(InventoryMovement::getDelta).sum());
+    }
+
+    private void concurrently(int tasks, IntConsumer task) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTS)) {
+            CompletableFuture.allOf(IntStream.range(0, tasks)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> task.accept(i), executor))
+                    .toArray(CompletableFuture[]::new)).get();
+        }
+    }
+
+    private void assertStored(UUID house, long expected) {
+        assertEquals(expected, storageRepository.findByWarehouse_IdAndGood_Id(house, goodId).orElseThrow().getAmount());
+        assertEquals(expected, occupancyRepository.findAmountByWarehouseId(house).orElseThrow());
+    }
+
+    private UUID newWarehouse(long maxAmount) {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("coalescing-" + UUID.randomUUID())
+                .location("China")
+                .maxAmount(maxAmount).build()).getId();
+    }
+}
@@ -0,0 +1,92 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.metrics.QueryCounter;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorage;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.repo.GoodRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class EntityCacheTest {
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void t1storagesAreListedWithTheirAssociationsInOneStatement() {
+        Good good = goodService.addGood(Good.builder().name("cached-" + UUID.randomUUID()).build());
+        goodService.storeGood(new GoodStorageDto(addWarehouse().getId(), good.getId(), 2L));
+        goodService.storeGood(new GoodStorageDto(addWarehouse().getId(), good.getId(), 2L));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        List<GoodStorage> storages = new ArrayList<>();
+        assertEquals(1, statements(() -> storages.addAll(goodService.getGoodStorages(good.getId()))),
+                "the warehouses and the good are fetched with the storages, not from the cache");
+        assertEquals(2, storages.size());
+        PersistenceUnitUtil util = entityManagerFactory.getPersistenceUnitUtil();
+        storages.forEach(storage -> {
+            assertTrue(util.isLoaded(storage, "warehouse"));
+            assertTrue(util.isLoaded(storage, "good"));
+        });
+    }
+
+    @Test
+    void t2storeOfANewPairFindsTheGoodInTheCache() {
+        Good good = goodService.addGood(Good.builder().name("cached-" + UUID.randomUUID()).build());
+        UUID first = addWarehouse().getId(), second = addWarehouse().getId();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictEntityData(Good.class);
+
+        int cold = statements(() -> goodService.storeGood(new GoodStorageDto(first, good.getId(), 1L)));
+        int warm = statements(() -> goodService.storeGood(new GoodStorageDto(second, good.getId(), 1L)));
+
+        assertEquals(cold - 1, warm);
+    }
+
+    @Test
+    void t3nameFinderResultsAreCachedUntilGoodsChange() {
+        String name = "cached-" + UUID.randomUUID();
+        goodService.addGood(Good.builder().name(name).build());
+        Good other = goodService.addGood(Good.builder().name("cached-" + UUID.randomUUID()).build());
+
+        assertEquals(1, statements(() -> goodRepository.findByName(name)));
+        assertEquals(0, statements(() -> goodRepository.findByName(name)));
+        goodService.updateGood(Good.builder().id(other.getId()).name("cached-" + UUID.randomUUID()).build());
+        assertEquals(1, statements(() -> goodRepository.findByName(name)), "a write to good drops the result");
+        assertEquals(1, goodRepository.findByName(name).size());
+    }
+
+    private Warehouse addWarehouse() {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("cached-" + UUID.randomUUID()).maxAmount(100L).build());
+    }
+
+    /**
+     * Count the statements Hibernate executes for an action.
+     */
+    private static int statements(Runnable action) {
+        QueryCounter.start();
+        action.run();
+        return QueryCounter.stop();
+    }
+}
@@ -0,0 +1,91 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodMatch;
+import dev.xxj.logistics.model.GoodSummary;
+import dev.xxj.logistics.repo.GoodRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@WithUserDetails("admin")
+class GoodSearchServiceTest {
+    @Autowired
+    private GoodSearchService searchService;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void t1addRenameAndDeleteAreSearchable() {
+        String prefix = "search" + UUID.randomUUID().toString().substring(0, 8);
+        Good good = goodService.addGood(Good.builder().name(prefix + " Lamp").build());
+        assertEquals(List.of(new GoodMatch(good.getId(), prefix + " Lamp", "exact", 0)),
+                searchService.search(prefix.toUpperCase() + " LAMP", 0, 10));
+
+        goodService.updateGood(Good.builder().id(good.getId()).name(prefix + " Lantern").build());
+        assertEquals(List.of("exact"), matches(prefix + " lantern"));
+        assertEquals(List.of("fuzzy"), matches(prefix + " lantren"));
+        assertEquals(List.of("fuzzy"), matches(prefix + " lamp"), "the old name is two typos away");
+
+        goodService.deleteGood(good.getId());
+        assertEquals(List.of(), searchService.search(prefix, 0, 10));
+    }
+
+    @Test
+    void t2rolledBackGoodsAreNotSearchable() {
+        String name = "search-" + UUID.randomUUID();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            goodService.addGood(Good.builder().name(name).build());
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(), searchService.search(name, 0, 10));
+    }
+
+    @Test
+    void t3searchEndpointPagesAndRejectsNegativePages() throws Exception {
+        String prefix = "search" + UUID.randomUUID().toString().substring(0, 8);
+        for (String suffix : List.of("a", "b", "c")) {
+            goodService.addGood(Good.builder().name(prefix + suffix).build());
+        }
+
+        mvc.perform(get("/good/search").param("q", prefix).param("page", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value(prefix + "c"))
+                .andExpect(jsonPath("$[0].match").value("prefix"));
+        mvc.perform(get("/good/search").param("q", prefix).param("page", "-1"))
+                .andExpect(status().isBadRequest());
+        /* the database query used until the index is loaded */
+        assertEquals(List.of(prefix + "c"), goodRepository
+                .findByNamePrefix(prefix + "%", PageRequest.of(1, 2)).stream()
+                .map(GoodSummary::name).toList());
+    }
+
+    private List<String> matches(String query) {
+        return searchService.search(query, 0, 10).stream().map(GoodMatch::match).toList();
+    }
+}
@@ -0,0 +1,146 @@
+package dev.xxj.logistics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.ImportStatus;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.repo.WarehouseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "logistics.bulk.chunk-size=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@WithUserDetails("admin")
+class ImportServiceTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @Autowired
+    private WarehouseOccupancyRepository occupancyRepository;
+
+    @Test
+    void t1csvRegistersGoodsAndWarehousesAndReportsRejectedRows() throws Exception {
+        String prefix = "import-" + UUID.randomUUID();
+        String body = """
+                good,warehouse,location,max_amount,amount
+                %1$s-good,%1$s-house,China,100,40
+                %1$s-orphan,%1$s-missing,,,10
+                %1$s-good,%1$s-house,,,-1
+                %1$s-other,%1$s-depot,Shanghai,50,70
+                %1$s-other,%1$s-depot,Shanghai,50,30
+                ,,,,
+                """.formatted(prefix);
+
+        ImportStatus status = await(upload("text/csv", body));
+
+        assertEquals("COMPLETED", status.state());
+        assertEquals(6, status.rows());
+        assertEquals(2, status.imported());
+        assertEquals(4, status.failed());
+        Warehouse house = warehouseRepository.findByNameIn(List.of(prefix + "-house")).getFirst();
+        assertEquals("China", house.getLocation());
+        Warehouse depot = warehouseRepository.findByNameIn(List.of(prefix + "-depot")).getFirst();
+        assertStored(house, prefix + "-good", 40L);
+        assertStored(depot, prefix + "-other", 30L);
+        assertEquals(List.of(), goodRepository.findByName(prefix + "-orphan"), "a rejected row registers nothing");
+        assertEquals("""
+                row,message
+                2,"No such warehouse"
+                3,"A stock level needs a good, a warehouse and an amount that is not negative"
+                4,"Warehouse is full"
+                6,"Row names neither a good nor a warehouse"
+                """, errors(status.id()));
+    }
+
+    @Test
+    void t2ndjsonSetsLevelsOfExistingWarehouses() throws Exception {
+        String prefix = "import-" + UUID.randomUUID();
+        Warehouse house = warehouseService.addWarehouse(Warehouse.builder().name(prefix).maxAmount(50L).build());
+        Good good = goodRepository.save(Good.builder().name(prefix).build());
+        String body = """
+                {"good":"%1$s","warehouse":"%1$s","amount":"30"}
+                {"good":"%1$s","warehouse":"%1$s","amount":"20"}
+                {"good":"%1$s","warehouse":"%1$s","amount":"60"}
+                """.formatted(prefix);
+
+        ImportStatus status = await(upload(MediaType.APPLICATION_NDJSON_VALUE, body));
+
+        assertEquals("COMPLETED", status.state());
+        assertEquals(2, status.imported());
+        assertEquals(1, status.failed());
+        assertEquals(20L, storageRepository.findByWarehouse_IdAndGood_Id(house.getId(), good.getId())
+                .orElseThrow().getAmount());
+        assertEquals(20L, occupancyRepository.findAmountByWarehouseId(house.getId()).orElseThrow());
+        assertEquals("row,message\n3,\"Warehouse is full\"\n", errors(status.id()));
+    }
+
+    @Test
+    void t3unknownImportIsNotFound() throws Exception {
+        mvc.perform(get("/inventory/import/" + UUID.randomUUID())).andExpect(status().isNotFound());
+        mvc.perform(get("/inventory/import/" + UUID.randomUUID() + "/errors")).andExpect(status().isNotFound());
+    }
+
+    private ImportStatus upload(String contentType, String body) throws Exception {
+        MvcResult result = mvc.perform(post("/inventory/import")
+                        .contentType(contentType)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), ImportStatus.class);
+    }
+
+    private ImportStatus await(ImportStatus submitted) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        ImportStatus status = submitted;
+        while (status.finishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = objectMapper.readValue(mvc.perform(get("/inventory/import/" + submitted.id()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), ImportStatus.class);
+        }
+        return status;
+    }
+
+    private String errors(UUID id) throws Exception {
+        return mvc.perform(get("/inventory/import/" + id + "/errors"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private void assertStored(Warehouse house, String goodName, long expected) {
+        Good good = goodRepository.findByName(goodName).getFirst();
+        assertEquals(expected, storageRepository.findByWarehouse_IdAndGood_Id(house.getId(), good.getId())
+                .orElseThrow().getAmount());
+        assertEquals(expected, occupancyRepository.findAmountByWarehouseId(house.getId()).orElseThrow());
+    }
+}
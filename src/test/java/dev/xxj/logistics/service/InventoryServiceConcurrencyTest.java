@@ -0,0 +1,149 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.repo.GoodRepository;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stress test proving that {@link InventoryService} loses no updates and never breaks the capacity
+ * or stock invariants when many threads hit the same warehouse and good at once.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class InventoryServiceConcurrencyTest {
+    private static final int THREADS = 24;
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private GoodRepository goodRepository;
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @Autowired
+    private WarehouseOccupancyRepository occupancyRepository;
+
+    @Test
+    void t1concurrentStoresLoseNoUpdates() throws Exception {
+        UUID houseId = newWarehouse(1_000_000L);
+        UUID goodId = newGood();
+
+        AtomicInteger succeeded = runConcurrently(() -> inventoryService.store(new GoodStorageDto(houseId, goodId, 1L)));
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, succeeded.get());
+        assertStored(houseId, goodId, THREADS * OPERATIONS_PER_THREAD);
+    }
+
+    @Test
+    void t2concurrentStoresNeverExceedCapacity() throws Exception {
+        long capacity = 300L;
+        UUID houseId = newWarehouse(capacity);
+        UUID goodId = newGood();
+
+        AtomicInteger succeeded = runConcurrently(() -> inventoryService.store(new GoodStorageDto(houseId, goodId, 1L)));
+
+        assertEquals(capacity, succeeded.get());
+        assertStored(houseId, goodId, capacity);
+    }
+
+    @Test
+    void t3concurrentRetrievesNeverGoNegative() throws Exception {
+        long stock = 300L;
+        UUID houseId = newWarehouse(stock);
+        UUID goodId = newGood();
+        inventoryService.store(new GoodStorageDto(houseId, goodId, stock));
+
+        AtomicInteger succeeded = runConcurrently(() -> inventoryService.retrieve(new GoodStorageDto(houseId, goodId, 1L)));
+
+        assertEquals(stock, succeeded.get());
+        assertStored(houseId, goodId, 0L);
+    }
+
+    @Test
+    void t4concurrentOppositeMovesConserveStock() throws Exception {
+        long stock = 500L;
+        UUID house1 = newWarehouse(stock);
+        UUID house2 = newWarehouse(stock);
+        UUID goodId = newGood();
+        inventoryService.store(new GoodStorageDto(house1, goodId, stock / 2));
+        inventoryService.store(new GoodStorageDto(house2, goodId, stock / 2));
+
+        AtomicInteger counter = new AtomicInteger();
+        runConcurrently(() -> inventoryService.move(counter.getAndIncrement() % 2 == 0 ?
+                new MoveDTO(house1, house2, goodId, 3L) : new MoveDTO(house2, house1, goodId, 3L)));
+
+        long amount1 = storageRepository.findByWarehouse_IdAndGood_Id(house1, goodId).orElseThrow().getAmount();
+        long amount2 = storageRepository.findByWarehouse_IdAndGood_Id(house2, goodId).orElseThrow().getAmount();
+        assertEquals(stock, amount1 + amount2);
+        assertEquals(amount1, occupancyRepository.findAmountByWarehouseId(house1).orElseThrow());
+        assertEquals(amount2, occupancyRepository.findAmountByWarehouseId(house2).orElseThrow());
+    }
+
+    /**
+     * Run the operation {@link #OPERATIONS_PER_THREAD} times on each of {@link #THREADS} threads released together.
+     *
+     * @return the number of operations that were not rejected by the inventory rules
+     */
+    private AtomicInteger runConcurrently(Runnable operation) throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    try {
+                        operation.run();
+                        succeeded.incrementAndGet();
+                    } catch (CapacityExceededException | InsufficientStockException ignored) {
+                        /* rejected by the inventory rules, which is expected under contention */
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        return succeeded;
+    }
+
+    private void assertStored(UUID houseId, UUID goodId, long expected) {
+        assertEquals(expected, storageRepository.findByWarehouse_IdAndGood_Id(houseId, goodId).orElseThrow().getAmount());
+        assertEquals(expected, occupancyRepository.findAmountByWarehouseId(houseId).orElseThrow());
+    }
+
+    private UUID newWarehouse(long maxAmount) {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("stress-" + UUID.randomUUID())
+                .location("China")
+                .maxAmount(maxAmount).build()).getId();
+    }
+
+    private UUID newGood() {
+        return goodRepository.save(Good.builder().name("stress-" + UUID.randomUUID()).build()).getId();
+    }
+}
@@ -0,0 +1,181 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.model.*;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.InventoryMovementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "logistics.ledger.commit-timeout=PT0.2S")
+@ActiveProfiles("h2")
+class LedgerServiceTest {
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private InventoryMovementRepository movementRepository;
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private UUID house1;
+    private UUID house2;
+    private UUID goodId;
+
+    @BeforeEach
+    void setUp() {
+        house1 = newWarehouse();
+        house2 = newWarehouse();
+        goodId = goodService.addGood(Good.builder().name("ledger-" + UUID.randomUUID()).build()).getId();
+    }
+
+    @Test
+    void t1everyChangeIsAppended() {
+        inventoryService.store(new GoodStorageDto(house1, goodId, 50L));
+        inventoryService.retrieve(new GoodStorageDto(house1, goodId, 20L));
+        inventoryService.move(new MoveDTO(house1, house2, goodId, 10L));
+        assertThrows(Exception.class, () -> inventoryService.retrieve(new GoodStorageDto(house1, goodId, 100L)));
+
+        assertEquals(List.of(50L, -20L, -10L), deltas(house1));
+        assertEquals(List.of("store", "retrieve", "move"), movementRepository
+                .findByWarehouseIdAndGoodIdOrderByCreatedAtAscIdAsc(house1, goodId).stream()
+                .map(InventoryMovement::getOperation).toList());
+        assertEquals(List.of(10L), deltas(house2));
+    }
+
+    @Test
+    void t2balancesAreRebuiltAtAnyTime() throws Exception {
+        inventoryService.store(new GoodStorageDto(house1, goodId, 50L));
+        Instant afterStore = pause();
+        inventoryService.move(new MoveDTO(house1, house2, goodId, 30L));
+        Instant afterMove = pause();
+
+        assertEquals(List.of(), balances(Instant.EPOCH));
+        assertEquals(List.of(new InventoryBalance(house1, goodId, 50L)), balances(afterStore));
+        assertEquals(List.of(balance(house1), balance(house2)), balances(afterMove));
+        assertEquals(List.of(balance(house1), balance(house2)), balances(Instant.now()));
+    }
+
+    @Test
+    void t3snapshotPlusTailEqualsFullReplay() throws Exception {
+        inventoryService.store(new GoodStorageDto(house1, goodId, 40L));
+        Instant beforeSnapshot = pause();
+        InventorySnapshot snapshot = ledgerService.snapshot(pause()).orElseThrow();
+        assertTrue(ledgerService.snapshot(snapshot.getTakenAt()).isEmpty(), "nothing moved since the snapshot");
+
+        inventoryService.move(new MoveDTO(house1, house2, goodId, 15L));
+        Instant afterMove = pause();
+
+        assertEquals(List.of(new InventoryBalance(house1, goodId, 40L)), balances(beforeSnapshot));
+        assertEquals(List.of(new InventoryBalance(house1, goodId, 40L)), balances(snapshot.getTakenAt()));
+        assertEquals(List.of(new InventoryBalance(house1, goodId, 25L), new InventoryBalance(house2, goodId, 15L)),
+                balances(afterMove));
+    }
+
+    @Test
+    void t4lateCommitIsRolledBack() {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            inventoryService.store(new GoodStorageDto(house1, goodId, 10L));
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+
+        assertEquals(List.of(), deltas(house1));
+        assertTrue(storageRepository.findByWarehouse_IdAndGood_Id(house1, goodId).isEmpty());
+        inventoryService.store(new GoodStorageDto(house1, goodId, 10L));
+        assertEquals(List.of(10L), deltas(house1));
+    }
+
+    @Test
+    void t5snapshotIsCheckedAgainstStoredBalances() throws Exception {
+        inventoryService.store(new GoodStorageDto(house1, goodId, 30L));
+        ledgerService.snapshot(pause()).orElseThrow();
+        inventoryService.move(new MoveDTO(house1, house2, goodId, 10L));
+        assertEquals(List.of(), differences());
+
+        /* a movement committed after a snapshot taken as of a time after the movement's own */
+        Instant late = pause();
+        ledgerService.snapshot(pause()).orElseThrow();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            movementRepository.save(InventoryMovement.builder()
+                    .warehouseId(house1)
+                    .goodId(goodId)
+                    .delta(5L)
+                    .operation("store")
+                    .createdAt(late)
+                    .build());
+            storageRepository.increaseAmount(house1, goodId, 5L);
+        });
+
+        assertEquals(List.of(new InventoryBalance(house1, goodId, -5L)), differences());
+    }
+
+    private List<Long> deltas(UUID houseId) {
+        return movementRepository.findByWarehouseIdAndGoodIdOrderByCreatedAtAscIdAsc(houseId, goodId).stream()
+                .map(InventoryMovement::getDelta)
+                .toList();
+    }
+
+    /**
+     * The balances of the pairs of this test.
+     */
+    private List<InventoryBalance> balances(Instant at) {
+        return ledgerService.getBalancesAt(at).stream()
+                .filter(balance -> balance.goodId().equals(goodId))
+                .toList();
+    }
+
+    /**
+     * The differences between the latest snapshot and good_storage for the pairs of this test.
+     */
+    private List<InventoryBalance> differences() {
+        return ledgerService.checkLatestSnapshot().stream()
+                .filter(difference -> difference.goodId().equals(goodId))
+                .toList();
+    }
+
+    /**
+     * The balance of the good in a warehouse, as stored in good_storage.
+     */
+    private InventoryBalance balance(UUID houseId) {
+        return new InventoryBalance(houseId, goodId,
+                storageRepository.findByWarehouse_IdAndGood_Id(houseId, goodId).orElseThrow().getAmount());
+    }
+
+    /**
+     * @return a time after everything appended so far and before everything appended later
+     */
+    private static Instant pause() throws InterruptedException {
+        Thread.sleep(2);
+        Instant now = Instant.now();
+        Thread.sleep(2);
+        return now;
+    }
+
+    private UUID newWarehouse() {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("ledger-" + UUID.randomUUID())
+                .location("China")
+                .maxAmount(100L).build()).getId();
+    }
+}
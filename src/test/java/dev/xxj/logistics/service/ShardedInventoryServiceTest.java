@@ -0,0 +1,175 @@
+package dev.xxj.logistics.service;
+
+import dev.xxj.logistics.exception.CapacityExceededException;
+import dev.xxj.logistics.exception.InsufficientStockException;
+import dev.xxj.logistics.model.Good;
+import dev.xxj.logistics.model.GoodStorageDto;
+import dev.xxj.logistics.model.MoveDTO;
+import dev.xxj.logistics.model.Warehouse;
+import dev.xxj.logistics.repo.GoodStorageRepository;
+import dev.xxj.logistics.repo.WarehouseOccupancyRepository;
+import dev.xxj.logistics.service.impl.InventoryServiceImpl;
+import dev.xxj.logistics.service.impl.ShardedInventoryServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest(properties = {"logistics.inventory.write-mode=sharded", "logistics.inventory.shards=2"})
+@ActiveProfiles("h2")
+class ShardedInventoryServiceTest {
+    private static final int CLIENTS = 32;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private InventoryServiceImpl lockingService;
+    @Autowired
+    private GoodService goodService;
+    @Autowired
+    private WarehouseService warehouseService;
+    @Autowired
+    private GoodStorageRepository storageRepository;
+    @SpyBean
+    private WarehouseOccupancyRepository occupancyRepository;
+    private UUID goodId;
+
+    @BeforeEach
+    void setUp() {
+        goodId = goodService.addGood(Good.builder().name("sharded-" + UUID.randomUUID()).build()).getId();
+    }
+
+    @Test
+    void t1concurrentStoresNeverExceedCapacity() throws Exception {
+        assertInstanceOf(ShardedInventoryServiceImpl.class, inventoryService);
+        UUID house = newWarehouse(100L);
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger full = new AtomicInteger();
+
+        concurrently(50, i -> {
+            try {
+                inventoryService.store(new GoodStorageDto(house, goodId, 3L));
+                stored.incrementAndGet();
+            } catch (CapacityExceededException e) {
+                full.incrementAndGet();
+            }
+        });
+
+        assertEquals(33, stored.get());
+        assertEquals(17, full.get());
+        assertStored(house, 99L);
+    }
+
+    @Test
+    void t2rejectionsReportTheReason() {
+        UUID house = newWarehouse(10L);
+        inventoryService.store(new GoodStorageDto(house, goodId, 5L));
+
+        var e = assertThrows(InsufficientStockException.class,
+                () -> inventoryService.retrieve(new GoodStorageDto(house, goodId, 6L)));
+        assertEquals("Not enough goods in the warehouse", e.getMessage());
+        assertThrows(CapacityExceededException.class,
+                () -> inventoryService.store(new GoodStorageDto(house, goodId, 6L)));
+        assertStored(house, 5L);
+    }
+
+    @Test
+    void t3writesOutsideTheShardsAreNoticed() {
+        UUID house = newWarehouse(10L);
+        inventoryService.store(new GoodStorageDto(house, goodId, 5L));
+        lockingService.store(new GoodStorageDto(house, goodId, 5L));
+
+        assertThrows(CapacityExceededException.class,
+                () -> inventoryService.store(new GoodStorageDto(house, goodId, 1L)));
+        lockingService.retrieve(new GoodStorageDto(house, goodId, 10L));
+        assertThrows(InsufficientStockException.class,
+                () -> inventoryService.retrieve(new GoodStorageDto(house, goodId, 1L)));
+        inventoryService.store(new GoodStorageDto(house, goodId, 10L));
+        assertStored(house, 10L);
+    }
+
+    @Test
+    void t4movesAcrossAndWithinShardsConserveGoods() throws Exception {
+        /* a and b share a shard of the two, c is on the other one */
+        UUID a = newWarehouse(1000L), b = newWarehouse(1000L), c = newWarehouse(1000L);
+        while (shard(b) != shard(a)) {
+            b = newWarehouse(1000L);
+        }
+        while (shard(c) == shard(a)) {
+            c = newWarehouse(1000L);
+        }
+        List<UUID> houses = List.of(a, b, c);
+        for (UUID house : houses) {
+            inventoryService.store(new GoodStorageDto(house, goodId, 300L));
+        }
+
+        concurrently(300, i -> {
+            try {
+                inventoryService.move(new MoveDTO(houses.get(i % 3), houses.get((i / 3 + i + 1) % 3), goodId, 7L));
+            } catch (InsufficientStockException | CapacityExceededException ignored) {
+                /* expected when a warehouse runs dry or full */
+            }
+        });
+
+        long total = 0;
+        for (UUID house : houses) {
+            long amount = storageRepository.findByWarehouse_IdAndGood_Id(house, goodId).orElseThrow().getAmount();
+            assertTrue(amount >= 0 && amount <= 1000L);
+            assertEquals(amount, occupancyRepository.findAmountByWarehouseId(house).orElseThrow());
+            total += amount;
+        }
+        assertEquals(900L, total);
+    }
+
+    @Test
+    void t5aCommandThatFailsDoesNotStopItsShard() {
+        UUID house = newWarehouse(10L);
+        doThrow(new IllegalStateException("Connection lost")).when(occupancyRepository).findAmountByWarehouseId(house);
+
+        /* the state cannot be loaded, so the database decides */
+        inventoryService.store(new GoodStorageDto(house, goodId, 4L));
+        reset(occupancyRepository);
+        inventoryService.store(new GoodStorageDto(house, goodId, 4L));
+        assertThrows(CapacityExceededException.class,
+                () -> inventoryService.store(new GoodStorageDto(house, goodId, 3L)));
+        assertStored(house, 8L);
+    }
+
+    private static int shard(UUID house) {
+        return Math.floorMod(house.hashCode(), 2);
+    }
+
+    private void concurrently(int tasks, IntConsumer task) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTS)) {
+            CompletableFuture.allOf(IntStream.range(0, tasks)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> task.accept(i), executor))
+                    .toArray(CompletableFuture[]::new)).get();
+        }
+    }
+
+    private void assertStored(UUID house, long expected) {
+        assertEquals(expected, storageRepository.findByWarehouse_IdAndGood_Id(house, goodId).orElseThrow().getAmount());
+        assertEquals(expected, occupancyRepository.findAmountByWarehouseId(house).orElseThrow());
+    }
+
+    private UUID newWarehouse(long maxAmount) {
+        return warehouseService.addWarehouse(Warehouse.builder()
+                .name("sharded-" + UUID.randomUUID())
+                .location("China")
+                .maxAmount(maxAmount).build()).getId();
+    }
+}